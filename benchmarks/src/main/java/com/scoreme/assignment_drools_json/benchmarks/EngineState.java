@@ -0,0 +1,63 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.scoreme.assignment_drools_json.AssignmentDroolsJsonApplication;
+import com.scoreme.assignment_drools_json.service.ApiResponseHandler;
+import com.scoreme.assignment_drools_json.service.DroolsService;
+import com.scoreme.assignment_drools_json.service.DynamicJsonService;
+import com.scoreme.assignment_drools_json.service.SchemaService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The service's Spring context without the web server, shared by all threads of a trial.
+ * Disk writers (audit log, schema registry) and rule hot reload are off, so a run measures
+ * the evaluation and not the file system.
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+
+    // json.flatten.mode of the service: eager | lazy
+    @Param({"eager"})
+    public String flattenMode;
+
+    // drools.session.mode of the service: pooled | stateless | per-request
+    @Param({"pooled"})
+    public String sessionMode;
+
+    private ConfigurableApplicationContext context;
+
+    DynamicJsonService jsonService;
+    SchemaService schemaService;
+    DroolsService droolsService;
+    ApiResponseHandler apiResponseHandler;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(AssignmentDroolsJsonApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "json.flatten.mode=" + flattenMode,
+                        "drools.session.mode=" + sessionMode,
+                        "drools.rules.dir=",
+                        "audit.log.enabled=false",
+                        "schema.registry.file=",
+                        "logging.level.root=WARN")
+                .run();
+        jsonService = context.getBean(DynamicJsonService.class);
+        schemaService = context.getBean(SchemaService.class);
+        droolsService = context.getBean(DroolsService.class);
+        apiResponseHandler = context.getBean(ApiResponseHandler.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.utility.JsonFlattener;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson tree parse followed by a flatten of the whole tree, against the single-pass streaming flattener,
+ * both loading every path into a DynamicObject as eager mode does. Run with the gc profiler (the default)
+ * for the bytes allocated per document. StreamingJsonFlattenerTest checks that both give the same output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlattenerBenchmark {
+
+    private static final Gson gson = new Gson();
+
+    @Benchmark
+    public void gsonTreeFlatten(PayloadState payload, Blackhole blackhole) {
+        JsonObject json = gson.fromJson(payload.json, JsonObject.class);
+        DynamicObject dynamicObject = new DynamicObject(json);
+        JsonFlattener.flatten(json, dynamicObject.loader());
+        blackhole.consume(dynamicObject);
+    }
+
+    @Benchmark
+    public void streamingFlatten(PayloadState payload, Blackhole blackhole) {
+        DynamicObject dynamicObject = new DynamicObject(null);
+        dynamicObject.setOriginalJson(StreamingJsonFlattener.parse(payload.json, dynamicObject.loader()));
+        blackhole.consume(dynamicObject);
+    }
+}
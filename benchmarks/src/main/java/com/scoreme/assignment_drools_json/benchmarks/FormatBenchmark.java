@@ -0,0 +1,67 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.JsonFlattener;
+import com.scoreme.assignment_drools_json.utility.JsonOutput;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing the generated responses in each body format: parse + flatten of the request body
+ * as the streaming parser does it for POST /process, and serializing the evaluated tree into a response.
+ * The encoded size of each payload is printed at setup, for comparing against the times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+    @Benchmark
+    public JsonObject parseAndFlatten(Encoded encoded, Blackhole blackhole) {
+        JsonFlattener.Sink sink = (pathId, path, value) -> blackhole.consume(value);
+        return StreamingJsonFlattener.parse(encoded.body, encoded.format, null, sink);
+    }
+
+    @Benchmark
+    public byte[] serialize(Encoded encoded) {
+        return JsonOutput.toBytes(encoded.tree, encoded.format);
+    }
+
+    /**
+     * The payload of {@link PayloadState} encoded in one of the formats
+     */
+    @State(Scope.Benchmark)
+    public static class Encoded {
+
+        @Param({"JSON", "CBOR", "SMILE"})
+        public BodyFormat format;
+
+        byte[] body;
+        JsonObject tree;
+
+        @Setup(Level.Trial)
+        public void encode(PayloadState payload) {
+            tree = StreamingJsonFlattener.parse(payload.json, null, null);
+            body = JsonOutput.toBytes(tree, format);
+            System.out.printf("%n%s payload: %d bytes (JSON %d)%n", format, body.length,
+                    JsonOutput.toBytes(tree).length);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.Random;
+
+/**
+ * Deterministic customerDetails responses shaped like the ones the rules are written for:
+ * - arrayWidth customers in customerDetails
+ * - alertCount weather alerts per customer, a third of them of High severity
+ * - depth further levels of nested history objects per customer
+ * The same parameters always give the same document, so results of different runs compare.
+ */
+public final class PayloadGenerator {
+
+    private static final Gson gson = new Gson();
+
+    private static final String[] alert_types = {"Storm Warning", "Flood Advisory", "Heat Advisory", "Wind Warning"};
+    private static final String[] severities = {"High", "Medium", "Low"};
+    private static final String[] cities = {"New York", "Mumbai", "London", "Singapore"};
+
+    private PayloadGenerator() {
+    }
+
+    public static String generate(int depth, int arrayWidth, int alertCount) {
+        return gson.toJson(generateTree(depth, arrayWidth, alertCount));
+    }
+
+    public static JsonObject generateTree(int depth, int arrayWidth, int alertCount) {
+        Random random = new Random(31L * (31L * depth + arrayWidth) + alertCount);
+
+        JsonArray customers = new JsonArray();
+        for (int i = 0; i < arrayWidth; i++) {
+            customers.add(customer(i, depth, alertCount, random));
+        }
+        JsonObject root = new JsonObject();
+        root.add("customerDetails", customers);
+        return root;
+    }
+
+    private static JsonObject customer(int index, int depth, int alertCount, Random random) {
+        JsonArray alerts = new JsonArray();
+        for (int i = 0; i < alertCount; i++) {
+            JsonObject alert = new JsonObject();
+            alert.addProperty("alertType", alert_types[random.nextInt(alert_types.length)]);
+            alert.addProperty("severity", severities[i % severities.length]);
+            alert.addProperty("issuedBy", i % 2 == 0 ? "NOAA" : "NWS");
+            alerts.add(alert);
+        }
+
+        JsonObject weather = new JsonObject();
+        weather.addProperty("temperature", 10 + random.nextInt(30));
+        weather.addProperty("condition", "Cloudy");
+        weather.add("alerts", alerts);
+
+        JsonObject locationDetails = new JsonObject();
+        locationDetails.addProperty("latitude", -90 + random.nextDouble() * 180);
+        locationDetails.addProperty("longitude", -180 + random.nextDouble() * 360);
+        locationDetails.add("weather", weather);
+
+        JsonObject address = new JsonObject();
+        address.addProperty("streetAddress", (index + 1) + " Main St");
+        address.addProperty("city", cities[index % cities.length]);
+        address.addProperty("zip", String.format("%05d", 10000 + index));
+        address.add("locationDetails", locationDetails);
+
+        JsonObject contactInfo = new JsonObject();
+        contactInfo.addProperty("email", "customer" + index + "@example.com");
+        contactInfo.addProperty("phone", String.valueOf(9_000_000_000L + index));
+        contactInfo.add("address", address);
+
+        JsonObject financialInfo = new JsonObject();
+        financialInfo.addProperty("creditScore", 450 + random.nextInt(400));
+        financialInfo.addProperty("income", 20_000 + random.nextInt(200_000));
+
+        JsonObject customer = new JsonObject();
+        customer.addProperty("customerId", String.format("CUST%05d", index));
+        customer.addProperty("customerName", "Customer " + index);
+        customer.add("contactInfo", contactInfo);
+        customer.add("financialInfo", financialInfo);
+        customer.add("history", history(depth, random));
+        return customer;
+    }
+
+    // depth levels of {"level", "updatedAt", "note", "previous": {...}}
+    private static JsonObject history(int depth, Random random) {
+        JsonObject level = null;
+        for (int i = depth - 1; i >= 0; i--) {
+            JsonObject outer = new JsonObject();
+            outer.addProperty("level", i);
+            outer.addProperty("updatedAt", 1_700_000_000_000L + random.nextInt(1_000_000));
+            outer.addProperty("note", "revision " + i);
+            if (level != null) {
+                outer.add("previous", level);
+            }
+            level = outer;
+        }
+        return level != null ? level : new JsonObject();
+    }
+}
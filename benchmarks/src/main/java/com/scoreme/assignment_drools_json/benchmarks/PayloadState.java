@@ -0,0 +1,35 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One generated response per parameter combination, see {@link PayloadGenerator}
+ */
+@State(Scope.Benchmark)
+public class PayloadState {
+
+    public static final String API_TYPE = "customerDetails";
+
+    // Nested history levels per customer
+    @Param({"2", "8"})
+    public int depth;
+
+    // Customers in the customerDetails array
+    @Param({"1", "16", "64"})
+    public int arrayWidth;
+
+    // Weather alerts per customer
+    @Param({"0", "4", "32"})
+    public int alertCount;
+
+    String json;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        json = PayloadGenerator.generate(depth, arrayWidth, alertCount);
+    }
+}
@@ -0,0 +1,92 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.model.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of evaluating one response, and the whole of it as POST /process runs it:
+ * parse + flatten, schema inference, rule firing, applying the changes back to the JSON, end to end.
+ *
+ * fireRules and applyChanges need a fresh object per call, which is prepared outside the measured
+ * time (Level.Invocation); for the smallest payloads that setup is of the same order as the call,
+ * so compare those two stages across changes rather than against the others.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Benchmark
+    public DynamicObject parseAndFlatten(EngineState engine, PayloadState payload) {
+        return engine.jsonService.convertJsonToDynamicObject(payload.json);
+    }
+
+    /**
+     * Inference as requests see it: the shape is fingerprinted and, after the first call, found in the schema cache
+     */
+    @Benchmark
+    public Schema inferSchema(EngineState engine, PayloadState payload) {
+        return engine.schemaService.inferSchemaFromJson(payload.json);
+    }
+
+    @Benchmark
+    public DynamicObject fireRules(EngineState engine, Parsed parsed) {
+        return engine.droolsService.processRules(parsed.dynamicObject);
+    }
+
+    @Benchmark
+    public JsonObject applyChanges(Fired fired) {
+        fired.dynamicObject.applyChangesToOriginal();
+        return fired.dynamicObject.getOriginalJson();
+    }
+
+    @Benchmark
+    public String endToEnd(EngineState engine, PayloadState payload) {
+        return engine.apiResponseHandler.processApiResponse(payload.json, PayloadState.API_TYPE);
+    }
+
+    /**
+     * A parsed response tagged with its API type, not yet evaluated
+     */
+    @State(Scope.Thread)
+    public static class Parsed {
+        DynamicObject dynamicObject;
+
+        @Setup(Level.Invocation)
+        public void parse(EngineState engine, PayloadState payload) {
+            dynamicObject = engine.jsonService.convertJsonToDynamicObject(payload.json);
+            dynamicObject.put("_apiType", PayloadState.API_TYPE);
+        }
+    }
+
+    /**
+     * A response the rules have run on, with its changes not yet applied to the JSON
+     */
+    @State(Scope.Thread)
+    public static class Fired {
+        DynamicObject dynamicObject;
+
+        @Setup(Level.Invocation)
+        public void fire(EngineState engine, PayloadState payload) {
+            dynamicObject = engine.jsonService.convertJsonToDynamicObject(payload.json);
+            dynamicObject.put("_apiType", PayloadState.API_TYPE);
+            engine.droolsService.processRules(dynamicObject);
+        }
+    }
+}
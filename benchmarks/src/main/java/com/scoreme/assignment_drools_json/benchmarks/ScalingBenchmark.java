@@ -0,0 +1,59 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of one mid-sized response at 1, 4 and all available threads.
+ * With drools.session.mode=pooled, thread counts above drools.session.pool.max-size (16) wait for sessions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public String endToEndOneThread(EngineState engine, Payload payload) {
+        return engine.apiResponseHandler.processApiResponse(payload.json, PayloadState.API_TYPE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String endToEndFourThreads(EngineState engine, Payload payload) {
+        return engine.apiResponseHandler.processApiResponse(payload.json, PayloadState.API_TYPE);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String endToEndAllThreads(EngineState engine, Payload payload) {
+        return engine.apiResponseHandler.processApiResponse(payload.json, PayloadState.API_TYPE);
+    }
+
+    /**
+     * 16 customers with 4 alerts each, 4 history levels deep
+     */
+    @State(Scope.Benchmark)
+    public static class Payload {
+        String json;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            json = PayloadGenerator.generate(4, 16, 4);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.scoreme.assignment_drools_json.model.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The data type lookups of one schema-based conversion (one per leaf), as the linear scan over the schema's
+ * data objects that SchemaBasedJsonService used before, and through the schema path index
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaLookupBenchmark {
+
+    private static final String[] fields = {"customerId", "customerName", "score", "active", "openedOn", "tags"};
+    private static final String[] types = {"String", "String", "Integer", "Boolean", "Date", "String[]"};
+
+    // Records of the document; each has one leaf per field
+    @Param({"10", "100", "1000", "5000"})
+    public int records;
+
+    private Schema schema;
+    private List<String> paths;
+
+    @Setup(Level.Trial)
+    public void buildSchema() {
+        List<Schema.DataObject> dataObjects = new ArrayList<>();
+        paths = new ArrayList<>();
+        for (int record = 0; record < records; record++) {
+            for (int field = 0; field < fields.length; field++) {
+                Schema.DataObject dataObject = new Schema.DataObject();
+                dataObject.setKeyName("records_" + record + "_" + fields[field]);
+                dataObject.setDataType(types[field]);
+                dataObjects.add(dataObject);
+                paths.add(dataObject.getKeyName());
+            }
+        }
+        Schema.DataPoint dataPoint = new Schema.DataPoint();
+        dataPoint.setApi("dynamicAPI");
+        dataPoint.setDataObjects(dataObjects);
+        schema = new Schema();
+        schema.setDataPoints(List.of(dataPoint));
+
+        for (String path : paths) {
+            if (!linearScan(path).equals(schema.getPathIndex().getDataType(path))) {
+                throw new IllegalStateException("Index and scan disagree on " + path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(linearScan(path));
+        }
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(schema.getPathIndex().getDataType(path));
+        }
+    }
+
+    // The lookup SchemaBasedJsonService used before the index
+    private String linearScan(String path) {
+        for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
+            for (Schema.DataObject dataObj : dataPoint.getDataObjects()) {
+                if (dataObj.getKeyName().equals(path)) {
+                    return dataObj.getDataType();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,349 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.scoreme.assignment_drools_json.AssignmentDroolsJsonApplication;
+import com.scoreme.assignment_drools_json.model.CapturedRequest;
+import com.scoreme.assignment_drools_json.service.TrafficCaptureService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays requests recorded by {@link TrafficCaptureService} against the service and reports latency
+ * percentiles, throughput and error rates, overall and per endpoint.
+ *
+ * Without --url the service is started in this JVM on a random port, with any --property overrides
+ * (e.g. drools.rules.dir=... or drools.session.mode=stateless), so a rule or engine change can be load
+ * tested before rollout. Captured requests are sent in order, looping when more are asked for.
+ * With --rate the requests are scheduled at fixed intervals and latency is measured from the scheduled
+ * start, so time spent queueing behind a slow service is counted rather than hidden.
+ *
+ * Usage: mvn -f benchmarks/pom.xml exec:exec@replay -Dreplay.args="[--dir traffic-capture] [--url http://host:8080]
+ *        [--rate requests/s] [--concurrency 8] [--requests N] [--warmup N] [--output report.json]
+ *        [--property key=value]..."
+ */
+public final class TrafficReplay {
+
+    private static final Gson gson = new Gson();
+
+    private TrafficReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dir = "traffic-capture";
+        String url = null;
+        double rate = 0;
+        int concurrency = 8;
+        int requests = -1;
+        int warmup = -1;
+        String output = null;
+        List<String> properties = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--dir": dir = value; i++; break;
+                case "--url": url = value; i++; break;
+                case "--rate": rate = Double.parseDouble(value); i++; break;
+                case "--concurrency": concurrency = Integer.parseInt(value); i++; break;
+                case "--requests": requests = Integer.parseInt(value); i++; break;
+                case "--warmup": warmup = Integer.parseInt(value); i++; break;
+                case "--output": output = value; i++; break;
+                case "--property": properties.add(value); i++; break;
+                default: throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        List<CapturedRequest> captured = load(Paths.get(dir));
+        if (captured.isEmpty()) {
+            throw new IllegalStateException("No captured requests in " + Paths.get(dir).toAbsolutePath());
+        }
+        int measured = requests > 0 ? requests : captured.size();
+        int warmupRequests = warmup >= 0 ? warmup : Math.min(1_000, captured.size());
+        System.out.printf("Loaded %d captured requests from %s%n", captured.size(), dir);
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            properties.add("server.port=0");
+            properties.add("capture.enabled=false");
+            context = new SpringApplicationBuilder(AssignmentDroolsJsonApplication.class)
+                    .properties(properties.toArray(new String[0]))
+                    .run();
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            if (warmupRequests > 0) {
+                System.out.printf("Warming up with %d requests%n", warmupRequests);
+                run(client, url, captured, warmupRequests, 0, concurrency);
+            }
+            System.out.printf("Replaying %d requests against %s, concurrency %d, rate %s%n", measured, url, concurrency,
+                    rate > 0 ? rate + "/s" : "unthrottled");
+            Report report = run(client, url, captured, measured, rate, concurrency);
+
+            String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+            System.out.println(json);
+            if (output != null) {
+                Files.write(Paths.get(output), json.getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Captured requests of every capture file in the directory, oldest file first. Lines that do not parse,
+     * such as the last line of a file cut off by a crash, are skipped and counted.
+     */
+    static List<CapturedRequest> load(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(TrafficCaptureService::isCaptureFile).sorted().toList();
+        }
+        List<CapturedRequest> captured = new ArrayList<>();
+        for (Path file : files) {
+            int malformed = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    CapturedRequest request = parse(line);
+                    if (request != null) {
+                        captured.add(request);
+                    } else {
+                        malformed++;
+                    }
+                }
+            } catch (EOFException e) {
+                // File of a capture that did not shut down cleanly: keep what was flushed
+            }
+            if (malformed > 0) {
+                System.out.printf("Skipped %d malformed lines in %s%n", malformed, file);
+            }
+        }
+        return captured;
+    }
+
+    // Null for a line that is not a complete captured request
+    private static CapturedRequest parse(String line) {
+        try {
+            CapturedRequest request = gson.fromJson(line, CapturedRequest.class);
+            return request != null && request.getEndpoint() != null && request.getBody() != null ? request : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static Report run(HttpClient client, String url, List<CapturedRequest> captured, int total,
+                              double rate, int concurrency) throws Exception {
+        AtomicLong next = new AtomicLong();
+        long intervalNanos = rate > 0 ? (long) (1e9 / rate) : 0;
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+
+        List<Future<Samples>> futures = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            futures.add(workers.submit(() -> {
+                Samples samples = new Samples();
+                long i;
+                while ((i = next.getAndIncrement()) < total) {
+                    CapturedRequest request = captured.get((int) (i % captured.size()));
+                    long scheduled = System.nanoTime();
+                    if (intervalNanos > 0) {
+                        scheduled = start + i * intervalNanos;
+                        long wait = scheduled - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    int status = send(client, url, request);
+                    samples.add(request.getEndpoint(), System.nanoTime() - scheduled, status);
+                }
+                return samples;
+            }));
+        }
+
+        Samples all = new Samples();
+        for (Future<Samples> future : futures) {
+            all.addAll(future.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        return all.report(elapsed);
+    }
+
+    // HTTP status, or 0 if the request failed without one
+    private static int send(HttpClient client, String url, CapturedRequest request) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(url + request.getEndpoint()))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", request.getFormat().getMediaType())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request.getBodyBytes()))
+                .build();
+        try {
+            return client.send(httpRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * Latencies and statuses recorded by one worker
+     */
+    private static final class Samples {
+        private final Map<String, long[]> latencies = new TreeMap<>();
+        private final Map<String, Integer> counts = new TreeMap<>();
+        private final Map<String, Map<Integer, Integer>> errors = new TreeMap<>();
+
+        void add(String endpoint, long latencyNanos, int status) {
+            int count = counts.getOrDefault(endpoint, 0);
+            long[] values = latencies.get(endpoint);
+            if (values == null || values.length == count) {
+                values = values == null ? new long[1024] : Arrays.copyOf(values, count * 2);
+                latencies.put(endpoint, values);
+            }
+            values[count] = latencyNanos;
+            counts.put(endpoint, count + 1);
+            if (status < 200 || status >= 300) {
+                errors.computeIfAbsent(endpoint, key -> new TreeMap<>()).merge(status, 1, Integer::sum);
+            }
+        }
+
+        void addAll(Samples other) {
+            for (Map.Entry<String, Integer> entry : other.counts.entrySet()) {
+                long[] values = other.latencies.get(entry.getKey());
+                for (int i = 0; i < entry.getValue(); i++) {
+                    add(entry.getKey(), values[i], 200);
+                }
+            }
+            other.errors.forEach((endpoint, byStatus) -> byStatus.forEach((status, count) ->
+                    errors.computeIfAbsent(endpoint, key -> new TreeMap<>()).merge(status, count, Integer::sum)));
+        }
+
+        Report report(long elapsedNanos) {
+            long[] overall = new long[0];
+            Map<String, Integer> overallErrors = new TreeMap<>();
+            Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                long[] values = Arrays.copyOf(latencies.get(entry.getKey()), entry.getValue());
+                Map<Integer, Integer> byStatus = errors.getOrDefault(entry.getKey(), Map.of());
+                endpoints.put(entry.getKey(), new EndpointReport(values, byStatus));
+
+                int offset = overall.length;
+                overall = Arrays.copyOf(overall, offset + values.length);
+                System.arraycopy(values, 0, overall, offset, values.length);
+                byStatus.forEach((status, count) -> overallErrors.merge(String.valueOf(status), count, Integer::sum));
+            }
+            return new Report(overall, overallErrors, elapsedNanos, endpoints);
+        }
+    }
+
+    /**
+     * Latency percentiles in milliseconds
+     */
+    private static final class Latency {
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        Latency(long[] nanos) {
+            Arrays.sort(nanos);
+            this.mean = nanos.length == 0 ? 0 : Arrays.stream(nanos).average().orElse(0) / 1e6;
+            this.p50 = percentile(nanos, 0.50);
+            this.p90 = percentile(nanos, 0.90);
+            this.p99 = percentile(nanos, 0.99);
+            this.p999 = percentile(nanos, 0.999);
+            this.max = nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1e6;
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private static final class EndpointReport {
+        private final int requests;
+        private final int errors;
+        private final Map<Integer, Integer> errorsByStatus;
+        private final Latency latencyMs;
+
+        EndpointReport(long[] nanos, Map<Integer, Integer> errorsByStatus) {
+            this.requests = nanos.length;
+            this.errors = errorsByStatus.values().stream().mapToInt(Integer::intValue).sum();
+            this.errorsByStatus = errorsByStatus;
+            this.latencyMs = new Latency(nanos);
+        }
+    }
+
+    /**
+     * Result of one replay; status 0 in errorsByStatus counts requests that failed without a response
+     */
+    private static final class Report {
+        private final int requests;
+        private final int errors;
+        private final double errorRate;
+        private final Map<String, Integer> errorsByStatus;
+        private final double durationSeconds;
+        private final double throughputPerSecond;
+        private final Latency latencyMs;
+        private final Map<String, EndpointReport> endpoints;
+
+        Report(long[] nanos, Map<String, Integer> errorsByStatus, long elapsedNanos,
+               Map<String, EndpointReport> endpoints) {
+            this.requests = nanos.length;
+            this.errors = errorsByStatus.values().stream().mapToInt(Integer::intValue).sum();
+            this.errorRate = requests == 0 ? 0 : (double) errors / requests;
+            this.errorsByStatus = errorsByStatus;
+            this.durationSeconds = elapsedNanos / 1e9;
+            this.throughputPerSecond = requests / durationSeconds;
+            this.latencyMs = new Latency(nanos);
+            this.endpoints = endpoints;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.scoreme.assignment_drools_json.benchmarks;
+
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.model.Schema;
+import com.scoreme.assignment_drools_json.rules.TypedFactGenerator;
+import com.scoreme.assignment_drools_json.rules.TypedFacts;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One session over a batch of responses, matching the same high-risk rule against the DynamicObject
+ * (get() calls inside eval, which Drools cannot index) and against the generated typed fact (plain field
+ * constraints, alpha-indexed). The typed run includes binding each response to its fact. Setup checks that
+ * both rule sets flag the same responses.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypedFactBenchmark {
+
+    private static final KieServices kieServices = KieServices.Factory.get();
+
+    private static final String api_type = "financialData";
+
+    private static final String dynamic_drl = "package rules\n"
+            + "import com.scoreme.assignment_drools_json.model.DynamicObject;\n"
+            + "global java.util.List flagged;\n"
+            + "rule \"High risk\" when\n"
+            + "    $o: DynamicObject(apiType == \"financialData\", $score: get(\"creditScore\") != null)\n"
+            + "    eval(((Number) $score).intValue() < 600 && \"IN\".equals($o.get(\"country\")))\n"
+            + "then flagged.add($o); end\n";
+
+    private static final String typed_drl = "package rules\n"
+            + "import " + TypedFactGenerator.FACTS_PACKAGE + "." + TypedFactGenerator.className(api_type) + ";\n"
+            + "global java.util.List flagged;\n"
+            + "rule \"High risk\" when\n"
+            + "    $f: " + TypedFactGenerator.className(api_type) + "(creditScore < 600, country == \"IN\")\n"
+            + "then flagged.add($f); end\n";
+
+    // Responses inserted into each session
+    @Param({"1000"})
+    public int responsesPerSession;
+
+    private KieBase dynamicBase;
+    private KieBase typedBase;
+    private TypedFacts typedFacts;
+    private List<DynamicObject> responses;
+
+    @Setup(Level.Trial)
+    public void build() {
+        Schema schema = schema();
+        KieContainer typedContainer = build("typed", typed_drl, TypedFactGenerator.generateSources(api_type, schema));
+        dynamicBase = build("dynamic", dynamic_drl, Map.of()).getKieBase();
+        typedBase = typedContainer.getKieBase();
+        typedFacts = TypedFacts.load(Map.of(api_type, schema), typedContainer.getClassLoader());
+        responses = responses(responsesPerSession);
+
+        if (dynamicObjectEval() != typedFact()) {
+            throw new IllegalStateException("Typed rules flag different responses than the DynamicObject rules");
+        }
+    }
+
+    @Benchmark
+    public int dynamicObjectEval() {
+        return run(dynamicBase, response -> response);
+    }
+
+    @Benchmark
+    public int typedFact() {
+        return run(typedBase, typedFacts::bind);
+    }
+
+    private int run(KieBase kieBase, Function<DynamicObject, Object> toFact) {
+        KieSession session = kieBase.newKieSession();
+        try {
+            List<Object> flagged = new ArrayList<>();
+            session.setGlobal("flagged", flagged);
+            for (DynamicObject response : responses) {
+                session.insert(toFact.apply(response));
+            }
+            session.fireAllRules();
+            return flagged.size();
+        } finally {
+            session.dispose();
+        }
+    }
+
+    private static Schema schema() {
+        List<Schema.DataObject> dataObjects = new ArrayList<>();
+        dataObjects.add(dataObject("customerId", "String"));
+        dataObjects.add(dataObject("country", "String"));
+        dataObjects.add(dataObject("creditScore", "Integer"));
+        dataObjects.add(dataObject("income", "Double"));
+
+        Schema.DataPoint dataPoint = new Schema.DataPoint();
+        dataPoint.setApi("dynamicAPI");
+        dataPoint.setDataObjects(dataObjects);
+        Schema schema = new Schema();
+        schema.setDataPoints(List.of(dataPoint));
+        return schema;
+    }
+
+    private static Schema.DataObject dataObject(String keyName, String dataType) {
+        Schema.DataObject dataObject = new Schema.DataObject();
+        dataObject.setKeyName(keyName);
+        dataObject.setDataType(dataType);
+        return dataObject;
+    }
+
+    private static List<DynamicObject> responses(int count) {
+        List<DynamicObject> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DynamicObject response = new DynamicObject(null);
+            response.put("customerId", "CUST" + i);
+            response.put("country", i % 3 == 0 ? "US" : "IN");
+            response.put("creditScore", 450 + (i * 37) % 400);
+            response.put("income", 20_000.0 + i);
+            response.put("_apiType", api_type);
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static KieContainer build(String name, String drl, Map<String, String> javaSources) {
+        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
+        // Separate release ids, so the second build does not replace the first module
+        kieFileSystem.generateAndWritePomXML(kieServices.newReleaseId("com.scoreme", "typed-fact-benchmark-" + name, "1.0.0"));
+        kieFileSystem.write("src/main/resources/rules/benchmark.drl", drl);
+        javaSources.forEach((path, source) -> kieFileSystem.write("src/main/java/" + path, source));
+        KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem).buildAll();
+        if (kieBuilder.getResults().hasMessages(Message.Level.ERROR)) {
+            throw new IllegalStateException("Errors compiling benchmark rules: "
+                    + kieBuilder.getResults().getMessages(Message.Level.ERROR));
+        }
+        return kieServices.newKieContainer(kieBuilder.getKieModule().getReleaseId());
+    }
+}
@@ -0,0 +1,44 @@
+package com.scoreme.assignment_drools_json.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Async request timeouts per endpoint. spring.mvc.async.request-timeout is the default of every async
+ * response; an endpoint that streams for longer calls {@link #setTimeout} before returning its
+ * StreamingResponseBody, and that timeout is applied as concurrent handling starts.
+ */
+@Configuration
+public class AsyncTimeoutConfig implements WebMvcConfigurer {
+
+    private static final String timeout_attribute = AsyncTimeoutConfig.class.getName() + ".timeout";
+
+    /**
+     * Timeout of the async response of this request, in place of the default
+     */
+    public static void setTimeout(HttpServletRequest request, long timeoutMillis) {
+        request.setAttribute(timeout_attribute, timeoutMillis);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Interceptors get the AsyncWebRequest that concurrent handling is about to start on
+                Object timeout = request.getAttribute(timeout_attribute, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Long && request instanceof AsyncWebRequest) {
+                    ((AsyncWebRequest) request).setTimeout((Long) timeout);
+                }
+            }
+        });
+    }
+}
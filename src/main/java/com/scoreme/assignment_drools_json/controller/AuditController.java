@@ -0,0 +1,76 @@
+package com.scoreme.assignment_drools_json.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.AuditLogEntry;
+import com.scoreme.assignment_drools_json.service.AuditLogStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Query the on-disk rule audit log
+ */
+@RestController
+@RequestMapping("/audit")
+public class AuditController {
+
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private AuditLogStore auditLogStore;
+
+    /**
+     * Rule firings filtered by objectId, rule name and/or time range, newest first.
+     * from/to accept epoch milliseconds or ISO-8601 instants (e.g. 2024-05-01T10:00:00Z).
+     * 503 while the audit log is disabled (audit.log.enabled=false), so that is not mistaken for no matches.
+     */
+    @GetMapping("/executions")
+    public ResponseEntity<String> queryExecutions(
+            @RequestParam(required = false) String objectId,
+            @RequestParam(required = false) String ruleName,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!auditLogStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(errorBody("The audit log is disabled (audit.log.enabled=false)"));
+        }
+        try {
+            List<AuditLogEntry> entries = auditLogStore.query(objectId, ruleName, parseTime(from), parseTime(to),
+                    Math.min(limit, 10_000));
+            return ResponseEntity.ok(gson.toJson(entries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(errorBody(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private static String errorBody(String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        return gson.toJson(error);
+    }
+
+    private static Long parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return Instant.parse(value).toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("Invalid time: " + value);
+            }
+        }
+    }
+}
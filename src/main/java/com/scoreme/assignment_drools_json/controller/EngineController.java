@@ -0,0 +1,64 @@
+package com.scoreme.assignment_drools_json.controller;
+
+import com.google.gson.Gson;
+import com.scoreme.assignment_drools_json.rules.RuleSetManager;
+import com.scoreme.assignment_drools_json.rules.RuleSetVersion;
+import com.scoreme.assignment_drools_json.rules.RuleStartupReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only diagnostics about the rule engine
+ */
+@RestController
+@RequestMapping("/engine")
+public class EngineController {
+
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private RuleStartupReport startupReport;
+
+    @Autowired
+    private RuleSetManager ruleSetManager;
+
+    /**
+     * How the rules were loaded at startup and how long it took
+     */
+    @GetMapping("/startup")
+    public ResponseEntity<String> startupReport() {
+        return ResponseEntity.ok(gson.toJson(startupReport));
+    }
+
+    /**
+     * The rule set version new requests run on
+     */
+    @GetMapping("/rules")
+    public ResponseEntity<String> activeRuleVersion() {
+        RuleSetVersion version = ruleSetManager.current();
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", version.getId());
+        info.put("number", version.getNumber());
+        info.put("source", version.getSource());
+        info.put("activatedAt", version.getActivatedAt());
+        info.put("buildMillis", version.getBuildMillis());
+        info.put("projectedPaths", version.getProjection().isFull() ? "all" : version.getProjection().getPaths());
+        info.put("typedFacts", version.getTypedFacts().getClassNames());
+        return ResponseEntity.ok(gson.toJson(info));
+    }
+
+    /**
+     * Static performance analysis of the active rule version: eval-heavy rules, unindexable constraints,
+     * functions called from conditions, rules without node sharing and an estimated cost per rule
+     */
+    @GetMapping("/rules/analysis")
+    public ResponseEntity<String> ruleAnalysis() {
+        return ResponseEntity.ok(gson.toJson(ruleSetManager.current().getAnalysis()));
+    }
+}
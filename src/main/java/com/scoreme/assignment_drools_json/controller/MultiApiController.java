@@ -1,20 +1,42 @@
 package com.scoreme.assignment_drools_json.controller;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.JsonOutput;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.scoreme.assignment_drools_json.service.*;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @RestController
 @RequestMapping("/process")
 public class MultiApiController {
 
+    // Response header naming the rule set version that produced the response
+    private static final String RULE_VERSION_HEADER = "X-Rule-Version";
+
+    // Response header with the objectId to query GET /audit/executions with; absent when the run was not audited
+    private static final String AUDIT_ID_HEADER = "X-Audit-Id";
+
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private ApiResponseHandler apiResponseHandler;
 
@@ -24,76 +46,164 @@ public class MultiApiController {
     @Autowired
     private DroolsService droolsService;
 
+    @Autowired
+    private BatchEvaluationService batchEvaluationService;
+
+    @Autowired
+    private TrafficCaptureService trafficCapture;
+
+    @Autowired
+    private ResultCacheService resultCache;
+
+    // Longest a /process/batch response may stream; other async responses use spring.mvc.async.request-timeout
+    @Value("${batch.request-timeout-ms:3600000}")
+    private long batchTimeoutMillis;
+
 
     /**
      * Maintain the original endpoint for backward compatibility
      */
     @PostMapping("/evaluate")
-    public ResponseEntity<String> processJson(@RequestBody String jsonRequest) {
+    public void processJson(@RequestBody byte[] jsonRequest, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        BodyFormat requestFormat = BodyFormat.forContentType(request.getContentType());
+        BodyFormat responseFormat = BodyFormat.forAccept(request.getHeader(HttpHeaders.ACCEPT), requestFormat);
+        trafficCapture.capture("/process/evaluate", null, jsonRequest, requestFormat);
+        ResultCacheService.Result result;
         try {
-            // Create dynamic object
-            DynamicObject dynamicObject = jsonService.convertJsonToDynamicObject(jsonRequest);
+            result = resultCache.getOrEvaluate(null, jsonRequest, requestFormat, responseFormat, () -> {
+                // Create dynamic object
+                DynamicObject dynamicObject = jsonService.convertJsonToDynamicObject(jsonRequest, requestFormat);
 
-            // Apply rules
-            droolsService.processRules(dynamicObject);
+                // Apply rules
+                droolsService.processRules(dynamicObject);
 
-            // Apply changes back to original structure
-            dynamicObject.applyChangesToOriginal();
-
-            // Return modified JSON
-            return ResponseEntity.ok(new Gson().toJson(dynamicObject.getOriginalJson()));
+                // Apply changes back to original structure
+                dynamicObject.applyChangesToOriginal();
+                return dynamicObject;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.badRequest()
-                    .body("{\"error\": \"" + e.getMessage() + "\"}");
+            writeError(response, e);
+            return;
+        }
+
+        // Return modified JSON, serialized straight into the response
+        response.setHeader(RULE_VERSION_HEADER, result.getRuleVersion());
+        if (result.getAuditId() != null) {
+            response.setHeader(AUDIT_ID_HEADER, result.getAuditId());
         }
+        response.setContentType(responseFormat.getMediaType());
+        result.writeTo(response.getOutputStream());
     }
 
     /**
-     * Process a single API response
+     * Evaluate newline-delimited JSON records read from the request stream; results are streamed back
+     * as NDJSON in input order, one line per record, with errors reported per record. The response is cut off
+     * after batch.request-timeout-ms.
+     * @param apiType optional: evaluate every record as a response of this API type
+     */
+    @PostMapping(value = "/batch", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> processBatch(
+            @RequestParam(required = false) String apiType,
+            HttpServletRequest request) {
+        StreamingResponseBody body = output -> batchEvaluationService.evaluate(request.getInputStream(), output, apiType);
+        AsyncTimeoutConfig.setTimeout(request, batchTimeoutMillis);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    /**
+     * Process a single API response. Like the other /process endpoints, the body may be JSON, CBOR or Smile
+     * (by Content-Type), and the response is in the format of the Accept header, or else of the request.
      */
     @PostMapping("/{apiType}")
-    public ResponseEntity<String> processSingleApi(
+    public void processSingleApi(
             @PathVariable String apiType,
-            @RequestBody String jsonRequest) {
-
+            @RequestBody byte[] jsonRequest,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        BodyFormat requestFormat = BodyFormat.forContentType(request.getContentType());
+        BodyFormat responseFormat = BodyFormat.forAccept(request.getHeader(HttpHeaders.ACCEPT), requestFormat);
+        trafficCapture.capture("/process/" + apiType, apiType, jsonRequest, requestFormat);
+
+        ResultCacheService.Result result;
         try {
-            String processedResponse = apiResponseHandler.processApiResponse(jsonRequest, apiType);
-            return ResponseEntity.ok(processedResponse);
+            result = resultCache.getOrEvaluate(apiType, jsonRequest, requestFormat, responseFormat,
+                    () -> apiResponseHandler.evaluate(jsonRequest, requestFormat, apiType));
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.badRequest()
-                    .body("{\"error\": \"" + e.getMessage() + "\"}");
+            writeError(response, e);
+            return;
+        }
+
+        response.setHeader(RULE_VERSION_HEADER, result.getRuleVersion());
+        if (result.getAuditId() != null) {
+            response.setHeader(AUDIT_ID_HEADER, result.getAuditId());
         }
+        response.setContentType(responseFormat.getMediaType());
+        result.writeTo(response.getOutputStream());
     }
 
     /**
      * Process multiple API responses together
      */
     @PostMapping("/process-multiple")
-    public ResponseEntity<String> processMultipleApis(@RequestBody String jsonRequest) {
+    public void processMultipleApis(@RequestBody byte[] jsonRequest, HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
+        BodyFormat requestFormat = BodyFormat.forContentType(request.getContentType());
+        BodyFormat responseFormat = BodyFormat.forAccept(request.getHeader(HttpHeaders.ACCEPT), requestFormat);
+        trafficCapture.capture("/process/process-multiple", null, jsonRequest, requestFormat);
+        Map<String, DynamicObject> processedObjects;
         try {
-            // Parse the incoming request which should be a map of API type to response
-            JsonObject requestObj = new Gson().fromJson(jsonRequest, JsonObject.class);
-            Map<String, String> apiResponses = new HashMap<>();
+            // The request maps API type to response; processed in request order so responses
+            // come back in the same order
+            processedObjects = apiResponseHandler.evaluateMultiple(jsonRequest, requestFormat);
+        } catch (Exception e) {
+            e.printStackTrace();
+            writeError(response, e);
+            return;
+        }
 
-            // Extract each API response
-            for (String apiType : requestObj.keySet()) {
-                apiResponses.put(apiType, requestObj.get(apiType).toString());
+        TreeSet<String> ruleVersions = new TreeSet<>();
+        // One audited run per API, or one for all of them in single-session mode
+        Set<String> auditIds = new LinkedHashSet<>();
+        for (DynamicObject processed : processedObjects.values()) {
+            ruleVersions.add(processed.getRuleVersion());
+            if (processed.getAuditId() != null) {
+                auditIds.add(processed.getAuditId());
             }
+        }
+        response.setHeader(RULE_VERSION_HEADER, String.join(",", ruleVersions));
+        if (!auditIds.isEmpty()) {
+            response.setHeader(AUDIT_ID_HEADER, String.join(",", auditIds));
+        }
+        response.setContentType(responseFormat.getMediaType());
 
-            // Process all responses
-            Map<String, String> processedResponses =
-                    apiResponseHandler.processMultipleResponses(apiResponses);
-
-            // Convert back to JSON
-            return ResponseEntity.ok(new Gson().toJson(processedResponses));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.badRequest()
-                    .body("{\"error\": \"" + e.getMessage() + "\"}");
+        Map<String, JsonObject> processedResponses = new LinkedHashMap<>();
+        for (Map.Entry<String, DynamicObject> entry : processedObjects.entrySet()) {
+            processedResponses.put(entry.getKey(), entry.getValue().getOriginalJson());
         }
+        if (responseFormat.isBinary()) {
+            // A binary format has no use for documents encoded as JSON strings, so they are nested as is
+            JsonObject nested = new JsonObject();
+            processedResponses.forEach(nested::add);
+            JsonOutput.write(nested, responseFormat, response.getOutputStream());
+            return;
+        }
+
+        // Each processed response is a JSON string value of its API type, as before, escaped while it is written
+        JsonOutput.writeAsStrings(processedResponses, response.getOutputStream());
     }
 
+    // Errors are always JSON, whatever the formats of the request
+    private static void writeError(HttpServletResponse response, Exception e) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        writer.beginObject().name("error").value(String.valueOf(e.getMessage())).endObject();
+        writer.flush();
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.scoreme.assignment_drools_json.model;
+
+import java.util.List;
+
+/**
+ * One rule firing as stored in the on-disk audit log
+ */
+public class AuditLogEntry {
+    private final long timestamp;
+    private final String objectId;
+    private final String ruleName;
+    private final List<PropertyChange> changes;
+
+    public AuditLogEntry(long timestamp, String objectId, String ruleName, List<PropertyChange> changes) {
+        this.timestamp = timestamp;
+        this.objectId = objectId;
+        this.ruleName = ruleName;
+        this.changes = changes;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getObjectId() {
+        return objectId;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public List<PropertyChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * A property modified by the rule, with values in their string form
+     */
+    public static class PropertyChange {
+        private final String property;
+        private final String before;
+        private final String after;
+
+        public PropertyChange(String property, String before, String after) {
+            this.property = property;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public String getBefore() {
+            return before;
+        }
+
+        public String getAfter() {
+            return after;
+        }
+    }
+}
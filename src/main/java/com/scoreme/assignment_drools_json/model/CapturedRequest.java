@@ -0,0 +1,72 @@
+package com.scoreme.assignment_drools_json.model;
+
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * One request body recorded by the traffic capture, as stored (one JSON line each) in its capture files.
+ * JSON bodies are stored as their text, CBOR and Smile bodies as base64 of the bytes received.
+ */
+public class CapturedRequest {
+
+    private long timestamp;
+    private String endpoint;
+    private String apiType;
+    private BodyFormat format;
+    private String body;
+
+    public CapturedRequest() {
+    }
+
+    public CapturedRequest(long timestamp, String endpoint, String apiType, BodyFormat format, byte[] body) {
+        this.timestamp = timestamp;
+        this.endpoint = endpoint;
+        this.apiType = apiType;
+        this.format = format;
+        this.body = format.isBinary() ? Base64.getEncoder().encodeToString(body) : new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Arrival time, epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Request path, e.g. /process/customerDetails
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * API type of the request, null for endpoints without one
+     */
+    public String getApiType() {
+        return apiType;
+    }
+
+    /**
+     * Format of the body; JSON for captures that predate binary capture
+     */
+    public BodyFormat getFormat() {
+        return format != null ? format : BodyFormat.JSON;
+    }
+
+    /**
+     * The body as stored: JSON text, or base64 for the binary formats
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * The body as it was received
+     */
+    public byte[] getBodyBytes() {
+        return getFormat().isBinary() ? Base64.getDecoder().decode(body) : body.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -5,109 +5,516 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import com.scoreme.assignment_drools_json.utility.JsonFlattener;
+import com.scoreme.assignment_drools_json.utility.JsonPathExtractor;
+import com.scoreme.assignment_drools_json.utility.PathDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class DynamicObject {
-    private Map<String, Object> properties = new HashMap<>();
+    private static final int EMPTY_SLOT = -1;
+    private static final Object NULL_VALUE = new Object(); // Marks a property explicitly set to null
+    private static final Object MISSING = new Object(); // Memoized lazy lookup of a path the document lacks
+
+    // The dictionary current when the object was created; every path id below is one of its ids
+    private final PathDictionary pathDictionary = PathDictionary.current();
+
+    // Open-addressed table from path id to value
+    private int[] slotIds = newSlotIds(16);
+    private Object[] slotValues = new Object[16];
+    private int slotCount;
+    private Map<String, Object> overflowProperties; // Paths that no longer fit in the dictionary
+
+    // Open-addressed table from path id to where this document holds the path: the parent node and key there,
+    // and for objects and arrays the node itself. Recorded while flattening, so write-back is one lookup.
+    private int[] memberIds;
+    private JsonElement[] memberParents;
+    private String[] memberKeys;
+    private JsonElement[] memberNodes;
+    private int memberCount;
+
     private JsonObject originalJson;
-    private Map<String, String> modifiedPaths = new HashMap<>(); // Track which paths were modified by rules
+    private List<Change> journal = new ArrayList<>(); // Ordered record of every modification made by rules
+    private String ruleVersion; // Rule set version that processed this object
+    private String auditId; // objectId of the audit records of the run, null when not audited
+    private boolean lazy; // Paths not loaded yet are resolved from originalJson on first read
 
     public DynamicObject(JsonObject originalJson) {
         this.originalJson = originalJson;
     }
 
+    /**
+     * @param lazy resolve flattened paths from the JSON tree when they are first read, instead of
+     *             expecting them to be loaded up front. Resolved values (and misses) are memoized.
+     */
+    public DynamicObject(JsonObject originalJson, boolean lazy) {
+        this.originalJson = originalJson;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Modify a property; the change is journaled, audited and written back to the original JSON
+     */
     public void set(String key, Object value) {
-        properties.put(key, value);
-        modifiedPaths.put(key, "modified"); // Track that this path was modified
+        if (lazy) {
+            get(key); // Resolve first so the journal records the document's value as the old value
+        }
+        Object oldValue = store(key, value);
+        journal.add(new Change(key, oldValue, value));
+    }
+
+    /**
+     * Load a value extracted from the source JSON (or request context). Not journaled, so not written back.
+     */
+    public void put(String key, Object value) {
+        store(key, value);
+    }
+
+    /**
+     * Load a value by path id of this object's dictionary ({@link #loader}), avoiding the path string lookup
+     */
+    public void put(int pathId, Object value) {
+        storeSlot(pathId, value);
+    }
+
+    /**
+     * Sink that loads flattened values into this object and records where the document holds each path
+     */
+    public JsonFlattener.Sink loader() {
+        return new JsonFlattener.Sink() {
+            @Override
+            public void accept(int pathId, String path, Object value) {
+                if (pathId != PathDictionary.NOT_FOUND) {
+                    storeSlot(pathId, value);
+                } else {
+                    store(path, value);
+                }
+            }
+
+            @Override
+            public void member(int pathId, JsonElement parent, String key, JsonElement node) {
+                putMember(pathId, parent, key, node);
+            }
+
+            @Override
+            public PathDictionary dictionary() {
+                return pathDictionary;
+            }
+        };
     }
 
     public Object get(String key) {
-        return properties.get(key);
+        int pathId = pathDictionary.lookup(key);
+        if (pathId != PathDictionary.NOT_FOUND) {
+            return get(pathId);
+        }
+        if (overflowProperties != null && overflowProperties.containsKey(key)) {
+            return unmask(overflowProperties.get(key));
+        }
+        return lazy ? resolve(key) : null;
+    }
+
+    public Object get(int pathId) {
+        int index = findSlot(pathId);
+        if (slotIds[index] != EMPTY_SLOT) {
+            return unmask(slotValues[index]);
+        }
+        return lazy ? resolve(pathDictionary.path(pathId)) : null;
     }
 
     public boolean hasProperty(String key) {
-        return properties.containsKey(key);
+        int pathId = pathDictionary.lookup(key);
+        if (pathId != PathDictionary.NOT_FOUND) {
+            int index = findSlot(pathId);
+            if (slotIds[index] != EMPTY_SLOT) {
+                return slotValues[index] != MISSING;
+            }
+        } else if (overflowProperties != null && overflowProperties.containsKey(key)) {
+            return overflowProperties.get(key) != MISSING;
+        }
+        return lazy && resolve(key) != null;
     }
 
+    /**
+     * Snapshot of the property names
+     */
     public Set<String> getPropertyKeys() {
-        return properties.keySet();
+        materialize();
+        Set<String> keys = new HashSet<>(slotCount * 2);
+        for (int i = 0; i < slotIds.length; i++) {
+            if (slotIds[i] != EMPTY_SLOT && slotValues[i] != MISSING) {
+                keys.add(pathDictionary.path(slotIds[i]));
+            }
+        }
+        if (overflowProperties != null) {
+            for (Map.Entry<String, Object> entry : overflowProperties.entrySet()) {
+                if (entry.getValue() != MISSING) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        return keys;
     }
 
+    /**
+     * Snapshot of all properties
+     */
     public Map<String, Object> getProperties() {
+        materialize();
+        Map<String, Object> properties = new HashMap<>(slotCount * 2);
+        for (int i = 0; i < slotIds.length; i++) {
+            if (slotIds[i] != EMPTY_SLOT && slotValues[i] != MISSING) {
+                properties.put(pathDictionary.path(slotIds[i]), unmask(slotValues[i]));
+            }
+        }
+        if (overflowProperties != null) {
+            for (Map.Entry<String, Object> entry : overflowProperties.entrySet()) {
+                if (entry.getValue() != MISSING) {
+                    properties.put(entry.getKey(), unmask(entry.getValue()));
+                }
+            }
+        }
         return properties;
     }
 
-    public JsonObject getOriginalJson() {
-        return originalJson;
+    private Object resolve(String key) {
+        Object value = JsonFlattener.resolve(originalJson, key);
+        store(key, value != null ? value : MISSING);
+        return value;
     }
 
-    // Enhanced to handle any modification path
-    public void applyChangesToOriginal() {
-        for (String modifiedPath : modifiedPaths.keySet()) {
-            // Parse the path to identify where to apply changes
-            String[] pathParts = modifiedPath.split("_");
-            String targetProperty = pathParts[pathParts.length - 1];
+    /**
+     * Load every path of a lazy object, keeping values already resolved or written
+     */
+    private void materialize() {
+        if (!lazy) {
+            return;
+        }
+        lazy = false;
+        // Load every path as eager flattening does (the last value emitted for a path wins),
+        // then put back the values resolved or written so far
+        int[] knownIds = slotIds;
+        Object[] knownValues = slotValues;
+        Map<String, Object> knownOverflow = overflowProperties;
+        slotIds = newSlotIds(knownIds.length);
+        slotValues = new Object[knownIds.length];
+        slotCount = 0;
+        overflowProperties = null;
 
-            // Special case for extractedParentData which we know needs to go to customerDetails
-            if ("extractedParentData".equals(targetProperty)) {
-                applyToCustomerDetails(targetProperty, properties.get(modifiedPath));
-            } else {
-                // For other modifications, apply to the appropriate path
-                applyToJsonPath(originalJson, pathParts, 0, properties.get(modifiedPath));
+        JsonFlattener.flatten(originalJson, loader());
+
+        // Values are kept masked; a memoized miss has nothing to add
+        for (int i = 0; i < knownIds.length; i++) {
+            if (knownIds[i] != EMPTY_SLOT && knownValues[i] != MISSING) {
+                storeSlot(knownIds[i], knownValues[i]);
+            }
+        }
+        if (knownOverflow != null) {
+            for (Map.Entry<String, Object> entry : knownOverflow.entrySet()) {
+                if (entry.getValue() != MISSING) {
+                    store(entry.getKey(), entry.getValue());
+                }
             }
         }
     }
 
-    private void applyToCustomerDetails(String property, Object value) {
-        if (originalJson.has("customerDetails") && originalJson.get("customerDetails").isJsonArray()) {
-            JsonArray customerDetails = originalJson.get("customerDetails").getAsJsonArray();
+    private Object store(String key, Object value) {
+        int pathId = pathDictionary.intern(key);
+        if (pathId != PathDictionary.NOT_FOUND) {
+            return storeSlot(pathId, value);
+        }
+        if (overflowProperties == null) {
+            overflowProperties = new HashMap<>();
+        }
+        return unmask(overflowProperties.put(key, mask(value)));
+    }
+
+    private Object storeSlot(int pathId, Object value) {
+        int index = findSlot(pathId);
+        if (slotIds[index] != EMPTY_SLOT) {
+            Object oldValue = unmask(slotValues[index]);
+            slotValues[index] = mask(value);
+            return oldValue;
+        }
+
+        slotIds[index] = pathId;
+        slotValues[index] = mask(value);
+        slotCount++;
+        // Keep the table at most half full so probe sequences stay short
+        if (slotCount * 2 > slotIds.length) {
+            resize();
+        }
+        return null;
+    }
 
-            for (int i = 0; i < customerDetails.size(); i++) {
-                if (customerDetails.get(i).isJsonObject()) {
-                    JsonObject customer = customerDetails.get(i).getAsJsonObject();
-                    String stringValue = value != null ? value.toString() : "";
-                    customer.addProperty(property, stringValue);
+    private int findSlot(int pathId) {
+        return findSlot(slotIds, pathId);
+    }
+
+    private static int findSlot(int[] ids, int pathId) {
+        int mask = ids.length - 1;
+        int index = (pathId * 0x9E3779B9 >>> 16) & mask;
+        while (ids[index] != EMPTY_SLOT && ids[index] != pathId) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void putMember(int pathId, JsonElement parent, String key, JsonElement node) {
+        if (memberIds == null) {
+            memberIds = newSlotIds(16);
+            memberParents = new JsonElement[16];
+            memberKeys = new String[16];
+            memberNodes = new JsonElement[16];
+        }
+        int index = findSlot(memberIds, pathId);
+        if (memberIds[index] == EMPTY_SLOT) {
+            memberIds[index] = pathId;
+            memberCount++;
+        }
+        // A later key spelling the same path wins, as it does for the flattened value
+        memberParents[index] = parent;
+        memberKeys[index] = key;
+        memberNodes[index] = node;
+        if (memberCount * 2 > memberIds.length) {
+            int[] oldIds = memberIds;
+            JsonElement[] oldParents = memberParents;
+            String[] oldKeys = memberKeys;
+            JsonElement[] oldNodes = memberNodes;
+            memberIds = newSlotIds(oldIds.length * 2);
+            memberParents = new JsonElement[oldIds.length * 2];
+            memberKeys = new String[oldIds.length * 2];
+            memberNodes = new JsonElement[oldIds.length * 2];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY_SLOT) {
+                    int moved = findSlot(memberIds, oldIds[i]);
+                    memberIds[moved] = oldIds[i];
+                    memberParents[moved] = oldParents[i];
+                    memberKeys[moved] = oldKeys[i];
+                    memberNodes[moved] = oldNodes[i];
                 }
             }
         }
     }
 
-    private void applyToJsonPath(JsonObject json, String[] pathParts, int index, Object value) {
-        if (index >= pathParts.length) return;
+    /**
+     * Slot of a recorded member, or -1 when this document has none at the path
+     */
+    private int memberSlot(int pathId) {
+        if (pathId == PathDictionary.NOT_FOUND || memberIds == null) {
+            return -1;
+        }
+        int index = findSlot(memberIds, pathId);
+        return memberIds[index] != EMPTY_SLOT ? index : -1;
+    }
 
-        String part = pathParts[index];
+    private static int arrayIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) < '0' || segment.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(segment);
+    }
 
-        // If this is the last part of the path, apply the change
-        if (index == pathParts.length - 1) {
-            if (value instanceof String) {
-                json.addProperty(part, (String)value);
-            } else if (value instanceof Number) {
-                json.addProperty(part, (Number)value);
-            } else if (value instanceof Boolean) {
-                json.addProperty(part, (Boolean)value);
+    private void resize() {
+        int[] oldIds = slotIds;
+        Object[] oldValues = slotValues;
+        slotIds = newSlotIds(oldIds.length * 2);
+        slotValues = new Object[oldIds.length * 2];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY_SLOT) {
+                int index = findSlot(oldIds[i]);
+                slotIds[index] = oldIds[i];
+                slotValues[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int[] newSlotIds(int capacity) {
+        int[] ids = new int[capacity];
+        Arrays.fill(ids, EMPTY_SLOT);
+        return ids;
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private static Object unmask(Object value) {
+        return value == NULL_VALUE || value == MISSING ? null : value;
+    }
+
+    public JsonObject getOriginalJson() {
+        return originalJson;
+    }
+
+    /**
+     * For parsers that emit the flattened values before the tree is complete
+     */
+    public void setOriginalJson(JsonObject originalJson) {
+        this.originalJson = originalJson;
+    }
+
+    /**
+     * Modifications made through {@link #set}, in order
+     */
+    public List<Change> getJournal() {
+        return Collections.unmodifiableList(journal);
+    }
+
+    public int getJournalSize() {
+        return journal.size();
+    }
+
+    /**
+     * The modifications made since the journal had the given size
+     */
+    public List<Change> getJournalSince(int mark) {
+        return mark >= journal.size() ? Collections.emptyList() : new ArrayList<>(journal.subList(mark, journal.size()));
+    }
+
+    /**
+     * The API response this object was built from (the "_apiType" property), so rules can
+     * tell facts apart when several responses share one session: DynamicObject(apiType == "financialData")
+     */
+    public String getApiType() {
+        Object apiType = get("_apiType");
+        return apiType != null ? apiType.toString() : null;
+    }
+
+    public String getRuleVersion() {
+        return ruleVersion;
+    }
+
+    public void setRuleVersion(String ruleVersion) {
+        this.ruleVersion = ruleVersion;
+    }
+
+    /**
+     * The objectId the rules run on this object was audited under (GET /audit/executions?objectId=...),
+     * or null if the run was not sampled for auditing
+     */
+    public String getAuditId() {
+        return auditId;
+    }
+
+    public void setAuditId(String auditId) {
+        this.auditId = auditId;
+    }
+
+    /**
+     * Write the journaled modifications back to the original JSON; the last value of a path wins.
+     * A path the document has is replaced where flattening found it. A new path is attached under the node
+     * of the rest of the path: set on an object, replacing the element of an array ("customerDetails_0"), or
+     * for a key under an array without an index ("customerDetails_weatherAlertsTags") set on every object in it.
+     * Both are a single lookup of what flattening recorded; only documents without those records (lazy objects,
+     * subtrees a projection skipped, paths beyond a full dictionary) walk the path from the root.
+     * Lists and maps are written as arrays and objects; null values are not written.
+     */
+    public void applyChangesToOriginal() {
+        // Last value wins when a path was modified more than once
+        Map<String, Object> finalValues = new LinkedHashMap<>();
+        for (Change change : journal) {
+            finalValues.put(change.getPath(), change.getNewValue());
+        }
+
+        for (Map.Entry<String, Object> modified : finalValues.entrySet()) {
+            if (modified.getValue() == null) {
+                continue;
+            }
+            String path = modified.getKey();
+            JsonElement value = JsonPathExtractor.toJson(modified.getValue());
+            int pathId = pathDictionary.lookup(path);
+            int slot = memberSlot(pathId);
+            if (slot >= 0) {
+                attach(memberParents[slot], memberKeys[slot], value, pathId);
+                continue;
+            }
+            int separator = path.lastIndexOf('_');
+            JsonElement parent = separator < 0 ? originalJson : node(path.substring(0, separator));
+            if (parent != null) {
+                attach(parent, path.substring(separator + 1), value, pathId);
+                continue;
+            }
+            Map.Entry<JsonElement, String> target = JsonPathExtractor.compile(path).locate(originalJson);
+            if (target != null) {
+                attach(target.getKey(), target.getValue(), value, pathId);
             }
-            return;
         }
+    }
 
-        // Navigate to the next level
-        if (json.has(part)) {
-            JsonElement element = json.get(part);
-            if (element.isJsonObject()) {
-                applyToJsonPath(element.getAsJsonObject(), pathParts, index + 1, value);
-            } else if (element.isJsonArray()) {
-                // Handle arrays - assumes next part is an index
-                try {
-                    int arrayIndex = Integer.parseInt(pathParts[index + 1]);
-                    JsonArray array = element.getAsJsonArray();
-                    if (arrayIndex >= 0 && arrayIndex < array.size() && array.get(arrayIndex).isJsonObject()) {
-                        applyToJsonPath(array.get(arrayIndex).getAsJsonObject(), pathParts, index + 2, value);
+    // The object or array this document holds at a path, or null if none was recorded
+    private JsonElement node(String path) {
+        int slot = memberSlot(pathDictionary.lookup(path));
+        return slot >= 0 ? memberNodes[slot] : null;
+    }
+
+    private void attach(JsonElement parent, String key, JsonElement value, int pathId) {
+        if (parent.isJsonObject()) {
+            parent.getAsJsonObject().add(key, value);
+        } else if (parent.isJsonArray()) {
+            JsonArray array = parent.getAsJsonArray();
+            int index = arrayIndex(key);
+            if (index < 0) {
+                // A key under an array without an index belongs to each object in it
+                boolean first = true;
+                for (JsonElement element : array) {
+                    if (element.isJsonObject()) {
+                        element.getAsJsonObject().add(key, first ? value : value.deepCopy());
+                        first = false;
                     }
-                } catch (NumberFormatException | IndexOutOfBoundsException e) {
-                    // Not a valid index, continue with next part
                 }
+                return;
             }
+            if (index >= array.size()) {
+                return;
+            }
+            array.set(index, value);
+        } else {
+            return;
+        }
+        // A node set at its path is where later values below that path belong
+        if (pathId != PathDictionary.NOT_FOUND) {
+            putMember(pathId, parent, key, value.isJsonObject() || value.isJsonArray() ? value : null);
+        }
+    }
+
+    /**
+     * One journaled modification
+     */
+    public static class Change {
+        private final String path;
+        private final Object oldValue;
+        private final Object newValue;
+
+        public Change(String path, Object oldValue, Object newValue) {
+            this.path = path;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Object getOldValue() {
+            return oldValue;
+        }
+
+        public Object getNewValue() {
+            return newValue;
         }
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,8 @@ public class Schema {
     private String dataObjectName;
     private String packageName;
     private List<DataPoint> dataPoints;
+    // Built on first lookup; not part of the serialized schema
+    private transient volatile SchemaPathIndex pathIndex;
 
     // Getters and setters
     public String getDataObjectName() {
@@ -30,6 +32,21 @@ public class Schema {
 
     public void setDataPoints(List<DataPoint> dataPoints) {
         this.dataPoints = dataPoints;
+        this.pathIndex = null;
+    }
+
+    /**
+     * Index of the data types by key name, built once from the data points.
+     * The data points must not be changed in place after the first call.
+     */
+    public SchemaPathIndex getPathIndex() {
+        SchemaPathIndex index = pathIndex;
+        if (index == null) {
+            // Racing threads build equal indexes; the last one simply wins
+            index = SchemaPathIndex.of(this);
+            pathIndex = index;
+        }
+        return index;
     }
 
     // Inner classes for schema structure
@@ -0,0 +1,124 @@
+package com.scoreme.assignment_drools_json.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable key name to data type index over all data objects of a {@link Schema}, built once per schema.
+ *
+ * Exact key names are answered from a hash map. Paths that are not in the schema but only differ in
+ * array indices (e.g. "customerDetails_3_customerId" when the schema was inferred from a document with
+ * one customer) fall back to a wildcard key with every numeric segment replaced by "*", as long as all
+ * indices of that path agreed on one type.
+ */
+public final class SchemaPathIndex {
+
+    private static final String WILDCARD = "*";
+
+    private final Map<String, String> exact;
+    private final Map<String, String> wildcard;
+
+    private SchemaPathIndex(Map<String, String> exact, Map<String, String> wildcard) {
+        this.exact = exact;
+        this.wildcard = wildcard;
+    }
+
+    static SchemaPathIndex of(Schema schema) {
+        Map<String, String> exact = new HashMap<>();
+        Map<String, String> wildcard = new HashMap<>();
+        Set<String> conflicting = new HashSet<>();
+
+        if (schema.getDataPoints() != null) {
+            for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
+                if (dataPoint.getDataObjects() == null) {
+                    continue;
+                }
+                for (Schema.DataObject dataObject : dataPoint.getDataObjects()) {
+                    String keyName = dataObject.getKeyName();
+                    String dataType = dataObject.getDataType();
+                    if (keyName == null || dataType == null) {
+                        continue;
+                    }
+                    // First definition wins, as with the linear scan this index replaces
+                    exact.putIfAbsent(keyName, dataType);
+
+                    String pattern = wildcardKey(keyName);
+                    if (pattern != null && !conflicting.contains(pattern)) {
+                        String previous = wildcard.putIfAbsent(pattern, dataType);
+                        if (previous != null && !previous.equals(dataType)) {
+                            // Elements disagree on the type; do not guess for indices the schema has not seen
+                            wildcard.remove(pattern);
+                            conflicting.add(pattern);
+                        }
+                    }
+                }
+            }
+        }
+        return new SchemaPathIndex(Map.copyOf(exact), Map.copyOf(wildcard));
+    }
+
+    /**
+     * @return the data type of the key name, or null if the schema does not describe it
+     */
+    public String getDataType(String keyName) {
+        String dataType = exact.get(keyName);
+        if (dataType != null || wildcard.isEmpty()) {
+            return dataType;
+        }
+        String pattern = wildcardKey(keyName);
+        return pattern != null ? wildcard.get(pattern) : null;
+    }
+
+    /**
+     * @return the data type of the elements of an array key name ("String" for "String[]"), or null
+     */
+    public String getArrayElementType(String keyName) {
+        String dataType = getDataType(keyName);
+        if (dataType != null && dataType.endsWith("[]")) {
+            return dataType.substring(0, dataType.length() - 2);
+        }
+        return null;
+    }
+
+    public int size() {
+        return exact.size();
+    }
+
+    /**
+     * Key name with every all-digit segment replaced by the wildcard, or null if it has no index segment
+     */
+    private static String wildcardKey(String keyName) {
+        StringBuilder pattern = null;
+        int segmentStart = 0;
+        int length = keyName.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && keyName.charAt(i) != '_') {
+                continue;
+            }
+            if (i > segmentStart && isDigits(keyName, segmentStart, i)) {
+                if (pattern == null) {
+                    pattern = new StringBuilder(length).append(keyName, 0, segmentStart);
+                }
+                pattern.append(WILDCARD);
+            } else if (pattern != null) {
+                pattern.append(keyName, segmentStart, i);
+            }
+            if (pattern != null && i < length) {
+                pattern.append('_');
+            }
+            segmentStart = i + 1;
+        }
+        return pattern != null ? pattern.toString() : null;
+    }
+
+    private static boolean isDigits(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
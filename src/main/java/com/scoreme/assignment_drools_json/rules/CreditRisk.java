@@ -0,0 +1,14 @@
+package com.scoreme.assignment_drools_json.rules;
+
+/**
+ * Credit score thresholds shared by the rules, so each lives in one place.
+ * DRL reads them as plain constraints, e.g. CreditRisk.HIGH_RISK_SCORE.
+ */
+public final class CreditRisk {
+
+    // A financialData credit score below this is high risk
+    public static final int HIGH_RISK_SCORE = 600;
+
+    private CreditRisk() {
+    }
+}
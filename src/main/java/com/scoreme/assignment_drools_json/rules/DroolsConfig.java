@@ -1,29 +1,196 @@
 package com.scoreme.assignment_drools_json.rules;
 
+import org.kie.api.KieBase;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.KieFileSystem;
 import org.kie.api.builder.KieModule;
+import org.kie.api.builder.Message;
 import org.kie.api.runtime.KieContainer;
 import org.kie.internal.io.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Configuration
 public class DroolsConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(DroolsConfig.class);
+
     private static final String drl_file_path = "rules/rules.drl";
 
+    // Entry point generated by kie-maven-plugin's generateModel goal
+    private static final String executable_model_class = "org.drools.project.model.ProjectModel";
+
     private static final KieServices kieServices = KieServices.Factory.get();
 
+    /**
+     * auto - use the precompiled executable model when it is on the classpath, else compile the DRL
+     * executable-model - require the precompiled model
+     * drl - always compile rules/rules.drl at startup
+     */
+    @Value("${drools.rules.source:auto}")
+    private String rulesSource;
+
+    // Also time the mode that is not used, so the startup report can compare both
+    @Value("${drools.startup.compare-modes:false}")
+    private boolean compareModes;
+
+    // Highest estimated cost of a single rule (see RulePerformanceAnalyzer); 0 disables the check
+    @Value("${drools.analysis.max-rule-cost:0}")
+    private int maxRuleCost;
+
+    // Refuse to start (or to activate a reloaded rule set) when a rule is over the limit, instead of only logging it
+    @Value("${drools.analysis.fail-on-limit:false}")
+    private boolean failOnLimit;
+
+    @Bean
+    public RuleStartupReport ruleStartupReport() {
+        return new RuleStartupReport();
+    }
+
     @Bean
-    public KieContainer kieContainer() {
+    public KieContainer kieContainer(RuleStartupReport startupReport, RuleAnalysisReport ruleAnalysisReport) {
+        // The analysis is a parameter so it runs, and can stop startup, before any rules are compiled
+        boolean modelAvailable = isExecutableModelAvailable();
+        startupReport.setExecutableModelAvailable(modelAvailable);
+
+        String mode = resolveMode(modelAvailable);
+        KieContainer kieContainer = loadTimed(mode, startupReport);
+        startupReport.setActiveMode(mode);
+
+        if (compareModes) {
+            String otherMode = RuleStartupReport.DRL.equals(mode) ? RuleStartupReport.EXECUTABLE_MODEL : RuleStartupReport.DRL;
+            if (RuleStartupReport.DRL.equals(otherMode) || modelAvailable) {
+                loadTimed(otherMode, startupReport).dispose();
+            }
+        }
+
+        log.info(startupReport.summary());
+        return kieContainer;
+    }
+
+    /**
+     * Paths the classpath rules read through DynamicObject.get(...), so flattening can skip the rest
+     */
+    @Bean
+    public RuleProjection ruleProjection() {
+        try (InputStream in = new ClassPathResource(drl_file_path).getInputStream()) {
+            RuleProjection projection = RuleProjection.scan(List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            log.info("Rules read {}", projection.isFull() ? "dynamic paths, flattening everything"
+                    : projection.getPaths().size() + " paths: " + projection.getPaths());
+            return projection;
+        } catch (IOException e) {
+            log.warn("Cannot read {} to collect rule paths, flattening everything", drl_file_path, e);
+            return RuleProjection.FULL;
+        }
+    }
+
+    /**
+     * Static performance analysis of the classpath rules, run before the KieBase is built
+     */
+    @Bean
+    public RuleAnalysisReport ruleAnalysisReport() {
+        try (InputStream in = new ClassPathResource(drl_file_path).getInputStream()) {
+            RuleAnalysisReport report = RulePerformanceAnalyzer.analyze("classpath:" + drl_file_path,
+                    List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8)), maxRuleCost);
+            checkAnalysis(report, failOnLimit);
+            return report;
+        } catch (IOException e) {
+            log.warn("Cannot read {} to analyze it", drl_file_path, e);
+            return new RuleAnalysisReport("classpath:" + drl_file_path, maxRuleCost);
+        }
+    }
+
+    /**
+     * Log the findings of an analysis
+     * @throws IllegalStateException if a rule is over the cost limit and failOnLimit is set
+     */
+    static void checkAnalysis(RuleAnalysisReport report, boolean failOnLimit) {
+        log.info(report.summary());
+        for (RuleAnalysisReport.RuleAnalysis rule : report.getRules()) {
+            for (String finding : rule.getFindings()) {
+                log.warn("Rule \"{}\" (cost {}): {}", rule.getName(), rule.getEstimatedCost(), finding);
+            }
+        }
+        if (report.isLimitExceeded()) {
+            String message = "Rules over the cost limit of " + report.getMaxRuleCost() + ": " + report.getRulesOverLimit();
+            if (failOnLimit) {
+                throw new IllegalStateException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    /**
+     * Default KieBase of the container; sessions (pooled or stateless) are created from it
+     */
+    @Bean
+    public KieBase kieBase(KieContainer kieContainer) {
+        return kieContainer.getKieBase();
+    }
+
+    private String resolveMode(boolean modelAvailable) {
+        switch (rulesSource.trim().toLowerCase()) {
+            case RuleStartupReport.DRL:
+                return RuleStartupReport.DRL;
+            case RuleStartupReport.EXECUTABLE_MODEL:
+                if (!modelAvailable) {
+                    throw new IllegalStateException("drools.rules.source=executable-model but "
+                            + executable_model_class + " is not on the classpath; build with kie-maven-plugin");
+                }
+                return RuleStartupReport.EXECUTABLE_MODEL;
+            default:
+                if (!modelAvailable) {
+                    log.warn("Precompiled rule model not found, falling back to compiling {}", drl_file_path);
+                }
+                return modelAvailable ? RuleStartupReport.EXECUTABLE_MODEL : RuleStartupReport.DRL;
+        }
+    }
+
+    // Load time includes building the KieBase, which is the part both modes share
+    private KieContainer loadTimed(String mode, RuleStartupReport startupReport) {
+        long start = System.nanoTime();
+        KieContainer kieContainer = RuleStartupReport.EXECUTABLE_MODEL.equals(mode)
+                ? loadExecutableModel()
+                : compileDrl();
+        kieContainer.getKieBase();
+        startupReport.recordLoadTime(mode, (System.nanoTime() - start) / 1_000_000);
+        return kieContainer;
+    }
+
+    private KieContainer loadExecutableModel() {
+        // A fresh classpath container picks up the generated model declared by META-INF/kmodule.xml
+        return kieServices.newKieClasspathContainer();
+    }
+
+    private KieContainer compileDrl() {
         KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
         kieFileSystem.write(ResourceFactory.newClassPathResource(drl_file_path));
         KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem);
         kieBuilder.buildAll();
+        if (kieBuilder.getResults().hasMessages(Message.Level.ERROR)) {
+            throw new IllegalStateException("Errors compiling " + drl_file_path + ": "
+                    + kieBuilder.getResults().getMessages(Message.Level.ERROR));
+        }
         KieModule kieModule = kieBuilder.getKieModule();
-        KieContainer kieContainer = kieServices.newKieContainer(kieModule.getReleaseId());
-        return kieContainer;
+        return kieServices.newKieContainer(kieModule.getReleaseId());
+    }
+
+    private boolean isExecutableModelAvailable() {
+        try {
+            Class.forName(executable_model_class, false, DroolsConfig.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
 }
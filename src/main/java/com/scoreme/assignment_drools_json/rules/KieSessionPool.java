@@ -0,0 +1,288 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bounded pool of reusable stateful KieSessions created from a single KieBase.
+ * Sessions are reset (all facts deleted) before they go back to the pool, and
+ * sessions that stayed idle longer than the eviction timeout are disposed.
+ */
+public class KieSessionPool implements AutoCloseable {
+
+    private final KieBase kieBase;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleEvictionMillis;
+    private final Consumer<KieSession> sessionInitializer;
+
+    // Idle sessions, most recently used first so the warmest session is reused
+    private final LinkedBlockingDeque<IdleSession> idleSessions = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalSessions = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter timeouts;
+    private final Counter evictions;
+    private final Timer waitTimer;
+    private final Timer createTimer;
+
+    private volatile boolean closed;
+
+    /**
+     * @param kieBase the KieBase sessions are created from
+     * @param maxSize maximum number of sessions (borrowed + idle)
+     * @param maxWaitMillis how long a caller waits for a free session before failing
+     * @param idleEvictionMillis idle time after which a pooled session is disposed (0 disables eviction)
+     * @param sessionInitializer one-time wiring applied to every new session (listeners, globals)
+     * @param meterRegistry registry that receives the hit/miss counters and wait timer
+     */
+    public KieSessionPool(KieBase kieBase, int maxSize, long maxWaitMillis, long idleEvictionMillis,
+                          Consumer<KieSession> sessionInitializer, MeterRegistry meterRegistry) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Session pool size must be at least 1, was " + maxSize);
+        }
+        this.kieBase = kieBase;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleEvictionMillis = idleEvictionMillis;
+        this.sessionInitializer = sessionInitializer;
+        this.permits = new Semaphore(maxSize);
+
+        this.hits = Counter.builder("drools.session.pool.acquire").tag("result", "hit")
+                .description("Sessions served from the idle pool").register(meterRegistry);
+        this.misses = Counter.builder("drools.session.pool.acquire").tag("result", "miss")
+                .description("Sessions that had to be created").register(meterRegistry);
+        this.timeouts = Counter.builder("drools.session.pool.acquire").tag("result", "timeout")
+                .description("Callers that gave up waiting for a session").register(meterRegistry);
+        this.evictions = Counter.builder("drools.session.pool.evictions")
+                .description("Idle sessions disposed by the evictor").register(meterRegistry);
+        this.waitTimer = Timer.builder("drools.session.pool.wait")
+                .description("Time spent waiting for a free session")
+                .register(meterRegistry);
+        this.createTimer = Timer.builder("drools.session.create").tag("mode", "pooled")
+                .description("Time to create a session")
+                .register(meterRegistry);
+
+        if (idleEvictionMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "kie-session-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(idleEvictionMillis / 2, 1000);
+            evictor.scheduleWithFixedDelay(this::evictIdleSessions, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Borrow a session. The caller must close the returned handle to give the session back.
+     * After the pool is closed a caller still gets a one-off session, so a request that picked
+     * this pool just before a rule swap can finish on it.
+     */
+    public PooledSession borrow() {
+        if (closed) {
+            return new PooledSession(newSession(), false);
+        }
+        acquirePermit();
+
+        IdleSession idle = idleSessions.pollFirst();
+        if (idle != null) {
+            hits.increment();
+            return new PooledSession(idle.session, true);
+        }
+
+        misses.increment();
+        try {
+            return new PooledSession(newSession(), true);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private KieSession newSession() {
+        KieSession session = createTimer.record(kieBase::newKieSession);
+        sessionInitializer.accept(session);
+        totalSessions.incrementAndGet();
+        return session;
+    }
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a KieSession", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new IllegalStateException("Timed out after " + maxWaitMillis
+                    + " ms waiting for one of " + maxSize + " pooled KieSessions");
+        }
+    }
+
+    private void release(KieSession session, boolean broken, boolean holdsPermit) {
+        try {
+            if (closed || broken || !holdsPermit || !reset(session)) {
+                dispose(session);
+            } else {
+                IdleSession idle = new IdleSession(session, System.currentTimeMillis());
+                idleSessions.offerFirst(idle);
+                // close() may have drained the deque between the check above and the offer
+                if (closed && idleSessions.remove(idle)) {
+                    dispose(session);
+                }
+            }
+        } finally {
+            if (holdsPermit) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Remove every fact so the session can be reused for the next request.
+     */
+    private boolean reset(KieSession session) {
+        try {
+            List<FactHandle> handles = new ArrayList<>(session.getFactHandles());
+            for (FactHandle handle : handles) {
+                session.delete(handle);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void dispose(KieSession session) {
+        totalSessions.decrementAndGet();
+        try {
+            session.dispose();
+        } catch (RuntimeException e) {
+            // Nothing useful to do with a session that fails to dispose
+        }
+    }
+
+    private void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMillis;
+        // Oldest sessions sit at the tail of the deque
+        Iterator<IdleSession> iterator = idleSessions.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleSession idle = iterator.next();
+            if (idle.idleSince > cutoff) {
+                break;
+            }
+            if (idleSessions.removeLastOccurrence(idle)) {
+                evictions.increment();
+                dispose(idle.session);
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getIdleCount() {
+        return idleSessions.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getTotalCount() {
+        return totalSessions.get();
+    }
+
+    /**
+     * Stop pooling and dispose the idle sessions. Sessions still borrowed
+     * are disposed when they are returned, so in-flight work is not interrupted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        IdleSession idle;
+        while ((idle = idleSessions.pollFirst()) != null) {
+            dispose(idle.session);
+        }
+    }
+
+    private static class IdleSession {
+        private final KieSession session;
+        private final long idleSince;
+
+        IdleSession(KieSession session, long idleSince) {
+            this.session = session;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Handle to a borrowed session; closing it returns the session to the pool.
+     */
+    public class PooledSession implements AutoCloseable {
+        private final KieSession session;
+        private final boolean holdsPermit;
+        private boolean broken;
+        private boolean returned;
+
+        private PooledSession(KieSession session, boolean holdsPermit) {
+            this.session = session;
+            this.holdsPermit = holdsPermit;
+        }
+
+        public KieSession getSession() {
+            return session;
+        }
+
+        /**
+         * Mark the session as unusable (e.g. rule execution threw) so it is disposed instead of reused.
+         */
+        public void invalidate() {
+            this.broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                release(session, broken, holdsPermit);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Static performance analysis of one rule set, see {@link RulePerformanceAnalyzer}
+ */
+public class RuleAnalysisReport {
+
+    private final Date analyzedAt = new Date();
+    private final String source;
+    private final int maxRuleCost;
+    private final List<String> parseErrors = new ArrayList<>();
+    private final List<RuleAnalysis> rules = new ArrayList<>();
+
+    public RuleAnalysisReport(String source, int maxRuleCost) {
+        this.source = source;
+        this.maxRuleCost = maxRuleCost;
+    }
+
+    public Date getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Highest acceptable estimated cost of one rule; 0 means no limit
+     */
+    public int getMaxRuleCost() {
+        return maxRuleCost;
+    }
+
+    public List<String> getParseErrors() {
+        return parseErrors;
+    }
+
+    public List<RuleAnalysis> getRules() {
+        return rules;
+    }
+
+    public int getTotalCost() {
+        int total = 0;
+        for (RuleAnalysis rule : rules) {
+            total += rule.getEstimatedCost();
+        }
+        return total;
+    }
+
+    /**
+     * Rules whose estimated cost is above the limit
+     */
+    public List<String> getRulesOverLimit() {
+        List<String> names = new ArrayList<>();
+        if (maxRuleCost > 0) {
+            for (RuleAnalysis rule : rules) {
+                if (rule.getEstimatedCost() > maxRuleCost) {
+                    names.add(rule.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    public boolean isLimitExceeded() {
+        return !getRulesOverLimit().isEmpty();
+    }
+
+    /**
+     * One line summary for the log
+     */
+    public String summary() {
+        int flagged = 0;
+        for (RuleAnalysis rule : rules) {
+            if (!rule.getFindings().isEmpty()) {
+                flagged++;
+            }
+        }
+        StringBuilder sb = new StringBuilder("Analyzed ").append(rules.size()).append(" rules from ").append(source)
+                .append(": total estimated cost ").append(getTotalCost())
+                .append(", ").append(flagged).append(" with findings");
+        if (maxRuleCost > 0) {
+            sb.append(", over limit ").append(maxRuleCost).append(": ").append(getRulesOverLimit());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Findings and estimated cost of one rule
+     */
+    public static class RuleAnalysis {
+        private final String name;
+        private int patterns;
+        private int indexableConstraints;
+        private int unindexableConstraints;
+        private int evals;
+        private final List<String> lhsFunctionCalls = new ArrayList<>();
+        private int sharedConditions;
+        private int estimatedCost;
+        private final List<String> findings = new ArrayList<>();
+
+        public RuleAnalysis(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPatterns() {
+            return patterns;
+        }
+
+        public int getIndexableConstraints() {
+            return indexableConstraints;
+        }
+
+        public int getUnindexableConstraints() {
+            return unindexableConstraints;
+        }
+
+        public int getEvals() {
+            return evals;
+        }
+
+        /**
+         * DRL functions called from the conditions, once per call site
+         */
+        public List<String> getLhsFunctionCalls() {
+            return lhsFunctionCalls;
+        }
+
+        /**
+         * Constraints and evals that also occur in another rule, so their nodes can be shared
+         */
+        public int getSharedConditions() {
+            return sharedConditions;
+        }
+
+        public int getEstimatedCost() {
+            return estimatedCost;
+        }
+
+        public List<String> getFindings() {
+            return findings;
+        }
+
+        void addPattern() {
+            patterns++;
+        }
+
+        void addIndexableConstraint() {
+            indexableConstraints++;
+        }
+
+        void addUnindexableConstraint() {
+            unindexableConstraints++;
+        }
+
+        void addEval() {
+            evals++;
+        }
+
+        void addSharedCondition() {
+            sharedConditions++;
+        }
+
+        void addCost(int cost) {
+            estimatedCost += cost;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.google.gson.GsonBuilder;
+import org.drools.drl.ast.descr.BaseDescr;
+import org.drools.drl.ast.descr.ConditionalElementDescr;
+import org.drools.drl.ast.descr.EntryPointDescr;
+import org.drools.drl.ast.descr.EvalDescr;
+import org.drools.drl.ast.descr.ExprConstraintDescr;
+import org.drools.drl.ast.descr.FunctionDescr;
+import org.drools.drl.ast.descr.PackageDescr;
+import org.drools.drl.ast.descr.PatternDescr;
+import org.drools.drl.ast.descr.PatternSourceDescr;
+import org.drools.drl.ast.descr.RuleDescr;
+import org.drools.drl.parser.DrlParser;
+import org.drools.drl.parser.DroolsParserException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statically analyzes DRL for conditions that defeat Rete indexing and node sharing, and estimates
+ * a relative evaluation cost per rule (per fact inserted):
+ * - 1 per pattern, +2 for each further pattern joined to it
+ * - 1 per constraint the engine can index (field compared with a literal or a binding)
+ * - 4 per constraint it cannot (method calls such as get("..."), arithmetic, casts)
+ * - 10 per eval(...), which is tested for every fact combination
+ * - 8 per call of a DRL function from the conditions
+ * - 10 per pattern fed by from / accumulate / collect
+ * Constraints and evals are shareable when another rule has the same one on the same fact type.
+ *
+ * Usage as a build check: java ... RulePerformanceAnalyzer [--max-rule-cost N] file.drl...
+ * fails when a rule is over the limit.
+ */
+public final class RulePerformanceAnalyzer {
+
+    private static final int pattern_cost = 1;
+    private static final int join_cost = 2;
+    private static final int indexable_cost = 1;
+    private static final int unindexable_cost = 4;
+    private static final int eval_cost = 10;
+    private static final int function_call_cost = 8;
+    private static final int source_cost = 10;
+
+    // field op (literal | binding | field), optionally bound: the shapes Drools turns into indexed alpha/beta nodes
+    private static final Pattern indexable_constraint = Pattern.compile(
+            "(?:\\$[\\w$]+\\s*:\\s*)?[A-Za-z_][\\w$]*(?:\\.[A-Za-z_][\\w$]*)*\\s*(?:==|!=|<=|>=|<|>)\\s*"
+                    + "(?:\"(?:[^\"\\\\]|\\\\.)*\"|-?\\d+(?:\\.\\d+)?[lLdDfFbBiI]?|true|false|null|\\$[\\w$]+"
+                    + "|[A-Za-z_][\\w$]*(?:\\.[A-Za-z_][\\w$]*)*)");
+    private static final Pattern binding_only = Pattern.compile("\\$[\\w$]+\\s*:\\s*[A-Za-z_][\\w$]*(?:\\.[A-Za-z_][\\w$]*)*");
+
+    private RulePerformanceAnalyzer() {
+    }
+
+    /**
+     * Analyze the DRL sources of one rule set
+     * @param maxRuleCost highest acceptable estimated cost of a rule, 0 for no limit
+     */
+    public static RuleAnalysisReport analyze(String source, List<String> drlSources, int maxRuleCost) {
+        RuleAnalysisReport report = new RuleAnalysisReport(source, maxRuleCost);
+
+        List<RuleDescr> ruleDescrs = new ArrayList<>();
+        Set<String> functions = new LinkedHashSet<>();
+        for (String drl : drlSources) {
+            DrlParser parser = new DrlParser();
+            try {
+                PackageDescr packageDescr = parser.parse(false, drl);
+                if (parser.hasErrors()) {
+                    parser.getErrors().forEach(error -> report.getParseErrors().add(String.valueOf(error)));
+                }
+                if (packageDescr == null) {
+                    continue;
+                }
+                ruleDescrs.addAll(packageDescr.getRules());
+                for (FunctionDescr function : packageDescr.getFunctions()) {
+                    functions.add(function.getName());
+                }
+            } catch (DroolsParserException e) {
+                report.getParseErrors().add(e.getMessage());
+            }
+        }
+
+        Map<String, Pattern> functionCalls = new LinkedHashMap<>();
+        for (String function : functions) {
+            functionCalls.put(function, Pattern.compile("(?<![\\w$.])" + Pattern.quote(function) + "\\s*\\("));
+        }
+
+        // Collect the conditions of every rule first, so sharing can be counted across rules
+        Map<RuleDescr, List<Condition>> conditionsByRule = new LinkedHashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (RuleDescr ruleDescr : ruleDescrs) {
+            List<Condition> conditions = new ArrayList<>();
+            collect(ruleDescr.getLhs(), conditions);
+            conditionsByRule.put(ruleDescr, conditions);
+            for (Condition condition : conditions) {
+                if (condition.key != null) {
+                    occurrences.merge(condition.key, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<RuleDescr, List<Condition>> entry : conditionsByRule.entrySet()) {
+            report.getRules().add(analyzeRule(entry.getKey().getName(), entry.getValue(), functionCalls, occurrences));
+        }
+        return report;
+    }
+
+    private static RuleAnalysisReport.RuleAnalysis analyzeRule(String name, List<Condition> conditions,
+                                                               Map<String, Pattern> functionCalls,
+                                                               Map<String, Integer> occurrences) {
+        RuleAnalysisReport.RuleAnalysis rule = new RuleAnalysisReport.RuleAnalysis(name);
+        int shareable = 0;
+
+        for (Condition condition : conditions) {
+            switch (condition.kind) {
+                case PATTERN:
+                    rule.addCost(rule.getPatterns() == 0 ? pattern_cost : pattern_cost + join_cost);
+                    rule.addPattern();
+                    if (condition.text != null) {
+                        rule.addCost(source_cost);
+                        rule.getFindings().add("SOURCE: pattern fed by " + condition.text
+                                + " is re-evaluated instead of matched from working memory");
+                    }
+                    continue;
+                case EVAL:
+                    rule.addEval();
+                    rule.addCost(eval_cost);
+                    rule.getFindings().add("EVAL: eval(" + abbreviate(condition.text)
+                            + ") cannot be indexed and is tested for every fact combination");
+                    break;
+                default:
+                    String constraint = condition.text.trim();
+                    if (binding_only.matcher(constraint).matches()) {
+                        continue; // Binding a field costs nothing and constrains nothing
+                    }
+                    if (indexable_constraint.matcher(constraint).matches()) {
+                        rule.addIndexableConstraint();
+                        rule.addCost(indexable_cost);
+                    } else {
+                        rule.addUnindexableConstraint();
+                        rule.addCost(unindexable_cost);
+                        rule.getFindings().add("UNINDEXABLE: " + abbreviate(constraint)
+                                + " is not a field compared with a value, so it is tested for every fact of the type");
+                    }
+            }
+
+            for (Map.Entry<String, Pattern> function : functionCalls.entrySet()) {
+                Matcher call = function.getValue().matcher(condition.text);
+                while (call.find()) {
+                    rule.getLhsFunctionCalls().add(function.getKey());
+                    rule.addCost(function_call_cost);
+                    rule.getFindings().add("LHS_FUNCTION: " + function.getKey() + "() is called from the conditions");
+                }
+            }
+
+            shareable++;
+            if (occurrences.getOrDefault(condition.key, 0) > 1) {
+                rule.addSharedCondition();
+            }
+        }
+
+        if (shareable > 0 && rule.getSharedConditions() == 0) {
+            rule.getFindings().add("NO_NODE_SHARING: none of its constraints or evals occur in another rule");
+        }
+        return rule;
+    }
+
+    private static void collect(BaseDescr descr, List<Condition> conditions) {
+        if (descr instanceof PatternDescr) {
+            PatternDescr pattern = (PatternDescr) descr;
+            PatternSourceDescr source = pattern.getSource();
+            String sourceText = source == null || source instanceof EntryPointDescr
+                    ? null
+                    : source.getClass().getSimpleName().replace("Descr", "").toLowerCase();
+            conditions.add(new Condition(Kind.PATTERN, null, sourceText));
+            for (BaseDescr constraint : pattern.getDescrs()) {
+                if (constraint instanceof ExprConstraintDescr) {
+                    String expression = ((ExprConstraintDescr) constraint).getExpression();
+                    conditions.add(new Condition(Kind.CONSTRAINT, pattern.getObjectType() + "|" + normalize(expression),
+                            expression));
+                }
+            }
+        } else if (descr instanceof EvalDescr) {
+            String content = String.valueOf(((EvalDescr) descr).getContent());
+            conditions.add(new Condition(Kind.EVAL, "eval|" + normalize(content), content));
+        } else if (descr instanceof ConditionalElementDescr) {
+            for (BaseDescr child : ((ConditionalElementDescr) descr).getDescrs()) {
+                collect(child, conditions);
+            }
+        }
+    }
+
+    // Bindings do not affect sharing; whitespace does not either
+    private static String normalize(String expression) {
+        return expression.replaceFirst("^\\s*\\$[\\w$]+\\s*:", "").replaceAll("\\s+", "");
+    }
+
+    private static String abbreviate(String text) {
+        String oneLine = text.replaceAll("\\s+", " ").trim();
+        return oneLine.length() > 80 ? oneLine.substring(0, 77) + "..." : oneLine;
+    }
+
+    private enum Kind { PATTERN, CONSTRAINT, EVAL }
+
+    private static final class Condition {
+        private final Kind kind;
+        private final String key;
+        private final String text;
+
+        Condition(Kind kind, String key, String text) {
+            this.kind = kind;
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxRuleCost = 0;
+        List<String> sources = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--max-rule-cost".equals(args[i]) && i + 1 < args.length) {
+                maxRuleCost = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+                sources.add(new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8));
+            }
+        }
+
+        RuleAnalysisReport report = analyze(String.join(",", files), sources, maxRuleCost);
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+        System.out.println(report.summary());
+        if (!report.getParseErrors().isEmpty()) {
+            throw new IllegalStateException("Rules do not parse: " + report.getParseErrors());
+        }
+        if (report.isLimitExceeded()) {
+            // Thrown rather than System.exit, so exec:java fails the build without killing Maven
+            throw new IllegalStateException("Rules over the cost limit of " + maxRuleCost + ": " + report.getRulesOverLimit());
+        }
+    }
+}
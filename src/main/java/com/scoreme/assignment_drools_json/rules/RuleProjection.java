@@ -0,0 +1,159 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.scoreme.assignment_drools_json.utility.JsonFlattener;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The flattened paths a rule set can observe, collected statically from the DRL source of its rules and
+ * functions: every get("...") / hasProperty("...") with a literal path. Flattening uses it to skip
+ * subtrees no rule reads.
+ *
+ * The projection is full (everything is flattened) when a rule reads a path that cannot be known
+ * statically, e.g. get(path) or get("prefix_" + i), or reads the whole property map.
+ */
+public class RuleProjection implements JsonFlattener.PathFilter {
+
+    public static final RuleProjection FULL = new RuleProjection(null);
+
+    private static final Pattern path_read = Pattern.compile("(?<![\\w$])(?:get|hasProperty)\\s*\\(");
+    private static final Pattern whole_map_read =
+            Pattern.compile("(?<![\\w$])(?:getProperties|getPropertyKeys|properties|propertyKeys)(?![\\w$])");
+
+    private final Set<String> paths;
+    // Every path and each of its "_"-separated prefixes, so whole subtrees can be checked at once
+    private final Set<String> prefixes;
+
+    private RuleProjection(Set<String> paths) {
+        this.paths = paths;
+        this.prefixes = new HashSet<>();
+        if (paths != null) {
+            for (String path : paths) {
+                for (int i = path.indexOf('_'); i >= 0; i = path.indexOf('_', i + 1)) {
+                    prefixes.add(path.substring(0, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan the DRL sources of one rule set
+     */
+    public static RuleProjection scan(Collection<String> drlSources) {
+        Set<String> paths = new TreeSet<>();
+        for (String drl : drlSources) {
+            String code = stripComments(drl);
+            if (whole_map_read.matcher(blankStrings(code)).find()) {
+                return FULL;
+            }
+
+            Matcher matcher = path_read.matcher(code);
+            while (matcher.find()) {
+                if (isIndexArgument(code, matcher.end())) {
+                    continue; // list.get(0) and friends, not a path read
+                }
+                String path = literalArgument(code, matcher.end());
+                if (path == null) {
+                    return FULL;
+                }
+                paths.add(path);
+            }
+        }
+        return new RuleProjection(paths);
+    }
+
+    public boolean isFull() {
+        return paths == null;
+    }
+
+    /**
+     * Paths read by the rules; empty for a full projection
+     */
+    public Set<String> getPaths() {
+        return paths == null ? Collections.emptySet() : Collections.unmodifiableSet(paths);
+    }
+
+    @Override
+    public boolean includes(String path) {
+        return paths == null || paths.contains(path);
+    }
+
+    @Override
+    public boolean includesBelow(String path) {
+        return paths == null || prefixes.contains(path);
+    }
+
+    // The string literal that is the whole argument of the call whose "(" ends at start, else null
+    private static String literalArgument(String code, int start) {
+        int i = skipWhitespace(code, start);
+        if (i >= code.length() || code.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder literal = new StringBuilder();
+        for (i++; i < code.length() && code.charAt(i) != '"'; i++) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                // Escapes make the path too unusual to trust a static read of it
+                return null;
+            }
+            literal.append(c);
+        }
+        i = skipWhitespace(code, i + 1);
+        return i < code.length() && code.charAt(i) == ')' ? literal.toString() : null;
+    }
+
+    private static boolean isIndexArgument(String code, int start) {
+        int i = skipWhitespace(code, start);
+        int digits = i;
+        while (i < code.length() && Character.isDigit(code.charAt(i))) {
+            i++;
+        }
+        i = skipWhitespace(code, i);
+        return i > digits && i < code.length() && code.charAt(i) == ')';
+    }
+
+    private static int skipWhitespace(String code, int i) {
+        while (i < code.length() && Character.isWhitespace(code.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String stripComments(String drl) {
+        StringBuilder code = new StringBuilder(drl.length());
+        int i = 0;
+        while (i < drl.length()) {
+            char c = drl.charAt(i);
+            if (c == '"') {
+                // Copy string literals as they are, so "//" inside them is not taken for a comment
+                int end = i + 1;
+                while (end < drl.length() && drl.charAt(end) != '"' && drl.charAt(end) != '\n') {
+                    end += drl.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, drl.length());
+                code.append(drl, i, end);
+                i = end;
+            } else if (drl.startsWith("//", i)) {
+                int end = drl.indexOf('\n', i);
+                i = end < 0 ? drl.length() : end;
+            } else if (drl.startsWith("/*", i)) {
+                int end = drl.indexOf("*/", i + 2);
+                i = end < 0 ? drl.length() : end + 2;
+            } else {
+                code.append(c);
+                i++;
+            }
+        }
+        return code.toString();
+    }
+
+    private static String blankStrings(String code) {
+        return code.replaceAll("\"(?:[^\"\\\\\\n]|\\\\.)*\"", "\"\"");
+    }
+}
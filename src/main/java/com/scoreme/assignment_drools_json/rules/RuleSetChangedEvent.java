@@ -0,0 +1,26 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after a new rule set version has been compiled and activated
+ */
+public class RuleSetChangedEvent extends ApplicationEvent {
+
+    private final RuleSetVersion previousVersion;
+    private final RuleSetVersion newVersion;
+
+    public RuleSetChangedEvent(Object source, RuleSetVersion previousVersion, RuleSetVersion newVersion) {
+        super(source);
+        this.previousVersion = previousVersion;
+        this.newVersion = newVersion;
+    }
+
+    public RuleSetVersion getPreviousVersion() {
+        return previousVersion;
+    }
+
+    public RuleSetVersion getNewVersion() {
+        return newVersion;
+    }
+}
@@ -0,0 +1,403 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.scoreme.assignment_drools_json.model.Schema;
+import com.scoreme.assignment_drools_json.service.SchemaService;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.kie.internal.builder.IncrementalResults;
+import org.kie.internal.builder.InternalKieBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Owns the active rule set version.
+ * Starts from the classpath KieBase built by {@link DroolsConfig}; when drools.rules.dir is set, the
+ * *.drl files in that directory are compiled into a new version and the directory is polled for changes.
+ * Changed files are recompiled incrementally on a background thread, and the new version is swapped
+ * in atomically once it compiles without errors.
+ */
+@Component
+public class RuleSetManager {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleSetManager.class);
+
+    private static final KieServices kieServices = KieServices.Factory.get();
+    private static final String kfs_resource_root = "src/main/resources/";
+    private static final String kfs_java_root = "src/main/java/";
+    private static final ReleaseId rules_dir_release_id =
+            kieServices.newReleaseId("com.scoreme", "assignment-drools-json-rules-dir", "1.0.0");
+
+    @Autowired
+    private KieBase classpathKieBase;
+
+    @Autowired
+    private RuleStartupReport startupReport;
+
+    @Autowired
+    private RuleProjection classpathProjection;
+
+    @Autowired
+    private RuleAnalysisReport classpathAnalysis;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SchemaService schemaService;
+
+    @Value("${drools.rules.dir:}")
+    private String rulesDir;
+
+    @Value("${drools.rules.poll-interval-ms:2000}")
+    private long pollIntervalMillis;
+
+    // Rebuild only the changed files; false forces a full rebuild on every change
+    @Value("${drools.rules.incremental:true}")
+    private boolean incremental;
+
+    @Value("${drools.analysis.max-rule-cost:0}")
+    private int maxRuleCost;
+
+    @Value("${drools.analysis.fail-on-limit:false}")
+    private boolean failOnLimit;
+
+    // Directory of sample responses named <apiType>.json; each gets a typed fact class compiled with the rules directory
+    @Value("${drools.typed-facts.samples-dir:}")
+    private String typedFactSamplesDir;
+
+    private final AtomicReference<RuleSetVersion> current = new AtomicReference<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private ScheduledExecutorService watcher;
+
+    // Build state of the rules directory, guarded by this
+    private Path rulesPath;
+    private KieFileSystem kieFileSystem;
+    private KieBuilder kieBuilder;
+    private KieContainer buildContainer;
+    private final Map<String, FileState> fileStates = new HashMap<>();
+    private boolean needsFullBuild = true;
+    private final Map<String, Schema> typedFactSchemas = new LinkedHashMap<>();
+    private final Map<String, String> typedFactSources = new LinkedHashMap<>();
+    private TypedFacts typedFacts = TypedFacts.NONE;
+
+    @PostConstruct
+    public void init() {
+        current.set(new RuleSetVersion(versionCounter.incrementAndGet(), hashClasspathRules(),
+                "classpath:" + startupReport.getActiveMode(), classpathKieBase, 0, classpathProjection, TypedFacts.NONE,
+                classpathAnalysis));
+
+        if (rulesDir == null || rulesDir.isBlank()) {
+            if (typedFactSamplesDir != null && !typedFactSamplesDir.isBlank()) {
+                log.warn("drools.typed-facts.samples-dir is ignored: typed facts are only built with drools.rules.dir");
+            }
+            return;
+        }
+
+        rulesPath = Paths.get(rulesDir).toAbsolutePath();
+        generateTypedFactSources();
+        // Compile the directory once before serving traffic, then keep watching it
+        reload();
+
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rule-set-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    /**
+     * The version new requests should run on
+     */
+    public RuleSetVersion current() {
+        return current.get();
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to reload rules from {}", rulesPath, e);
+        }
+    }
+
+    /**
+     * Scan the rules directory and, if any DRL file was added, changed or removed, compile and activate a new version.
+     * @return true if a new version was activated
+     */
+    public synchronized boolean reload() {
+        if (rulesPath == null) {
+            return false;
+        }
+
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        Map<String, byte[]> changedContent = new HashMap<>();
+        scanForChanges(changed, removed, changedContent);
+
+        if (changed.isEmpty() && removed.isEmpty() && !needsFullBuild) {
+            return false;
+        }
+        if (fileStates.isEmpty()) {
+            log.warn("No .drl files found in {}, keeping rule version {}", rulesPath, current().getId());
+            return false;
+        }
+
+        List<String> sources = readDirectorySources();
+        RuleAnalysisReport analysis = RulePerformanceAnalyzer.analyze("dir:" + rulesPath,
+                sources != null ? sources : List.of(), maxRuleCost);
+        try {
+            DroolsConfig.checkAnalysis(analysis, failOnLimit);
+        } catch (IllegalStateException e) {
+            // The rejected files were never written to the build, so the next accepted change rebuilds everything
+            needsFullBuild = true;
+            log.error("Rule set in {} rejected, keeping version {}: {}", rulesPath, current().getId(), e.getMessage());
+            return false;
+        }
+
+        long start = System.nanoTime();
+        List<Message> errors;
+        if (needsFullBuild || !incremental) {
+            errors = fullBuild();
+        } else {
+            errors = incrementalBuild(changed, removed, changedContent);
+        }
+
+        if (!errors.isEmpty()) {
+            // Start from a clean build next time instead of patching a module that failed to compile
+            needsFullBuild = true;
+            log.error("Rule set in {} has errors, keeping version {}: {}", rulesPath, current().getId(), errors);
+            return false;
+        }
+        needsFullBuild = false;
+
+        // Every version gets its own KieBase, so sessions of older versions are never touched by a rebuild
+        KieBase kieBase = buildContainer.newKieBase(kieServices.newKieBaseConfiguration());
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+
+        RuleSetVersion version = new RuleSetVersion(versionCounter.incrementAndGet(), directoryContentHash(),
+                "dir:" + rulesPath, kieBase, buildMillis,
+                sources != null ? RuleProjection.scan(sources) : RuleProjection.FULL, typedFacts, analysis);
+        RuleSetVersion previous = current.getAndSet(version);
+        log.info("Activated rule version {} ({} changed, {} removed, {} ms{})", version.getId(),
+                changed.size(), removed.size(), buildMillis, incremental ? ", incremental" : "");
+
+        eventPublisher.publishEvent(new RuleSetChangedEvent(this, previous, version));
+        return true;
+    }
+
+    /**
+     * Compare the directory with the last scan. Files are only read when their size or timestamp moved.
+     */
+    private void scanForChanges(List<String> changed, List<String> removed, Map<String, byte[]> changedContent) {
+        Map<String, Path> present = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(rulesPath)) {
+            for (Path path : paths.filter(p -> p.toString().endsWith(".drl") && Files.isRegularFile(p))
+                    .collect(Collectors.toList())) {
+                present.put(rulesPath.relativize(path).toString().replace('\\', '/'), path);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot scan rules directory " + rulesPath, e);
+        }
+
+        for (Map.Entry<String, Path> entry : present.entrySet()) {
+            String relativePath = entry.getKey();
+            try {
+                long size = Files.size(entry.getValue());
+                long modified = Files.getLastModifiedTime(entry.getValue()).toMillis();
+                FileState known = fileStates.get(relativePath);
+                if (known != null && known.size == size && known.modified == modified) {
+                    continue;
+                }
+
+                byte[] content = Files.readAllBytes(entry.getValue());
+                String hash = sha256(content);
+                if (known == null || !known.hash.equals(hash)) {
+                    changed.add(relativePath);
+                    changedContent.put(relativePath, content);
+                }
+                fileStates.put(relativePath, new FileState(size, modified, hash));
+            } catch (IOException e) {
+                log.warn("Cannot read rule file {}, will retry", entry.getValue(), e);
+            }
+        }
+
+        for (String relativePath : new ArrayList<>(fileStates.keySet())) {
+            if (!present.containsKey(relativePath)) {
+                removed.add(relativePath);
+                fileStates.remove(relativePath);
+            }
+        }
+    }
+
+    private List<Message> fullBuild() {
+        kieFileSystem = kieServices.newKieFileSystem();
+        kieFileSystem.generateAndWritePomXML(rules_dir_release_id);
+        for (String relativePath : fileStates.keySet()) {
+            try {
+                kieFileSystem.write(kfs_resource_root + relativePath, Files.readAllBytes(rulesPath.resolve(relativePath)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read rule file " + relativePath, e);
+            }
+        }
+        // Fact classes are compiled with the rules, so typed rules in the directory can import them
+        for (Map.Entry<String, String> source : typedFactSources.entrySet()) {
+            kieFileSystem.write(kfs_java_root + source.getKey(), source.getValue());
+        }
+
+        kieBuilder = kieServices.newKieBuilder(kieFileSystem);
+        kieBuilder.buildAll();
+        List<Message> errors = kieBuilder.getResults().getMessages(Message.Level.ERROR);
+        if (errors.isEmpty()) {
+            if (buildContainer != null) {
+                buildContainer.dispose();
+            }
+            buildContainer = kieServices.newKieContainer(rules_dir_release_id);
+            // Materialize the container's own KieBase so the compiled packages count as in use and every
+            // per-version KieBase created afterwards gets its own copy of them
+            buildContainer.getKieBase();
+            typedFacts = typedFactSchemas.isEmpty()
+                    ? TypedFacts.NONE
+                    : TypedFacts.load(typedFactSchemas, buildContainer.getClassLoader());
+        }
+        return errors;
+    }
+
+    private List<Message> incrementalBuild(List<String> changed, List<String> removed, Map<String, byte[]> changedContent) {
+        List<String> fileSet = new ArrayList<>();
+        for (String relativePath : changed) {
+            kieFileSystem.write(kfs_resource_root + relativePath, changedContent.get(relativePath));
+            fileSet.add(kfs_resource_root + relativePath);
+        }
+        for (String relativePath : removed) {
+            kieFileSystem.delete(kfs_resource_root + relativePath);
+            fileSet.add(kfs_resource_root + relativePath);
+        }
+
+        IncrementalResults results = ((InternalKieBuilder) kieBuilder)
+                .createFileSet(fileSet.toArray(new String[0]))
+                .build();
+        return results.getAddedMessages().stream()
+                .filter(message -> message.getLevel() == Message.Level.ERROR)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Infer the schema of every sample response and generate its fact class source. Samples are read once;
+     * a changed sample takes effect on restart.
+     */
+    private void generateTypedFactSources() {
+        if (typedFactSamplesDir == null || typedFactSamplesDir.isBlank()) {
+            return;
+        }
+
+        Path samplesPath = Paths.get(typedFactSamplesDir).toAbsolutePath();
+        try (Stream<Path> paths = Files.list(samplesPath)) {
+            for (Path sample : paths.filter(p -> p.toString().endsWith(".json")).sorted().collect(Collectors.toList())) {
+                String fileName = sample.getFileName().toString();
+                String apiType = fileName.substring(0, fileName.length() - ".json".length());
+                try {
+                    Schema schema = schemaService.inferSchemaFromJson(Files.readString(sample));
+                    typedFactSources.putAll(TypedFactGenerator.generateSources(apiType, schema));
+                    typedFactSchemas.put(apiType, schema);
+                } catch (RuntimeException e) {
+                    log.warn("Cannot generate a typed fact class from {}, skipping it", sample, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read typed fact samples from {}", samplesPath, e);
+        }
+        log.info("Typed fact classes for API types {}", typedFactSchemas.keySet());
+    }
+
+    // Sources of the new version, for its projection (the paths it reads) and its analysis; null if a file is unreadable
+    private List<String> readDirectorySources() {
+        List<String> sources = new ArrayList<>();
+        for (String relativePath : fileStates.keySet()) {
+            try {
+                sources.add(Files.readString(rulesPath.resolve(relativePath)));
+            } catch (IOException e) {
+                log.warn("Cannot read rule file {} to collect rule paths, flattening everything", relativePath, e);
+                return null;
+            }
+        }
+        return sources;
+    }
+
+    private String directoryContentHash() {
+        StringBuilder combined = new StringBuilder();
+        for (Map.Entry<String, FileState> entry : new TreeMap<>(fileStates).entrySet()) {
+            combined.append(entry.getKey()).append('=').append(entry.getValue().hash).append('\n');
+        }
+        return sha256(combined.toString().getBytes()).substring(0, 8);
+    }
+
+    private String hashClasspathRules() {
+        try (InputStream in = new ClassPathResource("rules/rules.drl").getInputStream()) {
+            return sha256(in.readAllBytes()).substring(0, 8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class FileState {
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        FileState(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import org.kie.api.KieBase;
+
+import java.util.Date;
+
+/**
+ * An immutable, compiled version of the rule set.
+ * Requests pick up one version when they start and finish on it even if a newer one is activated meanwhile.
+ */
+public class RuleSetVersion {
+
+    private final long number;
+    private final String id;
+    private final String source;
+    private final KieBase kieBase;
+    private final Date activatedAt;
+    private final long buildMillis;
+    private final RuleProjection projection;
+    private final TypedFacts typedFacts;
+    private final RuleAnalysisReport analysis;
+
+    public RuleSetVersion(long number, String contentHash, String source, KieBase kieBase, long buildMillis,
+                          RuleProjection projection, TypedFacts typedFacts, RuleAnalysisReport analysis) {
+        this.number = number;
+        this.id = "v" + number + (contentHash == null ? "" : "-" + contentHash);
+        this.source = source;
+        this.kieBase = kieBase;
+        this.buildMillis = buildMillis;
+        this.projection = projection;
+        this.typedFacts = typedFacts;
+        this.analysis = analysis;
+        this.activatedAt = new Date();
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Identifier reported with each response, e.g. "v3-5f2a9c1e"
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public KieBase getKieBase() {
+        return kieBase;
+    }
+
+    public Date getActivatedAt() {
+        return activatedAt;
+    }
+
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * Flattened paths the rules of this version can read
+     */
+    public RuleProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Typed fact classes compiled into this version's KieBase, inserted next to the DynamicObject of their API type
+     */
+    public TypedFacts getTypedFacts() {
+        return typedFacts;
+    }
+
+    /**
+     * Static performance analysis of this version's rules
+     */
+    public RuleAnalysisReport getAnalysis() {
+        return analysis;
+    }
+}
@@ -0,0 +1,60 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timings of how the rule base was loaded at startup.
+ * Holds the mode that is actually in use and, when comparison is enabled,
+ * the time the alternative loading mode would have taken.
+ */
+public class RuleStartupReport {
+
+    public static final String EXECUTABLE_MODEL = "executable-model";
+    public static final String DRL = "drl";
+
+    private String activeMode;
+    private boolean executableModelAvailable;
+    private final Map<String, Long> loadTimesMillis = new LinkedHashMap<>();
+
+    public synchronized void recordLoadTime(String mode, long millis) {
+        loadTimesMillis.put(mode, millis);
+    }
+
+    public synchronized Map<String, Long> getLoadTimesMillis() {
+        return new LinkedHashMap<>(loadTimesMillis);
+    }
+
+    public String getActiveMode() {
+        return activeMode;
+    }
+
+    public void setActiveMode(String activeMode) {
+        this.activeMode = activeMode;
+    }
+
+    public boolean isExecutableModelAvailable() {
+        return executableModelAvailable;
+    }
+
+    public void setExecutableModelAvailable(boolean executableModelAvailable) {
+        this.executableModelAvailable = executableModelAvailable;
+    }
+
+    /**
+     * One line summary for the startup log
+     */
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder("Rules loaded using ").append(activeMode)
+                .append(" (executable model available: ").append(executableModelAvailable).append(")");
+        for (Map.Entry<String, Long> entry : loadTimesMillis.entrySet()) {
+            sb.append(", ").append(entry.getKey()).append("=").append(entry.getValue()).append(" ms");
+        }
+        Long model = loadTimesMillis.get(EXECUTABLE_MODEL);
+        Long drl = loadTimesMillis.get(DRL);
+        if (model != null && drl != null && model > 0) {
+            sb.append(String.format(", speedup %.1fx", (double) drl / model));
+        }
+        return sb.toString();
+    }
+}
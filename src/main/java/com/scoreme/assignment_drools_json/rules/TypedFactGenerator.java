@@ -0,0 +1,179 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.Schema;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JPackage;
+import org.jsonschema2pojo.DefaultGenerationConfig;
+import org.jsonschema2pojo.GenerationConfig;
+import org.jsonschema2pojo.NoopAnnotator;
+import org.jsonschema2pojo.SchemaGenerator;
+import org.jsonschema2pojo.SchemaMapper;
+import org.jsonschema2pojo.SchemaStore;
+import org.jsonschema2pojo.rules.RuleFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates the Java source of a typed fact class from an inferred schema with jsonschema2pojo.
+ * Each flattened key becomes one property ("customerDetails_0_customerName" becomes
+ * customerDetails0CustomerName) typed after the schema's data type, plus an apiType property, so rules
+ * can match on plain field constraints instead of DynamicObject.get(...) calls.
+ */
+public final class TypedFactGenerator {
+
+    public static final String FACTS_PACKAGE = "com.scoreme.assignment_drools_json.facts";
+    public static final String API_TYPE_PROPERTY = "apiType";
+
+    private static final Gson gson = new Gson();
+
+    // Plain beans: no annotations, no catch-all map, identity equality like DynamicObject
+    private static final GenerationConfig generation_config = new DefaultGenerationConfig() {
+        @Override
+        public boolean isIncludeAdditionalProperties() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeHashcodeAndEquals() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeGeneratedAnnotation() {
+            return false;
+        }
+    };
+
+    private TypedFactGenerator() {
+    }
+
+    /**
+     * Fact class name of an API type, e.g. "customerDetails" to "CustomerDetailsFact"
+     */
+    public static String className(String apiType) {
+        String name = propertyName(apiType);
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Fact";
+    }
+
+    /**
+     * Java property name of a flattened key: separators and other non-identifier characters are dropped
+     * and the next letter is capitalized
+     */
+    public static String propertyName(String keyName) {
+        StringBuilder name = new StringBuilder(keyName.length());
+        boolean capitalizeNext = false;
+        for (int i = 0; i < keyName.length(); i++) {
+            char c = keyName.charAt(i);
+            if (!Character.isJavaIdentifierPart(c) || c == '_' || c == '$') {
+                capitalizeNext = name.length() > 0;
+            } else if (name.length() == 0 && !Character.isJavaIdentifierStart(c)) {
+                name.append('_').append(c);
+            } else {
+                name.append(capitalizeNext ? Character.toUpperCase(c) : c);
+                capitalizeNext = false;
+            }
+        }
+        return name.length() == 0 ? "_" : name.toString();
+    }
+
+    /**
+     * JSON Schema with one property per flattened key of the inferred schema.
+     * Dates and numeric strings stay strings, as they are in the document.
+     */
+    public static String toJsonSchema(Schema schema) {
+        JsonObject properties = new JsonObject();
+        for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
+            for (Schema.DataObject dataObject : dataPoint.getDataObjects()) {
+                String name = propertyName(dataObject.getKeyName());
+                if (!properties.has(name) && !API_TYPE_PROPERTY.equals(name)) {
+                    properties.add(name, propertySchema(dataObject.getDataType()));
+                }
+            }
+        }
+        properties.add(API_TYPE_PROPERTY, propertySchema("String"));
+
+        JsonObject jsonSchema = new JsonObject();
+        jsonSchema.addProperty("type", "object");
+        jsonSchema.add("properties", properties);
+        return gson.toJson(jsonSchema);
+    }
+
+    /**
+     * Java sources of the fact class for one API type, keyed by file path below the source root
+     */
+    public static Map<String, String> generateSources(String apiType, Schema schema) {
+        JCodeModel codeModel = new JCodeModel();
+        SchemaMapper mapper = new SchemaMapper(
+                new RuleFactory(generation_config, new NoopAnnotator(), new SchemaStore()), new SchemaGenerator());
+        try {
+            mapper.generate(codeModel, className(apiType), FACTS_PACKAGE, toJsonSchema(schema));
+
+            Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+            codeModel.build(new CodeWriter() {
+                @Override
+                public OutputStream openBinary(JPackage pkg, String fileName) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    files.put(pkg.name().replace('.', '/') + "/" + fileName, out);
+                    return out;
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+
+            Map<String, String> sources = new LinkedHashMap<>();
+            files.forEach((path, content) -> sources.put(path, content.toString(StandardCharsets.UTF_8)));
+            return sources;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot generate fact class for API type " + apiType, e);
+        }
+    }
+
+    private static JsonObject propertySchema(String dataType) {
+        JsonObject property = new JsonObject();
+        if (dataType.endsWith("[]")) {
+            String elementType = dataType.substring(0, dataType.length() - 2);
+            if ("Object".equals(elementType) || "Array".equals(elementType)) {
+                // Arrays of objects hold each object's primitive properties, as in DynamicObject
+                property.addProperty("existingJavaType", "java.util.List<java.lang.Object>");
+            } else {
+                property.addProperty("type", "array");
+                property.add("items", propertySchema(elementType));
+            }
+            return property;
+        }
+
+        switch (dataType) {
+            case "Integer":
+                property.addProperty("type", "integer");
+                break;
+            case "Long":
+                property.addProperty("type", "integer");
+                property.addProperty("existingJavaType", "java.lang.Long");
+                break;
+            case "Double":
+                property.addProperty("type", "number");
+                break;
+            case "Boolean":
+                property.addProperty("type", "boolean");
+                break;
+            case "String":
+            case "Date":
+            case "Number":
+                property.addProperty("type", "string");
+                break;
+            default:
+                property.addProperty("existingJavaType", "java.lang.Object");
+        }
+        return property;
+    }
+}
@@ -0,0 +1,201 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.model.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed fact classes of one rule set version, by API type, and the binding of a DynamicObject to them.
+ *
+ * Typed facts are not reactive. The fact is a snapshot of the response taken when it is inserted, before
+ * the rules fire, and is never updated: a consequence that sets a value on the DynamicObject does not change
+ * the fact, so typed-fact patterns do not re-match on other rules' outputs, and modify() on a typed fact does
+ * not reach the response. Rules write through the DynamicObject of the same API type, and rules that must see
+ * values set by other rules match the DynamicObject.
+ *
+ * Typed facts are opt-in and only exist for rule sets loaded from drools.rules.dir with
+ * drools.typed-facts.samples-dir set. The classpath rule set, including the shipped rules.drl, is built without
+ * them and matches DynamicObject only; benchmarks/TypedFactBenchmark compares the two on the same rule.
+ */
+public final class TypedFacts {
+
+    private static final Logger log = LoggerFactory.getLogger(TypedFacts.class);
+
+    public static final TypedFacts NONE = new TypedFacts(Collections.emptyMap());
+
+    private final Map<String, Binder> binders;
+
+    private TypedFacts(Map<String, Binder> binders) {
+        this.binders = binders;
+    }
+
+    /**
+     * Resolve the generated classes of each API type from the class loader of the compiled rules
+     */
+    public static TypedFacts load(Map<String, Schema> schemasByApiType, ClassLoader classLoader) {
+        Map<String, Binder> binders = new LinkedHashMap<>();
+        for (Map.Entry<String, Schema> entry : schemasByApiType.entrySet()) {
+            String className = TypedFactGenerator.FACTS_PACKAGE + "." + TypedFactGenerator.className(entry.getKey());
+            try {
+                binders.put(entry.getKey(), new Binder(classLoader.loadClass(className), entry.getValue()));
+            } catch (ReflectiveOperationException e) {
+                log.warn("Typed fact class {} is not usable, API type {} is matched as DynamicObject only",
+                        className, entry.getKey(), e);
+            }
+        }
+        return new TypedFacts(Collections.unmodifiableMap(binders));
+    }
+
+    public boolean isEmpty() {
+        return binders.isEmpty();
+    }
+
+    /**
+     * API type to fact class name
+     */
+    public Map<String, String> getClassNames() {
+        Map<String, String> classNames = new LinkedHashMap<>();
+        binders.forEach((apiType, binder) -> classNames.put(apiType, binder.factClass.getName()));
+        return classNames;
+    }
+
+    /**
+     * A typed fact holding the object's current values, or null if its API type has no fact class
+     */
+    public Object bind(DynamicObject dynamicObject) {
+        if (binders.isEmpty()) {
+            return null;
+        }
+        String apiType = dynamicObject.getApiType();
+        Binder binder = apiType != null ? binders.get(apiType) : null;
+        return binder != null ? binder.bind(dynamicObject, apiType) : null;
+    }
+
+    /**
+     * Setters of one fact class, resolved once
+     */
+    private static final class Binder {
+        private final Class<?> factClass;
+        private final MethodHandle constructor;
+        private final MethodHandle apiTypeSetter;
+        private final List<Property> properties = new ArrayList<>();
+
+        Binder(Class<?> factClass, Schema schema) throws ReflectiveOperationException {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            this.factClass = factClass;
+            this.constructor = lookup.findConstructor(factClass, MethodType.methodType(void.class));
+            this.apiTypeSetter = setter(lookup, factClass, TypedFactGenerator.API_TYPE_PROPERTY);
+
+            Map<String, Class<?>> propertyTypes = new HashMap<>();
+            for (java.lang.reflect.Method method : factClass.getMethods()) {
+                if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                    propertyTypes.put(method.getName(), method.getParameterTypes()[0]);
+                }
+            }
+            for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
+                for (Schema.DataObject dataObject : dataPoint.getDataObjects()) {
+                    String setterName = setterName(TypedFactGenerator.propertyName(dataObject.getKeyName()));
+                    Class<?> type = propertyTypes.remove(setterName);
+                    if (type != null) {
+                        properties.add(new Property(dataObject.getKeyName(), type,
+                                lookup.findVirtual(factClass, setterName, MethodType.methodType(void.class, type))));
+                    }
+                }
+            }
+        }
+
+        Object bind(DynamicObject dynamicObject, String apiType) {
+            try {
+                Object fact = constructor.invoke();
+                for (Property property : properties) {
+                    Object value = coerce(dynamicObject.get(property.keyName), property.type);
+                    if (value != null) {
+                        property.setter.invoke(fact, value);
+                    }
+                }
+                if (apiTypeSetter != null) {
+                    apiTypeSetter.invoke(fact, apiType);
+                }
+                return fact;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot bind " + apiType + " response to " + factClass.getName(), e);
+            }
+        }
+
+        private static MethodHandle setter(MethodHandles.Lookup lookup, Class<?> factClass, String property) {
+            try {
+                return lookup.findVirtual(factClass, setterName(property), MethodType.methodType(void.class, String.class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        private static String setterName(String property) {
+            return "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        }
+    }
+
+    // Values that do not fit the inferred type (the shape changed since the sample) are left unset.
+    // A number is only set when the property's type holds it exactly: 3.7 or 3000000000 leave an Integer unset.
+    static Object coerce(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value) && !(value instanceof Number)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            if (type == Object.class) {
+                return value;
+            }
+            Number number = (Number) value;
+            BigDecimal exact = exact(number);
+            try {
+                if (type == Integer.class) {
+                    return exact != null ? exact.intValueExact() : null;
+                } else if (type == Long.class) {
+                    return exact != null ? exact.longValueExact() : null;
+                } else if (type == Double.class) {
+                    double doubleValue = number.doubleValue();
+                    // NaN and infinities have no exact form and are doubles already
+                    return exact == null || exact.compareTo(BigDecimal.valueOf(doubleValue)) == 0 ? doubleValue : null;
+                }
+            } catch (ArithmeticException e) {
+                return null;
+            }
+        }
+        if (type == String.class) {
+            return value.toString();
+        }
+        return type.isInstance(value) ? value : null;
+    }
+
+    private static BigDecimal exact(Number number) {
+        try {
+            return new BigDecimal(number.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Property {
+        private final String keyName;
+        private final Class<?> type;
+        private final MethodHandle setter;
+
+        Property(String keyName, Class<?> type, MethodHandle setter) {
+            this.keyName = keyName;
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.scoreme.assignment_drools_json.service;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Service to handle multiple API responses
@@ -15,12 +38,36 @@ import java.util.Map;
 @Service
 public class ApiResponseHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(ApiResponseHandler.class);
+
+    private static final Gson gson = new Gson();
+
     @Autowired
     private DynamicJsonService jsonService;
 
     @Autowired
     private DroolsService droolsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // platform - fixed pool of api.fanout.threads; virtual - a virtual thread per API (Java 21+, else platform)
+    @Value("${api.fanout.executor:platform}")
+    private String fanoutExecutor;
+
+    @Value("${api.fanout.threads:16}")
+    private int fanoutThreads;
+
+    // Deadline for all APIs of one /process-multiple request together
+    @Value("${api.fanout.timeout-ms:10000}")
+    private long fanoutTimeoutMillis;
+
+    // per-api - a separate session per API response; single-session - all responses of a request in one session
+    @Value("${api.multiple.mode:per-api}")
+    private String multipleMode;
+
+    private ExecutorService executor;
+
     // Map to store metadata about different API types
     private final Map<String, ApiMetadata> apiMetadataMap = new HashMap<>();
 
@@ -32,6 +79,34 @@ public class ApiResponseHandler {
         // Add more API types as needed
     }
 
+    @PostConstruct
+    public void init() {
+        executor = "virtual".equalsIgnoreCase(fanoutExecutor) ? newVirtualThreadExecutor() : null;
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(fanoutThreads, r -> {
+                Thread thread = new Thread(r, "api-fanout-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Looked up reflectively so the application still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads need Java 21+, running API fan-out on platform threads");
+            return null;
+        }
+    }
+
     /**
      * Register metadata for a specific API type
      */
@@ -46,20 +121,34 @@ public class ApiResponseHandler {
      * @return Processed JSON response after rule application
      */
     public String processApiResponse(String jsonResponse, String apiType) {
-        try {
-            // Get API metadata if available, or use default processing
-            ApiMetadata metadata = apiMetadataMap.getOrDefault(apiType,
-                    new ApiMetadata(apiType, apiType));
+        return gson.toJson(evaluate(jsonResponse, apiType).getOriginalJson());
+    }
 
-            // Parse JSON
-            JsonObject jsonObject = new Gson().fromJson(jsonResponse, JsonObject.class);
+    /**
+     * Run the rules for one API response and apply the changes back to its JSON
+     * @return The processed object; its original JSON holds the modified response
+     */
+    public DynamicObject evaluate(String jsonResponse, String apiType) {
+        return evaluate(() -> jsonService.convertJsonToDynamicObject(jsonResponse), apiType);
+    }
+
+    /**
+     * Run the rules for one API response given as UTF-8 bytes, as {@link #evaluate(String, String)}
+     */
+    public DynamicObject evaluate(byte[] jsonResponse, String apiType) {
+        return evaluate(() -> jsonService.convertJsonToDynamicObject(jsonResponse), apiType);
+    }
 
-            // Create dynamic object with API type info
-            DynamicObject dynamicObject = jsonService.convertJsonToDynamicObject(jsonResponse);
+    /**
+     * Run the rules for one API response in any of the body formats
+     */
+    public DynamicObject evaluate(byte[] response, BodyFormat format, String apiType) {
+        return evaluate(() -> jsonService.convertJsonToDynamicObject(response, format), apiType);
+    }
 
-            // Add API type information for rule context
-            dynamicObject.set("_apiType", apiType);
-            dynamicObject.set("_objectPrefix", metadata.getObjectPrefix());
+    private DynamicObject evaluate(Supplier<DynamicObject> parse, String apiType) {
+        try {
+            DynamicObject dynamicObject = toDynamicObject(parse, apiType);
 
             // Apply rules with context of API type
             droolsService.processRules(dynamicObject);
@@ -67,31 +156,185 @@ public class ApiResponseHandler {
             // Apply changes back to original structure
             dynamicObject.applyChangesToOriginal();
 
-            // Return modified JSON
-            return new Gson().toJson(dynamicObject.getOriginalJson());
+            return dynamicObject;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Error processing API response: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Build the rule fact for one API response, tagged with its API type
+     */
+    private DynamicObject toDynamicObject(Supplier<DynamicObject> parse, String apiType) {
+        // Get API metadata if available, or use default processing
+        ApiMetadata metadata = apiMetadataMap.getOrDefault(apiType,
+                new ApiMetadata(apiType, apiType));
+
+        // Create dynamic object with API type info
+        DynamicObject dynamicObject = parse.get();
+
+        // Add API type information for rule context
+        dynamicObject.put("_apiType", apiType);
+        dynamicObject.put("_objectPrefix", metadata.getObjectPrefix());
+        return dynamicObject;
+    }
+
     /**
      * Process multiple API responses together
      * @param apiResponses Map of API type to response JSON
      * @return Map of API type to processed response JSON
      */
     public Map<String, String> processMultipleResponses(Map<String, String> apiResponses) {
-        Map<String, String> processedResponses = new HashMap<>();
+        Map<String, String> processedResponses = new LinkedHashMap<>();
+
+        for (Map.Entry<String, DynamicObject> entry : evaluateMultiple(apiResponses).entrySet()) {
+            processedResponses.put(entry.getKey(), gson.toJson(entry.getValue().getOriginalJson()));
+        }
+
+        return processedResponses;
+    }
+
+    /**
+     * Run the rules for several API responses concurrently, within one overall deadline
+     * @param apiResponses Map of API type to response JSON
+     * @return Map of API type to processed object, in the order of apiResponses
+     */
+    public Map<String, DynamicObject> evaluateMultiple(Map<String, String> apiResponses) {
+        Map<String, Supplier<DynamicObject>> parsers = new LinkedHashMap<>();
+        apiResponses.forEach((apiType, response) -> parsers.put(apiType, () -> jsonService.convertJsonToDynamicObject(response)));
+        return evaluateAll(parsers);
+    }
+
+    /**
+     * Run the rules for several API responses given as UTF-8 bytes, as {@link #evaluateMultiple(Map)}
+     */
+    public Map<String, DynamicObject> evaluateMultipleRaw(Map<String, byte[]> apiResponses) {
+        Map<String, Supplier<DynamicObject>> parsers = new LinkedHashMap<>();
+        apiResponses.forEach((apiType, response) -> parsers.put(apiType, () -> jsonService.convertJsonToDynamicObject(response)));
+        return evaluateAll(parsers);
+    }
+
+    /**
+     * Run the rules for a /process-multiple body, an object mapping API type to response, in any of the body
+     * formats. JSON responses are sliced out of the body and parsed on the fan-out threads; CBOR and Smile
+     * bodies are parsed whole up front, since Smile back-references make a member unreadable on its own.
+     * A JSON body the streaming parser rejects is parsed whole with Gson's lenient parser instead.
+     */
+    public Map<String, DynamicObject> evaluateMultiple(byte[] body, BodyFormat format) {
+        if (format.isBinary()) {
+            return evaluateMembers(StreamingJsonFlattener.parse(body, format, null, null));
+        }
+        Map<String, byte[]> members;
+        try {
+            members = StreamingJsonFlattener.splitObject(body);
+        } catch (IllegalArgumentException e) {
+            return evaluateMembers(gson.fromJson(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8),
+                    JsonObject.class));
+        }
+        return evaluateMultipleRaw(members);
+    }
+
+    private Map<String, DynamicObject> evaluateMembers(JsonObject body) {
+        Map<String, Supplier<DynamicObject>> parsers = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> member : body.entrySet()) {
+            if (!member.getValue().isJsonObject()) {
+                throw new IllegalArgumentException("Response of " + member.getKey() + " is not an object");
+            }
+            JsonObject response = member.getValue().getAsJsonObject();
+            parsers.put(member.getKey(), () -> jsonService.convertJsonToDynamicObject(response));
+        }
+        return evaluateAll(parsers);
+    }
+
+    private Map<String, DynamicObject> evaluateAll(Map<String, Supplier<DynamicObject>> apiResponses) {
+        if ("single-session".equalsIgnoreCase(multipleMode)) {
+            return evaluateInOneSession(apiResponses);
+        }
+
+        Map<String, DynamicObject> processedObjects = new LinkedHashMap<>();
+        if (apiResponses.size() == 1) {
+            // Nothing to overlap with, so skip the hand-off
+            Map.Entry<String, Supplier<DynamicObject>> entry = apiResponses.entrySet().iterator().next();
+            processedObjects.put(entry.getKey(), timedEvaluate(entry.getValue(), entry.getKey()));
+            return processedObjects;
+        }
 
         // Process each API response
-        for (Map.Entry<String, String> entry : apiResponses.entrySet()) {
+        Map<String, Future<DynamicObject>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<DynamicObject>> entry : apiResponses.entrySet()) {
             String apiType = entry.getKey();
-            String response = entry.getValue();
+            Supplier<DynamicObject> response = entry.getValue();
+            futures.put(apiType, executor.submit(() -> timedEvaluate(response, apiType)));
+        }
 
-            processedResponses.put(apiType, processApiResponse(response, apiType));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fanoutTimeoutMillis);
+        try {
+            for (Map.Entry<String, Future<DynamicObject>> entry : futures.entrySet()) {
+                long remaining = deadline - System.nanoTime();
+                processedObjects.put(entry.getKey(), entry.getValue().get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+            }
+            return processedObjects;
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Processing API responses timed out after " + fanoutTimeoutMillis + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while processing API responses", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new RuntimeException("Error processing API response: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // After a failure or timeout, stop work whose result is no longer wanted
+            for (Future<DynamicObject> future : futures.values()) {
+                future.cancel(true);
+            }
         }
+    }
 
-        return processedResponses;
+    /**
+     * Insert every API response as its own fact into one session that fires once, so rules can correlate
+     * responses; each response's changes are still written back to its own document
+     */
+    private Map<String, DynamicObject> evaluateInOneSession(Map<String, Supplier<DynamicObject>> apiResponses) {
+        try {
+            Map<String, DynamicObject> processedObjects = new LinkedHashMap<>();
+            for (Map.Entry<String, Supplier<DynamicObject>> entry : apiResponses.entrySet()) {
+                processedObjects.put(entry.getKey(), toDynamicObject(entry.getValue(), entry.getKey()));
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            droolsService.processRules(new ArrayList<>(processedObjects.values()));
+            sample.stop(Timer.builder("api.evaluation")
+                    .tag("apiType", "single-session")
+                    .tag("outcome", "ok")
+                    .register(meterRegistry));
+
+            for (DynamicObject dynamicObject : processedObjects.values()) {
+                dynamicObject.applyChangesToOriginal();
+            }
+            return processedObjects;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Error processing API responses: " + e.getMessage(), e);
+        }
+    }
+
+    // Per-API latency; unregistered API types share one tag value so request keys cannot grow the meter count
+    private DynamicObject timedEvaluate(Supplier<DynamicObject> response, String apiType) {
+        String apiTag = apiMetadataMap.containsKey(apiType) ? apiType : "other";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            DynamicObject processed = evaluate(response, apiType);
+            outcome = "ok";
+            return processed;
+        } finally {
+            sample.stop(Timer.builder("api.evaluation")
+                    .tag("apiType", apiTag)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
     }
 
     /**
@@ -0,0 +1,72 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Agenda listener that collects the rules fired for the audit trail.
+ * A single instance is attached once to every reusable session; collection is bound to the
+ * request currently firing on this thread and is a no-op for requests that are not audited.
+ * The changes of each rule are the slice of the facts' write journals made while its RHS ran.
+ */
+public class AuditAgendaListener extends DefaultAgendaEventListener {
+
+    private final ThreadLocal<Execution> currentExecution = new ThreadLocal<>();
+
+    public void begin() {
+        currentExecution.set(new Execution());
+    }
+
+    /**
+     * @return the rules fired since {@link #begin()}, in firing order
+     */
+    public List<RuleAuditService.FiredRule> end() {
+        Execution execution = currentExecution.get();
+        currentExecution.remove();
+        return execution != null ? execution.firedRules : Collections.emptyList();
+    }
+
+    @Override
+    public void beforeMatchFired(BeforeMatchFiredEvent event) {
+        Execution execution = currentExecution.get();
+        if (execution == null) {
+            return;
+        }
+        execution.facts.clear();
+        execution.marks.clear();
+        for (Object fact : event.getMatch().getObjects()) {
+            if (fact instanceof DynamicObject) {
+                DynamicObject dynamicObject = (DynamicObject) fact;
+                execution.facts.add(dynamicObject);
+                execution.marks.add(dynamicObject.getJournalSize());
+            }
+        }
+    }
+
+    @Override
+    public void afterMatchFired(AfterMatchFiredEvent event) {
+        Execution execution = currentExecution.get();
+        if (execution == null) {
+            return;
+        }
+        List<DynamicObject.Change> changes = new ArrayList<>();
+        for (int i = 0; i < execution.facts.size(); i++) {
+            changes.addAll(execution.facts.get(i).getJournalSince(execution.marks.get(i)));
+        }
+        execution.firedRules.add(new RuleAuditService.FiredRule(event.getMatch().getRule().getName(),
+                System.currentTimeMillis(), changes));
+    }
+
+    private static class Execution {
+        private final List<RuleAuditService.FiredRule> firedRules = new ArrayList<>();
+        // Facts of the match being fired and their journal sizes before its RHS ran
+        private final List<DynamicObject> facts = new ArrayList<>(2);
+        private final List<Integer> marks = new ArrayList<>(2);
+    }
+}
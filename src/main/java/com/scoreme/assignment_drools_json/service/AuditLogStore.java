@@ -0,0 +1,553 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.scoreme.assignment_drools_json.model.AuditLogEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped audit log on local disk.
+ *
+ * Rule firings are written in a compact binary format to fixed-size segment files. When a segment is
+ * full the log rolls over to a new one. Segments older than the retention window are deleted, and
+ * sealed segments that straddle the window are compacted by copying their live records forward.
+ * Empty sealed segments are deleted.
+ *
+ * The index lives in the segments themselves: the last 1/32 of every segment is a Bloom filter over the
+ * objectIds and rule names of its records, so a query only scans the segments that may hold a match.
+ * The heap keeps nothing per record; per segment, only its time bounds, which are recovered on startup.
+ *
+ * Segment layout: int magic | int version | records | zero padding | Bloom filter bits.
+ * Record layout: int length | long timestamp | str16 objectId | str16 ruleName | short changeCount |
+ * (str16 property | str32 before | str32 after) * changeCount. A zero length marks the end of the records.
+ * Version 1 segments have no filter and are scanned by every query.
+ */
+@Service
+public class AuditLogStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogStore.class);
+
+    private static final int SEGMENT_MAGIC = 0x41554431; // "AUD1"
+    private static final int SEGMENT_VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int BLOOM_HASHES = 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Off by default: each segment is a preallocated file of audit.log.segment-size-bytes
+    @Value("${audit.log.enabled:false}")
+    private boolean enabled;
+
+    @Value("${audit.log.dir:audit-log}")
+    private String directory;
+
+    @Value("${audit.log.segment-size-bytes:67108864}")
+    private int segmentSize;
+
+    @Value("${audit.log.retention-hours:336}")
+    private long retentionHours;
+
+    @Value("${audit.log.force-interval-ms:1000}")
+    private long forceIntervalMillis;
+
+    @Value("${audit.log.compaction-interval-ms:600000}")
+    private long compactionIntervalMillis;
+
+    private Path logPath;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment activeSegment;
+
+    private ScheduledExecutorService maintenance;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        logPath = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(logPath);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(logPath)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        // New segments are numbered past every file, including the ones skipped here
+        long lastId = 0;
+        for (Path file : files) {
+            long id = segmentIdOf(file);
+            if (id < 0) {
+                log.warn("Skipping {}: not an audit segment name", file);
+                continue;
+            }
+            lastId = Math.max(lastId, id);
+            try {
+                Segment segment = Segment.open(file, id);
+                segments.put(segment.id, segment);
+                recover(segment);
+            } catch (IOException e) {
+                log.warn("Skipping audit segment {}: {}", file, e.getMessage());
+            }
+        }
+
+        // Older segments have no filter to keep up to date, so appends always go to a new one
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        activeSegment = last != null && last.getKey() == lastId && last.getValue().version == SEGMENT_VERSION
+                ? last.getValue()
+                : createSegment(lastId + 1);
+        log.info("Audit log at {}: {} segments recovered", logPath, segments.size());
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audit-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::force, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMillis, compactionIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        force();
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append one rule firing. Called from the audit consumer thread.
+     */
+    public synchronized void append(AuditLogEntry entry) {
+        if (!enabled) {
+            return;
+        }
+        byte[] record = encode(entry);
+        if (record.length + 8 > recordLimit(segmentSize) - HEADER_SIZE) {
+            log.warn("Audit record for {} is {} bytes, larger than a segment; skipped", entry.getObjectId(), record.length);
+            return;
+        }
+        writeRecord(record, entry);
+    }
+
+    private void writeRecord(byte[] record, AuditLogEntry entry) {
+        // Keep 4 bytes after every record for the zero end marker
+        if (activeSegment.end + 4 + record.length + 4 > activeSegment.recordLimit) {
+            rollOver();
+        }
+        Segment segment = activeSegment;
+        int offset = segment.end;
+
+        // Body and filter bits first, then the length, so a torn write reads as the end of the segment
+        segment.buffer.put(offset + 4, record);
+        segment.addToFilter(objectKey(entry.getObjectId()));
+        segment.addToFilter(ruleKey(entry.getRuleName()));
+        segment.buffer.putInt(offset, record.length);
+        segment.end = offset + 4 + record.length;
+        segment.include(entry.getTimestamp());
+    }
+
+    private void rollOver() {
+        activeSegment.buffer.force();
+        activeSegment = createSegment(activeSegment.id + 1);
+    }
+
+    private Segment createSegment(long id) {
+        Path file = logPath.resolve(String.format("audit-%012d%s", id, SEGMENT_SUFFIX));
+        try {
+            Segment segment = Segment.create(file, id, segmentSize);
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create audit segment " + file, e);
+        }
+    }
+
+    private void force() {
+        Segment segment = activeSegment;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("Audit log compaction failed", e);
+        }
+    }
+
+    /**
+     * Delete sealed segments that are entirely past retention and copy the live records of
+     * sealed segments that are only partly expired into the active segment.
+     */
+    public synchronized void compact() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        List<Segment> removed = new ArrayList<>();
+
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == activeSegment) {
+                continue;
+            }
+            if (segment.isEmpty()) {
+                // Left behind by a restart or by compaction of a segment with nothing live
+                segments.remove(segment.id);
+                removed.add(segment);
+                continue;
+            }
+            if (segment.minTimestamp >= cutoff) {
+                continue;
+            }
+            if (segment.maxTimestamp >= cutoff) {
+                int offset = HEADER_SIZE;
+                while (offset < segment.end) {
+                    int length = segment.buffer.getInt(offset);
+                    AuditLogEntry entry = decode(segment.buffer, offset + 4);
+                    if (entry.getTimestamp() >= cutoff) {
+                        byte[] record = new byte[length];
+                        segment.buffer.get(offset + 4, record);
+                        writeRecord(record, entry);
+                    }
+                    offset += 4 + length;
+                }
+            }
+            segments.remove(segment.id);
+            removed.add(segment);
+        }
+
+        if (removed.isEmpty()) {
+            return;
+        }
+        for (Segment segment : removed) {
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Cannot delete audit segment {}", segment.path, e);
+            }
+        }
+        log.info("Audit log compaction removed {} segments", removed.size());
+    }
+
+    /**
+     * Query the log. Filters are optional; at most {@code limit} entries are returned, newest first.
+     * Runs under the store lock, so compaction never moves records while they are read: a record copied
+     * forward would otherwise be returned from both its old and its new segment.
+     */
+    public synchronized List<AuditLogEntry> query(String objectId, String ruleName, Long fromMillis, Long toMillis, int limit) {
+        List<AuditLogEntry> results = new ArrayList<>();
+        if (!enabled || limit <= 0) {
+            return results;
+        }
+        long from = fromMillis != null ? fromMillis : Long.MIN_VALUE;
+        long to = toMillis != null ? toMillis : Long.MAX_VALUE;
+        byte[] objectKey = objectId != null ? objectKey(objectId) : null;
+        byte[] ruleKey = ruleName != null ? ruleKey(ruleName) : null;
+
+        // Walk the segments that overlap the range and whose filter may hold the ids, newest first
+        for (Segment segment : segments.descendingMap().values()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (segment.maxTimestamp < from || segment.minTimestamp > to
+                    || (objectKey != null && !segment.mightContain(objectKey))
+                    || (ruleKey != null && !segment.mightContain(ruleKey))) {
+                continue;
+            }
+            List<AuditLogEntry> segmentEntries = new ArrayList<>();
+            int end = segment.end;
+            int offset = HEADER_SIZE;
+            while (offset < end) {
+                int length = segment.buffer.getInt(offset);
+                AuditLogEntry entry = decode(segment.buffer, offset + 4);
+                if (matches(entry, objectId, ruleName, from, to)) {
+                    segmentEntries.add(entry);
+                }
+                offset += 4 + length;
+            }
+            for (int i = segmentEntries.size() - 1; i >= 0 && results.size() < limit; i--) {
+                results.add(segmentEntries.get(i));
+            }
+        }
+        return results;
+    }
+
+    private static boolean matches(AuditLogEntry entry, String objectId, String ruleName, long from, long to) {
+        return (objectId == null || objectId.equals(entry.getObjectId()))
+                && (ruleName == null || ruleName.equals(entry.getRuleName()))
+                && entry.getTimestamp() >= from && entry.getTimestamp() <= to;
+    }
+
+    // Find the end of the records and the time bounds; the filter bits are already in the file
+    private static void recover(Segment segment) {
+        int offset = HEADER_SIZE;
+        while (offset + 4 <= segment.recordLimit) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || offset + 4 + length > segment.recordLimit) {
+                break;
+            }
+            segment.include(segment.buffer.getLong(offset + 4));
+            offset += 4 + length;
+        }
+        segment.end = offset;
+    }
+
+    // Records end where the filter of a segment of this size starts
+    private static int recordLimit(int segmentSize) {
+        return segmentSize - filterSize(segmentSize);
+    }
+
+    private static int filterSize(int segmentSize) {
+        return (segmentSize / 32) & ~7;
+    }
+
+    private static byte[] objectKey(String objectId) {
+        return ("o:" + objectId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ruleKey(String ruleName) {
+        return ("r:" + ruleName).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // -1 for a name this store did not write
+    private static long segmentIdOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("audit-")) {
+            return -1;
+        }
+        try {
+            long id = Long.parseLong(name.substring("audit-".length(), name.length() - SEGMENT_SUFFIX.length()));
+            return id > 0 ? id : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Binary encoding
+
+    private static byte[] encode(AuditLogEntry entry) {
+        byte[] objectId = utf8(entry.getObjectId());
+        byte[] ruleName = utf8(entry.getRuleName());
+        List<AuditLogEntry.PropertyChange> changes = entry.getChanges();
+        int changeCount = Math.min(changes.size(), Short.MAX_VALUE);
+
+        byte[][] encodedChanges = new byte[changeCount * 3][];
+        int size = 8 + 2 + objectId.length + 2 + ruleName.length + 2;
+        for (int i = 0; i < changeCount; i++) {
+            AuditLogEntry.PropertyChange change = changes.get(i);
+            encodedChanges[i * 3] = utf8(change.getProperty());
+            encodedChanges[i * 3 + 1] = change.getBefore() != null ? change.getBefore().getBytes(StandardCharsets.UTF_8) : null;
+            encodedChanges[i * 3 + 2] = change.getAfter() != null ? change.getAfter().getBytes(StandardCharsets.UTF_8) : null;
+            size += 2 + encodedChanges[i * 3].length
+                    + 4 + (encodedChanges[i * 3 + 1] != null ? encodedChanges[i * 3 + 1].length : 0)
+                    + 4 + (encodedChanges[i * 3 + 2] != null ? encodedChanges[i * 3 + 2].length : 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(entry.getTimestamp());
+        putShortString(buffer, objectId);
+        putShortString(buffer, ruleName);
+        buffer.putShort((short) changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            putShortString(buffer, encodedChanges[i * 3]);
+            putLongString(buffer, encodedChanges[i * 3 + 1]);
+            putLongString(buffer, encodedChanges[i * 3 + 2]);
+        }
+        return buffer.array();
+    }
+
+    private static AuditLogEntry decode(ByteBuffer source, int offset) {
+        ByteBuffer buffer = source.duplicate();
+        buffer.position(offset);
+        long timestamp = buffer.getLong();
+        String objectId = getShortString(buffer);
+        String ruleName = getShortString(buffer);
+        int changeCount = buffer.getShort();
+        List<AuditLogEntry.PropertyChange> changes = new ArrayList<>(changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            changes.add(new AuditLogEntry.PropertyChange(getShortString(buffer), getLongString(buffer), getLongString(buffer)));
+        }
+        return new AuditLogEntry(timestamp, objectId, ruleName, changes);
+    }
+
+    // Names are capped at 64 KB so their length fits in an unsigned short
+    private static byte[] utf8(String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        return bytes.length > 0xffff ? Arrays.copyOf(bytes, 0xffff) : bytes;
+    }
+
+    private static void putShortString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getShortString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putLongString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getLongString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A mapped segment file. Only the owning store writes to it; readers use absolute reads up to {@code end}.
+     */
+    private static class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int version;
+        private final int recordLimit;
+        private final long filterBits;
+        private volatile int end = HEADER_SIZE;
+        private volatile long minTimestamp = Long.MAX_VALUE;
+        private volatile long maxTimestamp = Long.MIN_VALUE;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer, int version) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.version = version;
+            this.recordLimit = version >= 2 ? recordLimit(buffer.capacity()) : buffer.capacity();
+            this.filterBits = (long) (buffer.capacity() - recordLimit) * 8;
+        }
+
+        static Segment create(Path path, long id, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, SEGMENT_MAGIC);
+            buffer.putInt(4, SEGMENT_VERSION);
+            return new Segment(id, path, channel, buffer, SEGMENT_VERSION);
+        }
+
+        static Segment open(Path path, long id) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != SEGMENT_MAGIC) {
+                channel.close();
+                throw new IOException("not an audit segment");
+            }
+            int version = buffer.getInt(4);
+            if (version < 1 || version > SEGMENT_VERSION) {
+                channel.close();
+                throw new IOException("unsupported segment version " + version);
+            }
+            return new Segment(id, path, channel, buffer, version);
+        }
+
+        boolean isEmpty() {
+            return end == HEADER_SIZE;
+        }
+
+        void addToFilter(byte[] key) {
+            long hash = hash(key);
+            for (int i = 0; i < BLOOM_HASHES && filterBits > 0; i++) {
+                long bit = bit(hash, i);
+                int index = recordLimit + (int) (bit >>> 3);
+                buffer.put(index, (byte) (buffer.get(index) | (1 << (bit & 7))));
+            }
+        }
+
+        // Without a filter (version 1) every key may be present
+        boolean mightContain(byte[] key) {
+            if (filterBits == 0) {
+                return true;
+            }
+            long hash = hash(key);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = bit(hash, i);
+                if ((buffer.get(recordLimit + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Double hashing: the i-th probe is h1 + i * h2, from the two halves of one 64-bit hash
+        private long bit(long hash, int i) {
+            long h1 = hash & 0xffffffffL;
+            long h2 = (hash >>> 32) | 1;
+            return Math.floorMod(h1 + i * h2, filterBits);
+        }
+
+        // FNV-1a with a final avalanche, stable across JVMs since the filter is persisted
+        private static long hash(byte[] key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+
+        void include(long timestamp) {
+            if (timestamp < minTimestamp) {
+                minTimestamp = timestamp;
+            }
+            if (timestamp > maxTimestamp) {
+                maxTimestamp = timestamp;
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The mapping stays valid until the buffer is collected
+            }
+        }
+    }
+}
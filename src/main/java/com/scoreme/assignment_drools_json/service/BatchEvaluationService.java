@@ -0,0 +1,182 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.utility.BoundedLineReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates newline-delimited JSON records from a stream and writes one NDJSON result line per record,
+ * in input order. At most max-in-flight records are read ahead of the oldest unfinished one, so memory
+ * stays flat however large the batch is: when the window is full, reading stops until results are written.
+ * A record longer than max-record-bytes is skipped without being buffered and reported as an error line.
+ */
+@Service
+public class BatchEvaluationService {
+
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private DynamicJsonService jsonService;
+
+    @Autowired
+    private ApiResponseHandler apiResponseHandler;
+
+    @Autowired
+    private DroolsService droolsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Worker threads evaluating records; 0 means one per available processor
+    @Value("${batch.concurrency:0}")
+    private int concurrency;
+
+    // Records read ahead of the oldest one still being evaluated (per batch request)
+    @Value("${batch.max-in-flight:64}")
+    private int maxInFlight;
+
+    // Longest record accepted, in bytes; a longer line is reported as an error for that record
+    @Value("${batch.max-record-bytes:4194304}")
+    private int maxRecordBytes;
+
+    private ExecutorService workers;
+    private Counter succeeded;
+    private Counter failed;
+
+    @PostConstruct
+    public void init() {
+        int threads = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "batch-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        succeeded = Counter.builder("batch.records").tag("outcome", "ok").register(meterRegistry);
+        failed = Counter.builder("batch.records").tag("outcome", "error").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Evaluate every line of the input and stream the results to the output.
+     * Result lines: {"line":1,"ruleVersion":"v1-...","result":{...}} or {"line":2,"error":"..."}.
+     * Blank lines are skipped but still counted, so line numbers match the input.
+     * A line over batch.max-record-bytes gets an error result without being read into memory.
+     * @param apiType evaluate each record as a response of this API type, or null for plain evaluation
+     */
+    public void evaluate(InputStream input, OutputStream output, String apiType) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(input, maxRecordBytes);
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        Deque<Future<String>> inFlight = new ArrayDeque<>(maxInFlight);
+
+        try {
+            int lineNumber = 0;
+            while (reader.next()) {
+                lineNumber++;
+                String line = reader.line();
+                if (line != null && line.isBlank()) {
+                    continue;
+                }
+                if (inFlight.size() >= maxInFlight) {
+                    // Window is full: hand the client what is ready before waiting on the oldest record
+                    writer.flush();
+                    writeResult(writer, inFlight.removeFirst());
+                }
+                int recordLine = lineNumber;
+                if (line == null) {
+                    inFlight.addLast(CompletableFuture.completedFuture(oversizeRecord(recordLine, reader.length())));
+                } else {
+                    inFlight.addLast(workers.submit(() -> evaluateRecord(recordLine, line, apiType)));
+                }
+
+                // Write whatever finished in order without blocking
+                while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+                    writeResult(writer, inFlight.removeFirst());
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                writer.flush();
+                writeResult(writer, inFlight.removeFirst());
+            }
+            writer.flush();
+        } finally {
+            // Client went away or the batch failed: do not keep evaluating records nobody will read
+            for (Future<String> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    private String evaluateRecord(int lineNumber, String record, String apiType) {
+        JsonObject result = new JsonObject();
+        result.addProperty("line", lineNumber);
+        try {
+            DynamicObject dynamicObject;
+            if (apiType != null) {
+                dynamicObject = apiResponseHandler.evaluate(record, apiType);
+            } else {
+                dynamicObject = jsonService.convertJsonToDynamicObject(record);
+                droolsService.processRules(dynamicObject);
+                dynamicObject.applyChangesToOriginal();
+            }
+            result.addProperty("ruleVersion", dynamicObject.getRuleVersion());
+            result.add("result", dynamicObject.getOriginalJson());
+            succeeded.increment();
+        } catch (Exception e) {
+            result.addProperty("error", String.valueOf(e.getMessage()));
+            failed.increment();
+        }
+        return gson.toJson(result);
+    }
+
+    private String oversizeRecord(int lineNumber, long length) {
+        JsonObject result = new JsonObject();
+        result.addProperty("line", lineNumber);
+        result.addProperty("error", "Record of " + length + " bytes exceeds batch.max-record-bytes ("
+                + maxRecordBytes + ")");
+        failed.increment();
+        return gson.toJson(result);
+    }
+
+    private static void writeResult(Writer writer, Future<String> result) throws IOException {
+        try {
+            writer.write(result.get());
+            writer.write('\n');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a batch record", e);
+        } catch (ExecutionException e) {
+            // evaluateRecord reports its own errors; this only happens if the task itself was rejected
+            throw new IOException("Batch record failed", e.getCause());
+        }
+    }
+}
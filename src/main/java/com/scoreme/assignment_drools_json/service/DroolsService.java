@@ -1,53 +1,284 @@
 package com.scoreme.assignment_drools_json.service;
 
 import com.scoreme.assignment_drools_json.model.DynamicObject;
-import org.kie.api.runtime.KieContainer;
+import com.scoreme.assignment_drools_json.rules.KieSessionPool;
+import com.scoreme.assignment_drools_json.rules.RuleSetChangedEvent;
+import com.scoreme.assignment_drools_json.rules.RuleSetManager;
+import com.scoreme.assignment_drools_json.rules.RuleSetVersion;
+import com.scoreme.assignment_drools_json.rules.TypedFacts;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.kie.api.event.KieRuntimeEventManager;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
 import org.kie.api.runtime.KieSession;
-import org.kie.api.event.rule.AfterMatchFiredEvent;
-import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.runtime.StatelessKieSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class DroolsService {
 
+    /**
+     * How sessions are obtained for each request:
+     * pooled - reuse reset stateful sessions from a bounded pool,
+     * stateless - execute through a shared StatelessKieSession,
+     * per-request - create and dispose a new stateful session every time.
+     */
+    public enum SessionMode { POOLED, STATELESS, PER_REQUEST }
+
     @Autowired
-    private KieContainer kieContainer;
+    private RuleSetManager ruleSetManager;
 
     @Autowired
     private RuleAuditService auditService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${drools.session.mode:pooled}")
+    private String sessionModeName;
+
+    @Value("${drools.session.pool.max-size:16}")
+    private int poolMaxSize;
+
+    @Value("${drools.session.pool.max-wait-ms:5000}")
+    private long poolMaxWaitMillis;
+
+    @Value("${drools.session.pool.idle-eviction-ms:300000}")
+    private long poolIdleEvictionMillis;
+
+    // Per-rule match/fire/cancel metrics (drools.rule.*)
+    @Value("${drools.metrics.rules.enabled:true}")
+    private boolean ruleMetricsEnabled;
+
+    // Publish percentile histogram buckets for rule RHS times and facts per session
+    @Value("${drools.metrics.histograms:true}")
+    private boolean metricsHistograms;
+
+    private SessionMode sessionMode;
+    private AuditAgendaListener auditListener;
+    private RuleMetricsListener metricsListener;
+    private DistributionSummary factsPerSession;
+    private Timer sessionCreation;
+
+    // Sessions of the active rule version; replaced as a whole when the rules change
+    private final AtomicReference<RuleEngine> activeEngine = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        sessionMode = SessionMode.valueOf(sessionModeName.trim().toUpperCase().replace('-', '_'));
+        auditListener = new AuditAgendaListener();
+        metricsListener = ruleMetricsEnabled ? new RuleMetricsListener(meterRegistry, metricsHistograms) : null;
+        factsPerSession = DistributionSummary.builder("drools.session.facts")
+                .description("Facts inserted into one session by a request")
+                .publishPercentileHistogram(metricsHistograms)
+                .register(meterRegistry);
+        sessionCreation = Timer.builder("drools.session.create")
+                .tag("mode", sessionMode.name().toLowerCase().replace('_', '-'))
+                .description("Time to create a session")
+                .register(meterRegistry);
+
+        activate(ruleSetManager.current());
+
+        if (sessionMode == SessionMode.POOLED) {
+            Gauge.builder("drools.session.pool.idle", activeEngine, engine -> engine.get().sessionPool.getIdleCount())
+                    .register(meterRegistry);
+            Gauge.builder("drools.session.pool.active", activeEngine, engine -> engine.get().sessionPool.getActiveCount())
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        RuleEngine engine = activeEngine.get();
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    @EventListener
+    public void onRuleSetChanged(RuleSetChangedEvent event) {
+        activate(event.getNewVersion());
+    }
+
+    /**
+     * Switch new requests to the given version. Requests already running keep the engine they
+     * started with; the old pool disposes its sessions as they are returned.
+     */
+    private synchronized void activate(RuleSetVersion version) {
+        RuleEngine current = activeEngine.get();
+        if (current != null && current.version.getNumber() >= version.getNumber()) {
+            return;
+        }
+
+        RuleEngine previous = activeEngine.getAndSet(new RuleEngine(version));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
     public DynamicObject processRules(DynamicObject dynamicObject) {
-        KieSession kieSession = kieContainer.newKieSession();
+        processRules(Collections.singletonList(dynamicObject));
+        return dynamicObject;
+    }
+
+    /**
+     * Insert all objects into one session and fire once, so rules can join facts of different
+     * API responses (e.g. customerDetails with financialData). The run is audited as one record.
+     */
+    public List<DynamicObject> processRules(List<DynamicObject> dynamicObjects) {
+        // Pin the engine for the whole request so a rule swap cannot change it half way
+        RuleEngine engine = activeEngine.get();
+
+        if (!auditService.shouldAudit()) {
+            engine.fire(dynamicObjects);
+            setRuleVersion(dynamicObjects, engine);
+            return dynamicObjects;
+        }
+
         String objectId = UUID.randomUUID().toString();
 
+        // No state copies: each fired rule is audited from the objects' write journals
+        List<RuleAuditService.FiredRule> firedRules;
+        auditListener.begin();
         try {
-            // Capture the state before rule execution for auditing
-            Map<String, Object> beforeState = new HashMap<>(dynamicObject.getProperties());
-
-            // Add rule firing listener for audit logging
-            kieSession.addEventListener(new DefaultAgendaEventListener() {
-                @Override
-                public void afterMatchFired(AfterMatchFiredEvent event) {
-                    String ruleName = event.getMatch().getRule().getName();
-                    auditService.recordRuleExecution(ruleName, objectId, beforeState);
+            engine.fire(dynamicObjects);
+        } finally {
+            firedRules = auditListener.end();
+        }
+
+        // Logging and persistence happen off the request thread
+        auditService.submit(objectId, firedRules);
+        if (!firedRules.isEmpty()) {
+            // Returned to the client, who can look the run up in the audit log with it
+            for (DynamicObject dynamicObject : dynamicObjects) {
+                dynamicObject.setAuditId(objectId);
+            }
+        }
+
+        setRuleVersion(dynamicObjects, engine);
+        return dynamicObjects;
+    }
+
+    private static void setRuleVersion(List<DynamicObject> dynamicObjects, RuleEngine engine) {
+        for (DynamicObject dynamicObject : dynamicObjects) {
+            dynamicObject.setRuleVersion(engine.version.getId());
+        }
+    }
+
+    private void addListeners(KieRuntimeEventManager session) {
+        session.addEventListener(auditListener);
+        if (metricsListener != null) {
+            session.addEventListener((AgendaEventListener) metricsListener);
+            session.addEventListener((RuleRuntimeEventListener) metricsListener);
+        }
+    }
+
+    public SessionMode getSessionMode() {
+        return sessionMode;
+    }
+
+    /**
+     * Sessions created from one rule set version
+     */
+    private class RuleEngine {
+        private final RuleSetVersion version;
+        private final KieSessionPool sessionPool;
+        private final StatelessKieSession statelessSession;
+
+        RuleEngine(RuleSetVersion version) {
+            this.version = version;
+            if (sessionMode == SessionMode.POOLED) {
+                sessionPool = new KieSessionPool(version.getKieBase(), poolMaxSize, poolMaxWaitMillis,
+                        poolIdleEvictionMillis, DroolsService.this::addListeners, meterRegistry);
+                statelessSession = null;
+            } else if (sessionMode == SessionMode.STATELESS) {
+                sessionPool = null;
+                statelessSession = sessionCreation.record(() -> version.getKieBase().newStatelessKieSession());
+                addListeners(statelessSession);
+            } else {
+                sessionPool = null;
+                statelessSession = null;
+            }
+        }
+
+        void fire(List<DynamicObject> dynamicObjects) {
+            List<Object> facts = withTypedFacts(dynamicObjects);
+            factsPerSession.record(facts.size());
+            switch (sessionMode) {
+                case POOLED:
+                    fireOnPooledSession(facts);
+                    break;
+                case STATELESS:
+                    statelessSession.execute(facts);
+                    break;
+                default:
+                    fireOnNewSession(facts);
+            }
+        }
+
+        // Each object is followed by its typed fact, when the version has a fact class for its API type
+        private List<Object> withTypedFacts(List<DynamicObject> dynamicObjects) {
+            TypedFacts typedFacts = version.getTypedFacts();
+            if (typedFacts == null || typedFacts.isEmpty()) {
+                return Collections.unmodifiableList(dynamicObjects);
+            }
+            List<Object> facts = new ArrayList<>(dynamicObjects.size() * 2);
+            for (DynamicObject dynamicObject : dynamicObjects) {
+                facts.add(dynamicObject);
+                Object typedFact = typedFacts.bind(dynamicObject);
+                if (typedFact != null) {
+                    facts.add(typedFact);
                 }
-            });
+            }
+            return facts;
+        }
 
-            // Execute rules
-            kieSession.insert(dynamicObject);
-            kieSession.fireAllRules();
+        private void fireOnPooledSession(List<Object> facts) {
+            try (KieSessionPool.PooledSession pooled = sessionPool.borrow()) {
+                try {
+                    KieSession kieSession = pooled.getSession();
+                    for (Object fact : facts) {
+                        kieSession.insert(fact);
+                    }
+                    kieSession.fireAllRules();
+                } catch (RuntimeException e) {
+                    pooled.invalidate();
+                    throw e;
+                }
+            }
+        }
 
-            // Record the final state after all rules have executed
-            auditService.completeRuleExecution(objectId, dynamicObject.getProperties());
+        private void fireOnNewSession(List<Object> facts) {
+            KieSession kieSession = sessionCreation.record(() -> version.getKieBase().newKieSession());
+            try {
+                addListeners(kieSession);
+                for (Object fact : facts) {
+                    kieSession.insert(fact);
+                }
+                kieSession.fireAllRules();
+            } finally {
+                kieSession.dispose();
+            }
+        }
 
-            return dynamicObject;
-        } finally {
-            kieSession.dispose();
+        void close() {
+            if (sessionPool != null) {
+                sessionPool.close();
+            }
         }
     }
-}
\ No newline at end of file
+}
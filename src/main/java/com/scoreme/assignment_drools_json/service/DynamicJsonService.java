@@ -2,155 +2,158 @@ package com.scoreme.assignment_drools_json.service;
 
 import com.google.gson.*;
 import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.rules.RuleProjection;
+import com.scoreme.assignment_drools_json.rules.RuleSetChangedEvent;
+import com.scoreme.assignment_drools_json.rules.RuleSetManager;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.JsonFlattener;
+import com.scoreme.assignment_drools_json.utility.PathDictionary;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+import com.scoreme.assignment_drools_json.utility.ValueInterner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
 @Service
 public class DynamicJsonService {
 
+    private static final Gson gson = new Gson();
+
     @Autowired
     private SchemaService schemaService;
 
-    public DynamicObject convertJsonToDynamicObject(String jsonStr) {
-        // Parse JSON
-        JsonObject jsonObject = new Gson().fromJson(jsonStr, JsonObject.class);
+    // eager: flatten up front (only the projected paths when the projection is on, the rest resolved on first
+    // read); lazy: resolve every path from the tree when rules read it
+    @Value("${json.flatten.mode:eager}")
+    private String flattenMode;
 
-        // Create dynamic object with reference to original JSON
-        DynamicObject dynamicObject = new DynamicObject(jsonObject);
+    // In eager mode, flatten only the paths the active rules read; anything else is resolved on first read.
+    // Lazy mode flattens nothing up front, so the projection does not apply there.
+    @Value("${json.flatten.projection:true}")
+    private boolean projectionEnabled;
 
-        // Recursively flatten the structure for rule processing
-        flattenJson(jsonObject, "", dynamicObject);
+    @Autowired
+    private RuleSetManager ruleSetManager;
+
+    // streaming: parse and flatten in one Jackson streaming pass; gson: parse a Gson tree, then flatten it.
+    // JSON the streaming parser rejects is read again with Gson, so both accept the same bodies
+    @Value("${json.parser:streaming}")
+    private String parser;
+
+    /**
+     * Interned paths and values are kept per rule set: documents converted from now on start empty tables,
+     * while those already in flight keep the dictionary they were flattened with
+     */
+    @EventListener
+    public void onRuleSetChanged(RuleSetChangedEvent event) {
+        PathDictionary.reset();
+        ValueInterner.reset();
+    }
 
-        return dynamicObject;
+    public DynamicObject convertJsonToDynamicObject(String jsonStr) {
+        return convert((filter, sink) -> StreamingJsonFlattener.parse(jsonStr, filter, sink),
+                () -> gson.fromJson(jsonStr, JsonObject.class), true);
     }
 
-    private void flattenJson(JsonObject json, String prefix, DynamicObject dynamicObject) {
-        for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-            String key = entry.getKey();
-            String path = prefix.isEmpty() ? key : prefix + "_" + key;
-            JsonElement value = entry.getValue();
-
-            if (value.isJsonObject()) {
-                // Recurse into nested objects
-                flattenJson(value.getAsJsonObject(), path, dynamicObject);
-            } else if (value.isJsonArray()) {
-                // Handle arrays
-                handleJsonArray(value.getAsJsonArray(), path, dynamicObject);
-            } else if (value.isJsonPrimitive()) {
-                // Extract primitive values
-                if (value.getAsJsonPrimitive().isNumber()) {
-                    dynamicObject.set(path, value.getAsJsonPrimitive().getAsNumber());
-                } else if (value.getAsJsonPrimitive().isBoolean()) {
-                    dynamicObject.set(path, value.getAsJsonPrimitive().getAsBoolean());
-                } else {
-                    dynamicObject.set(path, value.getAsJsonPrimitive().getAsString());
-                }
-            }
+    /**
+     * Convert a UTF-8 request body without decoding it into a String
+     */
+    public DynamicObject convertJsonToDynamicObject(byte[] json) {
+        return convert((filter, sink) -> StreamingJsonFlattener.parse(json, filter, sink),
+                () -> gson.fromJson(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8),
+                        JsonObject.class), true);
+    }
+
+    /**
+     * Convert a request body in any of the body formats. CBOR and Smile are always read by the streaming
+     * parser, Gson having no reader for them; json.parser=gson then only decides whether flattening
+     * happens while reading or over the finished tree.
+     */
+    public DynamicObject convertJsonToDynamicObject(byte[] body, BodyFormat format) {
+        if (!format.isBinary()) {
+            return convertJsonToDynamicObject(body);
         }
+        return convert((filter, sink) -> StreamingJsonFlattener.parse(body, format, filter, sink),
+                () -> StreamingJsonFlattener.parse(body, format, null, null), false);
     }
 
-    private void handleJsonArray(JsonArray array, String path, DynamicObject dynamicObject) {
-        // For arrays of primitives
-        List<Object> values = new ArrayList<>();
-        // For arrays of objects (to maintain all nested properties)
-        List<Map<String, Object>> objectValues = new ArrayList<>();
-
-        boolean containsObjects = false;
-
-        for (int i = 0; i < array.size(); i++) {
-            JsonElement element = array.get(i);
-
-            if (element.isJsonObject()) {
-                containsObjects = true;
-                // Create a separate index path for each object in the array
-                String indexedPath = path + "_" + i;
-                flattenJson(element.getAsJsonObject(), indexedPath, dynamicObject);
-
-                // Also store the complete object's properties to maintain the array structure
-                Map<String, Object> objectProps = new HashMap<>();
-                for (Map.Entry<String, JsonElement> prop : element.getAsJsonObject().entrySet()) {
-                    if (prop.getValue().isJsonPrimitive()) {
-                        JsonPrimitive primitive = prop.getValue().getAsJsonPrimitive();
-                        if (primitive.isNumber()) {
-                            objectProps.put(prop.getKey(), primitive.getAsNumber());
-                        } else if (primitive.isBoolean()) {
-                            objectProps.put(prop.getKey(), primitive.getAsBoolean());
-                        } else {
-                            objectProps.put(prop.getKey(), primitive.getAsString());
-                        }
-                    }
-                }
-                objectValues.add(objectProps);
-            } else if (element.isJsonPrimitive()) {
-                // Extract primitive values
-                if (element.getAsJsonPrimitive().isNumber()) {
-                    values.add(element.getAsJsonPrimitive().getAsNumber());
-                } else if (element.getAsJsonPrimitive().isBoolean()) {
-                    values.add(element.getAsJsonPrimitive().getAsBoolean());
+    /**
+     * Convert an already parsed document, e.g. one member of a binary /process-multiple body
+     */
+    public DynamicObject convertJsonToDynamicObject(JsonObject jsonObject) {
+        return convert((filter, sink) -> {
+            if (sink != null) {
+                if (filter == null) {
+                    JsonFlattener.flatten(jsonObject, sink);
                 } else {
-                    values.add(element.getAsJsonPrimitive().getAsString());
+                    JsonFlattener.flatten(jsonObject, filter, sink);
                 }
             }
-        }
-
-        // Store the entire array structure
-        if (containsObjects) {
-            dynamicObject.set(path, objectValues);
-
-            // For specific properties that Drools might need to check across all objects
-            extractKeyValues(objectValues, path, dynamicObject);
-        } else if (!values.isEmpty()) {
-            dynamicObject.set(path, values);
-        }
+            return jsonObject;
+        }, () -> jsonObject, false);
     }
 
-    // Helper method to extract specific keys from all objects in an array
-    private void extractKeyValues(List<Map<String, Object>> objects, String basePath, DynamicObject dynamicObject) {
-        // Extract common properties that rules might need to check
-        // For example, extract all severity values from alerts
-        if (basePath.endsWith("alerts")) {
-            List<Object> allSeverities = new ArrayList<>();
-            for (Map<String, Object> obj : objects) {
-                if (obj.containsKey("severity")) {
-                    allSeverities.add(obj.get("severity"));
-                }
-            }
-            // Store all severity values so rules can easily check them
-            if (!allSeverities.isEmpty()) {
-                dynamicObject.set(basePath + "_severity", allSeverities);
+    /**
+     * @param gsonFallback whether treeParse is Gson's lenient parse, which accepts JSON the streaming parser
+     *                     rejects (unquoted string values, NaN and Infinity, "=" and ";" separators, ...)
+     */
+    private DynamicObject convert(StreamingParse streamingParse, Supplier<JsonObject> treeParse, boolean gsonFallback) {
+        if (!"streaming".equalsIgnoreCase(parser)) {
+            return load(streamingParse, treeParse, false);
+        }
+        try {
+            return load(streamingParse, treeParse, true);
+        } catch (IllegalArgumentException e) {
+            if (!gsonFallback) {
+                throw e;
             }
+            // Malformed for Gson as well: its exception is the one reported, as with json.parser=gson
+            return load(streamingParse, treeParse, false);
         }
     }
 
-    public String convertDynamicObjectToJson(DynamicObject dynamicObject) {
-        // Get our original JSON structure
-        JsonObject originalJson = dynamicObject.getOriginalJson();
-
-        // Apply the modifications from our dynamic object
-        if (dynamicObject.get("customerDetails_extractedParentData") != null) {
-            // Find the customerDetails array
-            if (originalJson.has("customerDetails") && originalJson.get("customerDetails").isJsonArray()) {
-                JsonArray customerDetails = originalJson.get("customerDetails").getAsJsonArray();
-
-                // Add extractedParentData to each customer object
-                for (int i = 0; i < customerDetails.size(); i++) {
-                    if (customerDetails.get(i).isJsonObject()) {
-                        JsonObject customer = customerDetails.get(i).getAsJsonObject();
-
-                        // Add the extractedParentData field
-                        customer.addProperty("extractedParentData",
-                                dynamicObject.get("customerDetails_extractedParentData").toString());
-                    }
-                }
+    private DynamicObject load(StreamingParse streamingParse, Supplier<JsonObject> treeParse, boolean streaming) {
+        if ("lazy".equalsIgnoreCase(flattenMode)) {
+            // Parse JSON; paths are resolved from the tree when rules read them
+            JsonObject jsonObject = streaming ? streamingParse.parse(null, null) : treeParse.get();
+            return new DynamicObject(jsonObject, true);
+        }
+
+        RuleProjection projection = projectionEnabled ? ruleSetManager.current().getProjection() : RuleProjection.FULL;
+
+        // With a projection the object stays lazy, so a read the projection missed
+        // (e.g. rules swapped since it was taken) still resolves from the tree
+        DynamicObject dynamicObject = new DynamicObject(null, !projection.isFull());
+        JsonFlattener.PathFilter filter = projection.isFull() ? null : projection;
+        // Also records where the document holds each path, so rule outputs are attached without a path walk
+        JsonFlattener.Sink sink = dynamicObject.loader();
+
+        if (streaming) {
+            // Flattened values are emitted while the tree is read
+            dynamicObject.setOriginalJson(streamingParse.parse(filter, sink));
+        } else {
+            // Parse JSON, then recursively flatten the structure for rule processing
+            JsonObject jsonObject = treeParse.get();
+            dynamicObject.setOriginalJson(jsonObject);
+            if (filter == null) {
+                JsonFlattener.flatten(jsonObject, sink);
+            } else {
+                JsonFlattener.flatten(jsonObject, filter, sink);
             }
         }
 
-        return new Gson().toJson(originalJson);
+        return dynamicObject;
+    }
+
+    // StreamingJsonFlattener.parse over the request body, whatever form it arrived in
+    private interface StreamingParse {
+        JsonObject parse(JsonFlattener.PathFilter filter, JsonFlattener.Sink sink);
     }
 
-}
\ No newline at end of file
+}
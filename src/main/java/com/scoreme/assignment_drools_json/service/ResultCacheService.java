@@ -0,0 +1,358 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.rules.RuleSetChangedEvent;
+import com.scoreme.assignment_drools_json.rules.RuleSetManager;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.JsonOutput;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in cache of evaluated responses, keyed by a digest of the payload, the API type and the active
+ * rule version. Identical requests arriving while one is evaluated wait for that evaluation instead of
+ * running their own. Entries are evicted least recently used first beyond result-cache.max-entries or
+ * result-cache.max-bytes, expire after result-cache.ttl-ms, and are dropped when the rules change.
+ *
+ * The payload digest of a JSON payload covers its tokens rather than its text, so re-indented or commented
+ * copies of a document share an entry; reordered keys do not. CBOR and Smile payloads are digested as is.
+ * The request and response formats are part of the key, and bodies are cached already encoded in the
+ * response format. SHA-256 rather than a faster non-cryptographic hash: a collision would serve one
+ * payload's result for another, and the digest is still small next to an evaluation.
+ *
+ * A hit skips the rules entirely, so it leaves no audit records and no rule metrics.
+ */
+@Service
+public class ResultCacheService {
+
+    @Autowired
+    private RuleSetManager ruleSetManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${result-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${result-cache.max-entries:10000}")
+    private int maxEntries;
+
+    // Approximate heap held by cached response bodies
+    @Value("${result-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // 0 = entries live until evicted or the rules change
+    @Value("${result-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    // Access-ordered, guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long entryBytes;
+
+    // Evaluations in progress, joined by identical requests
+    private final ConcurrentHashMap<Key, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter coalesced;
+    private Counter evictions;
+
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<byte[]> digestBuffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("result.cache").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("result.cache").tag("result", "miss").register(meterRegistry);
+        coalesced = Counter.builder("result.cache").tag("result", "coalesced").register(meterRegistry);
+        evictions = Counter.builder("result.cache.evictions").register(meterRegistry);
+        Gauge.builder("result.cache.size", this, ResultCacheService::size).register(meterRegistry);
+        Gauge.builder("result.cache.bytes", this, ResultCacheService::bytes).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The result of evaluating the payload, from the cache, from an identical evaluation in progress,
+     * or by running the evaluation. Failed evaluations are not cached. With the cache disabled the
+     * evaluated tree is returned as is and only serialized when written.
+     * @param apiType null for /process/evaluate, which evaluates without an API type
+     * @param payload the request body, in requestFormat
+     * @param responseFormat the format the result is written in
+     */
+    public Result getOrEvaluate(String apiType, byte[] payload, BodyFormat requestFormat, BodyFormat responseFormat,
+                                Supplier<DynamicObject> evaluation) {
+        if (!enabled) {
+            DynamicObject evaluated = evaluation.get();
+            return new Result(null, evaluated.getOriginalJson(), responseFormat, evaluated.getRuleVersion(),
+                    evaluated.getAuditId());
+        }
+
+        Key key = new Key(apiType, ruleSetManager.current().getId(), requestFormat, responseFormat,
+                requestFormat.isBinary() ? rawDigest(payload) : digest(payload));
+        Result cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Result> flight = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            // The previous evaluation of this payload may have finished between the lookup and putIfAbsent
+            Result result = lookup(key);
+            if (result != null) {
+                hits.increment();
+                flight.complete(result);
+                return result;
+            }
+            misses.increment();
+            DynamicObject evaluated = evaluation.get();
+            result = new Result(JsonOutput.toBytes(evaluated.getOriginalJson(), responseFormat), null, responseFormat,
+                    evaluated.getRuleVersion(), evaluated.getAuditId());
+            // A result of another version (rules swapped mid-request) would never be looked up again
+            if (key.ruleVersion.equals(result.ruleVersion) && key.ruleVersion.equals(ruleSetManager.current().getId())) {
+                store(key, result);
+            }
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @EventListener
+    public void onRuleSetChanged(RuleSetChangedEvent event) {
+        clear();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        entryBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return entryBytes;
+    }
+
+    private synchronized Result lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ttlMillis > 0 && System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            entries.remove(key);
+            entryBytes -= entry.bytes;
+            evictions.increment();
+            return null;
+        }
+        return entry.result;
+    }
+
+    private synchronized void store(Key key, Result result) {
+        Entry entry = new Entry(result, System.currentTimeMillis());
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        entryBytes += entry.bytes - (previous != null ? previous.bytes : 0);
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || entryBytes > maxBytes) && eldest.hasNext()) {
+            entryBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * SHA-256 of the payload's tokens as the request parser reads them: token kind, then the text of names,
+     * strings and numbers, length-prefixed. Whitespace, comments and quoting style (JSON is read leniently)
+     * do not change the key; anything the parser sees as a different document does. A payload that does not
+     * parse is digested as is, and its evaluation fails without being cached.
+     */
+    static byte[] digest(byte[] payload) {
+        MessageDigest digest = digests.get();
+        byte[] buffer = digestBuffers.get();
+        int length = 0;
+        try (JsonParser parser = StreamingJsonFlattener.createParser(payload)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (length + 5 > buffer.length) {
+                    digest.update(buffer, 0, length);
+                    length = 0;
+                }
+                buffer[length++] = (byte) token.ordinal();
+                if (token != JsonToken.FIELD_NAME && token != JsonToken.VALUE_STRING && !token.isNumeric()) {
+                    continue;
+                }
+                char[] text = parser.getTextCharacters();
+                int offset = parser.getTextOffset();
+                int textLength = parser.getTextLength();
+                buffer[length++] = (byte) (textLength >>> 24);
+                buffer[length++] = (byte) (textLength >>> 16);
+                buffer[length++] = (byte) (textLength >>> 8);
+                buffer[length++] = (byte) textLength;
+                for (int i = offset; i < offset + textLength; i++) {
+                    if (length + 2 > buffer.length) {
+                        digest.update(buffer, 0, length);
+                        length = 0;
+                    }
+                    buffer[length++] = (byte) (text[i] >>> 8);
+                    buffer[length++] = (byte) text[i];
+                }
+            }
+        } catch (IOException e) {
+            digest.reset();
+            return rawDigest(payload);
+        }
+        digest.update(buffer, 0, length);
+        return digest.digest();
+    }
+
+    /**
+     * SHA-256 of a binary payload, where bytes that look like whitespace are data
+     */
+    static byte[] rawDigest(byte[] payload) {
+        return digests.get().digest(payload);
+    }
+
+    /**
+     * An evaluated response: its body, serialized (cached) or as the tree, and the rule version that produced it
+     */
+    public static final class Result {
+        private final byte[] body;
+        private final JsonObject json;
+        private final BodyFormat format;
+        private final String ruleVersion;
+        private final String auditId;
+
+        Result(byte[] body, JsonObject json, BodyFormat format, String ruleVersion, String auditId) {
+            this.body = body;
+            this.json = json;
+            this.format = format;
+            this.ruleVersion = ruleVersion;
+            this.auditId = auditId;
+        }
+
+        public String getRuleVersion() {
+            return ruleVersion;
+        }
+
+        /**
+         * Audit objectId of the evaluation that produced this body; a cache hit reports the original evaluation's
+         */
+        public String getAuditId() {
+            return auditId;
+        }
+
+        /**
+         * Write the body in the response format it was requested in
+         */
+        public void writeTo(OutputStream output) throws IOException {
+            if (body != null) {
+                output.write(body);
+                output.flush();
+            } else {
+                JsonOutput.write(json, format, output);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Result result;
+        private final long storedAt;
+        private final long bytes;
+
+        Entry(Result result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+            // The body, plus a rough allowance for the key and entry objects
+            this.bytes = result.body.length + 200L;
+        }
+    }
+
+    private static final class Key {
+        private final String apiType;
+        private final String ruleVersion;
+        private final BodyFormat requestFormat;
+        private final BodyFormat responseFormat;
+        private final byte[] digest;
+        private final int hash;
+
+        Key(String apiType, String ruleVersion, BodyFormat requestFormat, BodyFormat responseFormat, byte[] digest) {
+            this.apiType = apiType;
+            this.ruleVersion = ruleVersion;
+            this.requestFormat = requestFormat;
+            this.responseFormat = responseFormat;
+            this.digest = digest;
+            this.hash = Objects.hash(apiType, ruleVersion, requestFormat, responseFormat, Arrays.hashCode(digest));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Objects.equals(apiType, other.apiType)
+                    && ruleVersion.equals(other.ruleVersion) && requestFormat == other.requestFormat
+                    && responseFormat == other.responseFormat && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
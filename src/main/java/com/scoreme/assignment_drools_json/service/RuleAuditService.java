@@ -1,106 +1,340 @@
 package com.scoreme.assignment_drools_json.service;
 
+import com.scoreme.assignment_drools_json.model.AuditLogEntry;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import com.scoreme.assignment_drools_json.utility.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Audit trail of rule executions.
+ * Request threads only hand the journaled changes of each fired rule to a bounded lock-free ring buffer;
+ * a background consumer logs them, appends them to the on-disk {@link AuditLogStore} and keeps the most
+ * recent objects in memory up to the retention cap. Cost scales with the number of modifications,
+ * not with the size of the document.
+ */
 @Service
 public class RuleAuditService {
 
-    private final Map<String, List<RuleExecution>> ruleExecutions = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(RuleAuditService.class);
+
+    /**
+     * What to do when the ring buffer is full:
+     * drop-newest - discard the record being submitted,
+     * drop-oldest - discard the oldest queued record to make room.
+     */
+    public enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuditLogStore auditLogStore;
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled;
+
+    // Fraction of requests that are audited, 0.0 - 1.0
+    @Value("${audit.sampling-rate:1.0}")
+    private double samplingRate;
+
+    @Value("${audit.buffer.capacity:8192}")
+    private int bufferCapacity;
+
+    @Value("${audit.buffer.overflow-policy:drop-newest}")
+    private String overflowPolicyName;
+
+    // Number of audited objects kept for getExecutionsForObject
+    @Value("${audit.retention.max-objects:10000}")
+    private int retentionMaxObjects;
+
+    @Value("${audit.log-executions:true}")
+    private boolean logExecutions;
+
+    private BoundedRingBuffer<AuditRecord> buffer;
+    private OverflowPolicy overflowPolicy;
+    private Map<String, List<RuleExecution>> ruleExecutions;
+    private Thread consumer;
+    private volatile boolean running;
+
+    private Counter submitted;
+    private Counter sampledOut;
+    private Counter dropped;
+    private Counter processed;
 
     public static class RuleExecution {
         private String ruleName;
         private Date executionTime;
         private String objectId;
-        private Map<String, Object> beforeState;
-        private Map<String, Object> afterState;
-        private List<String> modifiedProperties;
+        private List<DynamicObject.Change> changes;
 
         public RuleExecution(String ruleName, String objectId) {
+            this(ruleName, objectId, new Date());
+        }
+
+        public RuleExecution(String ruleName, String objectId, Date executionTime) {
             this.ruleName = ruleName;
             this.objectId = objectId;
-            this.executionTime = new Date();
-            this.beforeState = new ConcurrentHashMap<>();
-            this.afterState = new ConcurrentHashMap<>();
-            this.modifiedProperties = new ArrayList<>();
+            this.executionTime = executionTime;
+            this.changes = new ArrayList<>();
         }
 
-        // Getters and setters
+        // Getters
         public String getRuleName() { return ruleName; }
         public Date getExecutionTime() { return executionTime; }
         public String getObjectId() { return objectId; }
-        public Map<String, Object> getBeforeState() { return beforeState; }
-        public Map<String, Object> getAfterState() { return afterState; }
-        public List<String> getModifiedProperties() { return modifiedProperties; }
 
-        public void setBeforeState(Map<String, Object> state) {
-            this.beforeState = new ConcurrentHashMap<>(state);
+        /**
+         * Net change of each property the rule modified: the value before its first write and after its last
+         */
+        public List<DynamicObject.Change> getChanges() { return changes; }
+
+        public List<String> getModifiedProperties() {
+            List<String> properties = new ArrayList<>(changes.size());
+            for (DynamicObject.Change change : changes) {
+                properties.add(change.getPath());
+            }
+            return properties;
+        }
+
+        /**
+         * Record the net changes from the journaled changes of this rule; writes that end on the old value are left out
+         */
+        public void recordChanges(List<DynamicObject.Change> journaled) {
+            Map<String, Object> before = new LinkedHashMap<>();
+            Map<String, Object> after = new LinkedHashMap<>();
+            for (DynamicObject.Change change : journaled) {
+                // Keep the value from before the rule's first write and after its last write
+                if (!before.containsKey(change.getPath())) {
+                    before.put(change.getPath(), change.getOldValue());
+                }
+                after.put(change.getPath(), change.getNewValue());
+            }
+            for (Map.Entry<String, Object> entry : after.entrySet()) {
+                Object oldValue = before.get(entry.getKey());
+                if (!Objects.equals(oldValue, entry.getValue())) {
+                    changes.add(new DynamicObject.Change(entry.getKey(), oldValue, entry.getValue()));
+                }
+            }
         }
+    }
 
-        public void setAfterState(Map<String, Object> state) {
-            this.afterState = new ConcurrentHashMap<>(state);
+    /**
+     * A rule that fired while processing one object, with the changes its RHS made
+     */
+    public static class FiredRule {
+        private final String ruleName;
+        private final long firedAt;
+        private final List<DynamicObject.Change> changes;
 
-            // Calculate modified properties
-            for (String key : afterState.keySet()) {
-                Object before = beforeState.get(key);
-                Object after = afterState.get(key);
+        public FiredRule(String ruleName, long firedAt, List<DynamicObject.Change> changes) {
+            this.ruleName = ruleName;
+            this.firedAt = firedAt;
+            this.changes = changes;
+        }
 
-                if (!isEqual(before, after)) {
-                    modifiedProperties.add(key);
-                }
+        public String getRuleName() { return ruleName; }
+        public long getFiredAt() { return firedAt; }
+        public List<DynamicObject.Change> getChanges() { return changes; }
+    }
+
+    /**
+     * Everything captured on the request thread for one processed object
+     */
+    private static class AuditRecord {
+        private final String objectId;
+        private final List<FiredRule> firedRules;
+
+        AuditRecord(String objectId, List<FiredRule> firedRules) {
+            this.objectId = objectId;
+            this.firedRules = firedRules;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        buffer = new BoundedRingBuffer<>(bufferCapacity);
+        overflowPolicy = OverflowPolicy.valueOf(overflowPolicyName.trim().toUpperCase().replace('-', '_'));
+
+        // Access-ordered map that forgets the least recently touched object beyond the retention cap
+        ruleExecutions = Collections.synchronizedMap(new LinkedHashMap<String, List<RuleExecution>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<RuleExecution>> eldest) {
+                return size() > retentionMaxObjects;
             }
+        });
+
+        submitted = Counter.builder("audit.records").tag("outcome", "submitted").register(meterRegistry);
+        sampledOut = Counter.builder("audit.records").tag("outcome", "sampled-out").register(meterRegistry);
+        dropped = Counter.builder("audit.records").tag("outcome", "dropped").register(meterRegistry);
+        processed = Counter.builder("audit.records").tag("outcome", "processed").register(meterRegistry);
+        Gauge.builder("audit.buffer.size", buffer, BoundedRingBuffer::size).register(meterRegistry);
+
+        running = true;
+        consumer = new Thread(this::consume, "rule-audit-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Decide on the request thread whether this object is audited, before any state is copied
+     */
+    public boolean shouldAudit() {
+        if (!enabled) {
+            return false;
         }
+        if (samplingRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < samplingRate) {
+            return true;
+        }
+        sampledOut.increment();
+        return false;
+    }
 
-        private boolean isEqual(Object o1, Object o2) {
-            if (o1 == null && o2 == null) return true;
-            if (o1 == null || o2 == null) return false;
-            return o1.equals(o2);
+    /**
+     * Queue the rules fired for one object. Never blocks; applies the overflow policy when the buffer is full.
+     */
+    public void submit(String objectId, List<FiredRule> firedRules) {
+        if (firedRules.isEmpty()) {
+            return;
         }
+        AuditRecord record = new AuditRecord(objectId, firedRules);
+        submitted.increment();
+
+        if (buffer.offer(record)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            // Make room once; if other producers take the freed slot, the new record is dropped after all
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+            if (buffer.offer(record)) {
+                return;
+            }
+        }
+        dropped.increment();
     }
 
-    public void recordRuleExecution(String ruleName, String objectId, Map<String, Object> beforeState) {
-        RuleExecution execution = new RuleExecution(ruleName, objectId);
-        execution.setBeforeState(beforeState);
+    private void consume() {
+        int idleSpins = 0;
+        while (running || buffer.size() > 0) {
+            AuditRecord record = buffer.poll();
+            if (record == null) {
+                // Back off gradually while the buffer stays empty
+                LockSupport.parkNanos(idleSpins < 100 ? 50_000 : 1_000_000);
+                idleSpins++;
+                continue;
+            }
+            idleSpins = 0;
 
-        // Store temporarily
-        ruleExecutions.computeIfAbsent(objectId, k -> new ArrayList<>()).add(execution);
+            try {
+                process(record);
+                processed.increment();
+            } catch (RuntimeException e) {
+                log.warn("Failed to process audit record for {}", record.objectId, e);
+            }
+        }
     }
 
-    public void completeRuleExecution(String objectId, Map<String, Object> afterState) {
-        List<RuleExecution> executions = ruleExecutions.get(objectId);
-        if (executions != null && !executions.isEmpty()) {
-            RuleExecution lastExecution = executions.get(executions.size() - 1);
-            lastExecution.setAfterState(afterState);
+    private void process(AuditRecord record) {
+        List<RuleExecution> executions = new ArrayList<>(record.firedRules.size());
+        for (FiredRule firedRule : record.firedRules) {
+            RuleExecution execution = new RuleExecution(firedRule.getRuleName(), record.objectId,
+                    new Date(firedRule.getFiredAt()));
+            execution.recordChanges(firedRule.getChanges());
+            executions.add(execution);
+        }
 
-            // Log the execution
-            logRuleExecution(lastExecution);
+        ruleExecutions.put(record.objectId, executions);
+
+        for (RuleExecution execution : executions) {
+            auditLogStore.append(toLogEntry(execution));
+            if (logExecutions) {
+                logRuleExecution(execution);
+            }
         }
     }
 
     private void logRuleExecution(RuleExecution execution) {
-        System.out.println("===== RULE EXECUTION AUDIT =====");
-        System.out.println("Rule: " + execution.getRuleName());
-        System.out.println("Object: " + execution.getObjectId());
-        System.out.println("Time: " + execution.getExecutionTime());
-        System.out.println("Modified properties: " + execution.getModifiedProperties());
-
-        for (String property : execution.getModifiedProperties()) {
-            System.out.println("  " + property + ": " +
-                    execution.getBeforeState().get(property) + " -> " +
-                    execution.getAfterState().get(property));
-        }
-        System.out.println("===============================");
+        StringBuilder sb = new StringBuilder("===== RULE EXECUTION AUDIT =====\n")
+                .append("Rule: ").append(execution.getRuleName()).append('\n')
+                .append("Object: ").append(execution.getObjectId()).append('\n')
+                .append("Time: ").append(execution.getExecutionTime()).append('\n')
+                .append("Modified properties: ").append(execution.getModifiedProperties());
+
+        for (DynamicObject.Change change : execution.getChanges()) {
+            sb.append("\n  ").append(change.getPath()).append(": ")
+                    .append(change.getOldValue()).append(" -> ")
+                    .append(change.getNewValue());
+        }
+        log.info(sb.toString());
+    }
+
+    private AuditLogEntry toLogEntry(RuleExecution execution) {
+        List<AuditLogEntry.PropertyChange> changes = new ArrayList<>(execution.getChanges().size());
+        for (DynamicObject.Change change : execution.getChanges()) {
+            changes.add(new AuditLogEntry.PropertyChange(change.getPath(),
+                    stringValue(change.getOldValue()), stringValue(change.getNewValue())));
+        }
+        return new AuditLogEntry(execution.getExecutionTime().getTime(), execution.getObjectId(),
+                execution.getRuleName(), changes);
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
     }
 
+    /**
+     * Executions for an object, from memory while it is retained there, else from the on-disk audit log
+     */
     public List<RuleExecution> getExecutionsForObject(String objectId) {
-        return ruleExecutions.getOrDefault(objectId, new ArrayList<>());
+        List<RuleExecution> executions = ruleExecutions.get(objectId);
+        if (executions != null) {
+            return new ArrayList<>(executions);
+        }
+
+        List<RuleExecution> fromLog = new ArrayList<>();
+        List<AuditLogEntry> entries = auditLogStore.query(objectId, null, null, null, Integer.MAX_VALUE);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            AuditLogEntry entry = entries.get(i);
+            RuleExecution execution = new RuleExecution(entry.getRuleName(), objectId, new Date(entry.getTimestamp()));
+            List<DynamicObject.Change> changes = new ArrayList<>(entry.getChanges().size());
+            for (AuditLogEntry.PropertyChange change : entry.getChanges()) {
+                changes.add(new DynamicObject.Change(change.getProperty(), change.getBefore(), change.getAfter()));
+            }
+            execution.recordChanges(changes);
+            fromLog.add(execution);
+        }
+        return fromLog;
     }
 
     public void clearExecutions() {
         ruleExecutions.clear();
     }
-}
\ No newline at end of file
+}
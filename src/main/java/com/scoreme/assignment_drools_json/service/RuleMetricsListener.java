@@ -0,0 +1,113 @@
+package com.scoreme.assignment_drools_json.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.MatchCancelledEvent;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agenda and working memory listener publishing per-rule metrics:
+ * drools.rule.matches / drools.rule.cancelled (counters) and drools.rule.fired (RHS time; its count is
+ * the fire count), all tagged with the rule name, plus drools.facts{operation=insert|update}.
+ * Like {@link AuditAgendaListener}, one instance is attached to every session; meters are looked up
+ * once per rule and cached, so an event costs a map lookup and an increment.
+ */
+public class RuleMetricsListener extends DefaultAgendaEventListener implements RuleRuntimeEventListener {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean histograms;
+    private final ConcurrentHashMap<String, RuleMeters> meters = new ConcurrentHashMap<>();
+    private final Counter inserts;
+    private final Counter updates;
+
+    // Start of the RHS running on this thread; a session fires one match at a time
+    private final ThreadLocal<long[]> firingSince = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * @param histograms publish percentile histogram buckets for the RHS timers, not just count/sum/max
+     */
+    public RuleMetricsListener(MeterRegistry meterRegistry, boolean histograms) {
+        this.meterRegistry = meterRegistry;
+        this.histograms = histograms;
+        this.inserts = Counter.builder("drools.facts").tag("operation", "insert")
+                .description("Facts inserted, by requests and by rule consequences").register(meterRegistry);
+        this.updates = Counter.builder("drools.facts").tag("operation", "update")
+                .description("Facts modified by rule consequences").register(meterRegistry);
+    }
+
+    @Override
+    public void matchCreated(MatchCreatedEvent event) {
+        meters(event.getMatch().getRule().getName()).matches.increment();
+    }
+
+    @Override
+    public void matchCancelled(MatchCancelledEvent event) {
+        meters(event.getMatch().getRule().getName()).cancelled.increment();
+    }
+
+    @Override
+    public void beforeMatchFired(BeforeMatchFiredEvent event) {
+        firingSince.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterMatchFired(AfterMatchFiredEvent event) {
+        long elapsed = System.nanoTime() - firingSince.get()[0];
+        meters(event.getMatch().getRule().getName()).fired.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void objectInserted(ObjectInsertedEvent event) {
+        inserts.increment();
+    }
+
+    @Override
+    public void objectUpdated(ObjectUpdatedEvent event) {
+        updates.increment();
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        // Deletes are almost all pooled sessions being reset, which says nothing about the rules
+    }
+
+    private RuleMeters meters(String ruleName) {
+        RuleMeters ruleMeters = meters.get(ruleName);
+        return ruleMeters != null ? ruleMeters : meters.computeIfAbsent(ruleName, this::register);
+    }
+
+    private RuleMeters register(String ruleName) {
+        Counter matches = Counter.builder("drools.rule.matches").tag("rule", ruleName)
+                .description("Activations created").register(meterRegistry);
+        Counter cancelled = Counter.builder("drools.rule.cancelled").tag("rule", ruleName)
+                .description("Activations cancelled before firing").register(meterRegistry);
+        Timer fired = Timer.builder("drools.rule.fired").tag("rule", ruleName)
+                .description("Consequence (RHS) execution time")
+                .publishPercentileHistogram(histograms)
+                .register(meterRegistry);
+        return new RuleMeters(matches, cancelled, fired);
+    }
+
+    private static class RuleMeters {
+        private final Counter matches;
+        private final Counter cancelled;
+        private final Timer fired;
+
+        RuleMeters(Counter matches, Counter cancelled, Timer fired) {
+            this.matches = matches;
+            this.cancelled = cancelled;
+            this.fired = fired;
+        }
+    }
+}
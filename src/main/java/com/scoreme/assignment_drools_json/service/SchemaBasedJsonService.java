@@ -3,6 +3,7 @@ package com.scoreme.assignment_drools_json.service;
 import com.google.gson.*;
 import com.scoreme.assignment_drools_json.model.DynamicObject;
 import com.scoreme.assignment_drools_json.model.Schema;
+import com.scoreme.assignment_drools_json.utility.JsonPathExtractor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +12,8 @@ import java.util.*;
 @Service
 public class SchemaBasedJsonService {
 
+    private static final Gson gson = new Gson();
+
     @Autowired
     private SchemaService schemaService;
 
@@ -19,17 +22,17 @@ public class SchemaBasedJsonService {
      */
     public DynamicObject convertJsonWithSchema(String jsonStr) {
         // Parse JSON
-        JsonObject jsonObject = new Gson().fromJson(jsonStr, JsonObject.class);
+        JsonObject jsonObject = gson.fromJson(jsonStr, JsonObject.class);
 
-        // Infer schema from JSON
-        Schema schema = schemaService.inferSchemaFromJson(jsonStr);
+        // Infer schema from the parsed tree; known shapes come from the schema cache
+        Schema schema = schemaService.inferSchema(jsonObject);
 
         // Create dynamic object with reference to original JSON
         DynamicObject dynamicObject = new DynamicObject(jsonObject);
 
         // Add schema information to dynamic object
-        dynamicObject.set("_schema_dataObjectName", schema.getDataObjectName());
-        dynamicObject.set("_schema_package", schema.getPackage());
+        dynamicObject.put("_schema_dataObjectName", schema.getDataObjectName());
+        dynamicObject.put("_schema_package", schema.getPackage());
 
         // Process data points from schema
         processDataPoints(schema, jsonObject, dynamicObject);
@@ -46,7 +49,7 @@ public class SchemaBasedJsonService {
     private void processDataPoints(Schema schema, JsonObject jsonObject, DynamicObject dynamicObject) {
         for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
             String api = dataPoint.getApi();
-            dynamicObject.set("_api_" + api, true);
+            dynamicObject.put("_api_" + api, true);
 
             for (Schema.DataObject dataObj : dataPoint.getDataObjects()) {
                 String keyName = dataObj.getKeyName();
@@ -58,10 +61,10 @@ public class SchemaBasedJsonService {
                 if (value != null) {
                     // Apply type conversion if needed
                     Object convertedValue = convertValueToType(value, dataType);
-                    dynamicObject.set(keyName, convertedValue);
+                    dynamicObject.put(keyName, convertedValue);
 
                     // Store type information
-                    dynamicObject.set("_type_" + keyName, dataType);
+                    dynamicObject.put("_type_" + keyName, dataType);
                 }
             }
         }
@@ -71,24 +74,10 @@ public class SchemaBasedJsonService {
      * Extract value from JSON using path notation (e.g., "customer_details_name")
      */
     private Object extractValueFromJsonPath(JsonObject json, String path) {
-        String[] parts = path.split("_");
-        JsonElement currentElement = json;
-
-        for (String part : parts) {
-            if (currentElement == null || !currentElement.isJsonObject()) {
-                return null;
-            }
-
-            JsonObject currentObject = currentElement.getAsJsonObject();
-            if (!currentObject.has(part)) {
-                return null;
-            }
-
-            currentElement = currentObject.get(part);
-        }
+        JsonElement element = JsonPathExtractor.compile(path).select(json);
 
         // Convert to appropriate Java type
-        return convertJsonElementToObject(currentElement);
+        return element != null ? convertJsonElementToObject(element) : null;
     }
 
     /**
@@ -195,14 +184,7 @@ public class SchemaBasedJsonService {
      * Find data type in schema for a given path
      */
     private String findDataTypeInSchema(Schema schema, String path) {
-        for (Schema.DataPoint dataPoint : schema.getDataPoints()) {
-            for (Schema.DataObject dataObj : dataPoint.getDataObjects()) {
-                if (dataObj.getKeyName().equals(path)) {
-                    return dataObj.getDataType();
-                }
-            }
-        }
-        return null; // Not found in schema
+        return schema.getPathIndex().getDataType(path);
     }
 
     /**
@@ -213,15 +195,15 @@ public class SchemaBasedJsonService {
         if (dataType != null) {
             // Use schema-defined data type
             Object convertedValue = convertJsonPrimitiveToType(primitive, dataType);
-            dynamicObject.set(path, convertedValue);
+            dynamicObject.put(path, convertedValue);
         } else {
             // Infer type
             if (primitive.isNumber()) {
-                dynamicObject.set(path, primitive.getAsNumber());
+                dynamicObject.put(path, primitive.getAsNumber());
             } else if (primitive.isBoolean()) {
-                dynamicObject.set(path, primitive.getAsBoolean());
+                dynamicObject.put(path, primitive.getAsBoolean());
             } else {
-                dynamicObject.set(path, primitive.getAsString());
+                dynamicObject.put(path, primitive.getAsString());
             }
         }
     }
@@ -294,11 +276,11 @@ public class SchemaBasedJsonService {
 
         // Store the entire array structure
         if (containsObjects) {
-            dynamicObject.set(path, objectValues);
+            dynamicObject.put(path, objectValues);
             // Extract key values for rules
             extractKeyValues(objectValues, path, dynamicObject);
         } else if (!values.isEmpty()) {
-            dynamicObject.set(path, values);
+            dynamicObject.put(path, values);
         }
     }
 
@@ -306,11 +288,7 @@ public class SchemaBasedJsonService {
      * Find element type for array elements from schema
      */
     private String findArrayElementType(Schema schema, String path) {
-        String dataType = findDataTypeInSchema(schema, path);
-        if (dataType != null && dataType.endsWith("[]")) {
-            return dataType.substring(0, dataType.length() - 2);
-        }
-        return null;
+        return schema.getPathIndex().getArrayElementType(path);
     }
 
     /**
@@ -327,7 +305,7 @@ public class SchemaBasedJsonService {
             }
             // Store all severity values so rules can easily check them
             if (!allSeverities.isEmpty()) {
-                dynamicObject.set(basePath + "_severity", allSeverities);
+                dynamicObject.put(basePath + "_severity", allSeverities);
             }
         }
     }
@@ -0,0 +1,36 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.scoreme.assignment_drools_json.model.Schema;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published the first time a document shape is seen that is not in the schema registry
+ */
+public class SchemaDriftEvent extends ApplicationEvent {
+
+    private final String fingerprint;
+    private final Schema schema;
+    private final int knownShapes;
+
+    public SchemaDriftEvent(Object source, String fingerprint, Schema schema, int knownShapes) {
+        super(source);
+        this.fingerprint = fingerprint;
+        this.schema = schema;
+        this.knownShapes = knownShapes;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Number of shapes in the registry including this one
+     */
+    public int getKnownShapes() {
+        return knownShapes;
+    }
+}
@@ -0,0 +1,226 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.scoreme.assignment_drools_json.utility.StreamingJsonFlattener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SHA-256 of everything schema inference looks at: object keys in order, nesting, and the inferred type of
+ * every leaf. Two documents with the same fingerprint infer the same schema up to array indices, so the
+ * fingerprint keys the schema cache. It is computed in one pass over the tokens (or the tree) without
+ * building a schema.
+ *
+ * An array contributes the distinct shapes of its elements, in order of first appearance, not one entry per
+ * element: arrays that only differ in how many times an element shape repeats share a fingerprint, and the
+ * schema cached for them lists the element paths of the first one seen. Schema lookups of other indices go
+ * through the wildcard keys of the schema path index.
+ */
+final class SchemaFingerprint {
+
+    // Markers keep the encoding unambiguous: every item starts with one
+    private static final byte OBJECT_START = 'O';
+    private static final byte OBJECT_END = 'o';
+    private static final byte ARRAY_START = 'A';
+    private static final byte ARRAY_END = 'a';
+    private static final byte KEY = 'K';
+    private static final byte LEAF = 'L';
+    private static final byte ELEMENT = 'E';
+    private static final byte NULL_LEAF = 'N';
+
+    private static final int KEY_LENGTH = 64;
+
+    // Digests by array nesting depth, reused for every element at that depth
+    private final List<Hasher> hashers = new ArrayList<>();
+
+    private SchemaFingerprint() {
+    }
+
+    /**
+     * Fingerprint of a JSON document read straight from its text, without building a tree
+     */
+    static String of(String json) {
+        SchemaFingerprint fingerprint = new SchemaFingerprint();
+        Hasher root = fingerprint.hasher(0);
+        try (JsonParser parser = StreamingJsonFlattener.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token != null) {
+                fingerprint.mixValue(parser, token, root, 0);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+        return HexFormat.of().formatHex(root.finish());
+    }
+
+    /**
+     * Fingerprint of an already parsed document; equal to {@link #of(String)} of its text
+     */
+    static String of(JsonObject json) {
+        SchemaFingerprint fingerprint = new SchemaFingerprint();
+        Hasher root = fingerprint.hasher(0);
+        fingerprint.mixElement(json, root, 0);
+        return HexFormat.of().formatHex(root.finish());
+    }
+
+    /**
+     * Whether a stored fingerprint was produced by this version of the fingerprint
+     */
+    static boolean isCurrent(String fingerprint) {
+        return fingerprint != null && fingerprint.length() == KEY_LENGTH;
+    }
+
+    private void mixValue(JsonParser parser, JsonToken token, Hasher into, int depth) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                into.put(OBJECT_START);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    into.put(KEY, parser.currentName());
+                    mixValue(parser, parser.nextToken(), into, depth);
+                }
+                into.put(OBJECT_END);
+                break;
+            case START_ARRAY:
+                into.put(ARRAY_START);
+                Set<ByteBuffer> shapes = new HashSet<>();
+                Hasher element = hasher(depth + 1);
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    mixValue(parser, next, element, depth + 1);
+                    mixShape(element.finish(), into, shapes);
+                }
+                into.put(ARRAY_END);
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                into.put(LEAF, SchemaService.inferDataType(true, false, null));
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                into.put(LEAF, SchemaService.inferDataType(false, true, parser.getText()));
+                break;
+            case VALUE_STRING:
+                into.put(LEAF, SchemaService.inferDataType(false, false, parser.getText()));
+                break;
+            default:
+                into.put(NULL_LEAF);
+        }
+    }
+
+    private void mixElement(JsonElement element, Hasher into, int depth) {
+        if (element.isJsonObject()) {
+            into.put(OBJECT_START);
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                into.put(KEY, entry.getKey());
+                mixElement(entry.getValue(), into, depth);
+            }
+            into.put(OBJECT_END);
+        } else if (element.isJsonArray()) {
+            into.put(ARRAY_START);
+            Set<ByteBuffer> shapes = new HashSet<>();
+            Hasher hasher = hasher(depth + 1);
+            for (JsonElement item : element.getAsJsonArray()) {
+                mixElement(item, hasher, depth + 1);
+                mixShape(hasher.finish(), into, shapes);
+            }
+            into.put(ARRAY_END);
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            into.put(LEAF, SchemaService.inferDataType(primitive.isBoolean(), primitive.isNumber(),
+                    primitive.getAsString()));
+        } else {
+            into.put(NULL_LEAF);
+        }
+    }
+
+    // An element shape counts once per array, at its first appearance
+    private static void mixShape(byte[] shape, Hasher into, Set<ByteBuffer> shapes) {
+        if (shapes.add(ByteBuffer.wrap(shape))) {
+            into.put(ELEMENT, shape);
+        }
+    }
+
+    private Hasher hasher(int depth) {
+        while (hashers.size() <= depth) {
+            hashers.add(new Hasher());
+        }
+        return hashers.get(depth);
+    }
+
+    /**
+     * SHA-256 fed through a small buffer, so markers and key characters are not digested a byte at a time
+     */
+    private static final class Hasher {
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[512];
+        private int position;
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void put(byte marker) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = marker;
+        }
+
+        // Marker, length, then UTF-16 code units, so no two strings encode alike
+        void put(byte marker, String value) {
+            if (position + 5 > buffer.length) {
+                flush();
+            }
+            int length = value.length();
+            buffer[position++] = marker;
+            buffer[position++] = (byte) (length >>> 24);
+            buffer[position++] = (byte) (length >>> 16);
+            buffer[position++] = (byte) (length >>> 8);
+            buffer[position++] = (byte) length;
+            for (int i = 0; i < length; i++) {
+                if (position + 2 > buffer.length) {
+                    flush();
+                }
+                char c = value.charAt(i);
+                buffer[position++] = (byte) (c >>> 8);
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        void put(byte marker, byte[] bytes) {
+            put(marker);
+            flush();
+            digest.update(bytes);
+        }
+
+        /**
+         * The digest of everything put since the last finish; the hasher starts over
+         */
+        byte[] finish() {
+            flush();
+            return digest.digest();
+        }
+
+        private void flush() {
+            digest.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.scoreme.assignment_drools_json.model.Schema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every document shape seen so far, persisted to a local append-only file (one JSON line per shape)
+ * so inferred schemas survive restarts. A shape that is not in the registry is schema drift: it is
+ * appended to the file, logged and published as a {@link SchemaDriftEvent}.
+ *
+ * Memory is bounded by schema.registry.max-entries: the registry remembers that many of the most recently
+ * seen shapes, and a shape that fell out is reported as drift again when it comes back. The schemas read
+ * from the file are handed to the schema cache once and not kept.
+ */
+@Service
+public class SchemaRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaRegistry.class);
+
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Registry file; empty keeps the registry in memory only
+    @Value("${schema.registry.file:schema-registry.ndjson}")
+    private String registryFile;
+
+    // Shapes recorded in the file and remembered in memory; further shapes are still reported but no longer persisted
+    @Value("${schema.registry.max-entries:10000}")
+    private int maxEntries;
+
+    private Path registryPath;
+    // Most recently seen shapes, least recently seen dropped first
+    private final Map<String, Boolean> knownShapes = Collections.synchronizedMap(new BoundedMap<>());
+    // Newest schemas read from the file at startup, until they are taken to warm the schema cache
+    private Map<String, Schema> loadedSchemas = new BoundedMap<>();
+    private final AtomicInteger shapeCount = new AtomicInteger();
+    private int persisted; // guarded by this
+    private Counter drift;
+    private volatile boolean fullLogged;
+
+    @PostConstruct
+    public void init() {
+        drift = Counter.builder("schema.drift").register(meterRegistry);
+        if (registryFile == null || registryFile.isBlank()) {
+            return;
+        }
+
+        registryPath = Paths.get(registryFile).toAbsolutePath();
+        if (!Files.exists(registryPath)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(registryPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    Entry entry = gson.fromJson(line, Entry.class);
+                    if (entry == null || entry.fingerprint == null) {
+                        continue;
+                    }
+                    persisted++;
+                    // Lines of an older fingerprint never match again; the shape is registered anew when seen
+                    if (SchemaFingerprint.isCurrent(entry.fingerprint)
+                            && knownShapes.putIfAbsent(entry.fingerprint, Boolean.TRUE) == null) {
+                        shapeCount.incrementAndGet();
+                        loadedSchemas.put(entry.fingerprint, entry.schema);
+                    }
+                } catch (JsonParseException e) {
+                    // A torn last line after a crash; the shape is simply registered again when it is next seen
+                    log.warn("Skipping unreadable schema registry line in {}", registryPath);
+                }
+            }
+            log.info("Loaded {} schema shapes from {}", shapeCount.get(), registryPath);
+        } catch (IOException e) {
+            log.warn("Cannot read schema registry {}, starting empty", registryPath, e);
+        }
+    }
+
+    /**
+     * Schemas persisted by earlier runs, oldest first. Handed over once: later calls return nothing.
+     */
+    public synchronized Map<String, Schema> takeLoadedSchemas() {
+        Map<String, Schema> schemas = loadedSchemas;
+        loadedSchemas = Collections.emptyMap();
+        return schemas;
+    }
+
+    /**
+     * Shapes registered so far, including those loaded from the file; a shape reported again after it
+     * fell out of memory counts again
+     */
+    public int size() {
+        return shapeCount.get();
+    }
+
+    /**
+     * Record a shape after inferring its schema; reports drift the first time the shape is seen
+     * @return true if the shape was new
+     */
+    public boolean register(String fingerprint, Schema schema) {
+        if (knownShapes.putIfAbsent(fingerprint, Boolean.TRUE) != null) {
+            return false;
+        }
+
+        drift.increment();
+        int known = shapeCount.incrementAndGet();
+        log.info("New document shape {} ({} paths, {} shapes known)", fingerprint,
+                schema.getDataPoints().get(0).getDataObjects().size(), known);
+        persist(fingerprint, schema);
+        eventPublisher.publishEvent(new SchemaDriftEvent(this, fingerprint, schema, known));
+        return true;
+    }
+
+    private synchronized void persist(String fingerprint, Schema schema) {
+        if (registryPath == null) {
+            return;
+        }
+        if (persisted >= maxEntries) {
+            if (!fullLogged) {
+                fullLogged = true;
+                log.warn("Schema registry {} reached {} shapes; new shapes are no longer persisted", registryPath, maxEntries);
+            }
+            return;
+        }
+
+        Entry entry = new Entry();
+        entry.fingerprint = fingerprint;
+        entry.firstSeen = System.currentTimeMillis();
+        entry.schema = schema;
+        try (Writer writer = Files.newBufferedWriter(registryPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(gson.toJson(entry));
+            writer.write('\n');
+            persisted++;
+        } catch (IOException e) {
+            log.warn("Cannot append to schema registry {}", registryPath, e);
+        }
+    }
+
+    /**
+     * Access-ordered map of at most maxEntries entries, least recently used dropped first
+     */
+    private class BoundedMap<V> extends LinkedHashMap<String, V> {
+        BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /**
+     * One line of the registry file
+     */
+    private static class Entry {
+        private String fingerprint;
+        private long firstSeen;
+        private Schema schema;
+    }
+}
@@ -5,10 +5,17 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.scoreme.assignment_drools_json.model.Schema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -19,9 +26,80 @@ public class SchemaService {
     // Pattern to check if a string is numeric
     private static final Pattern NUMERIC_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?");
 
-    // Improved schema inference with better type detection
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Inferred schemas kept by structural fingerprint, least recently used evicted first
+    @Value("${schema.cache.max-entries:1024}")
+    private int cacheMaxEntries;
+
+    private Map<String, Schema> schemaCache;
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    @PostConstruct
+    public void init() {
+        schemaCache = Collections.synchronizedMap(new LinkedHashMap<String, Schema>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Schema> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        });
+        // Shapes known from earlier runs are served without inference from the first request
+        schemaCache.putAll(schemaRegistry.takeLoadedSchemas());
+
+        cacheHits = Counter.builder("schema.cache").tag("result", "hit").register(meterRegistry);
+        cacheMisses = Counter.builder("schema.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Schema of a document. Documents with a known shape are answered from the cache after one streaming
+     * pass over the text, without building a tree. The returned schema is shared and must not be modified.
+     */
     public Schema inferSchemaFromJson(String json) {
-        JsonObject jsonObject = new Gson().fromJson(json, JsonObject.class);
+        String fingerprint;
+        try {
+            fingerprint = SchemaFingerprint.of(json);
+        } catch (IllegalArgumentException e) {
+            // JSON only Gson's lenient parser reads (unquoted string values, NaN, ...)
+            return inferSchema(gson.fromJson(json, JsonObject.class));
+        }
+        Schema cached = cachedSchema(fingerprint);
+        return cached != null ? cached : inferAndCache(fingerprint, gson.fromJson(json, JsonObject.class));
+    }
+
+    /**
+     * Schema of an already parsed document, for callers that need the tree anyway
+     */
+    public Schema inferSchema(JsonObject jsonObject) {
+        String fingerprint = SchemaFingerprint.of(jsonObject);
+        Schema cached = cachedSchema(fingerprint);
+        return cached != null ? cached : inferAndCache(fingerprint, jsonObject);
+    }
+
+    private Schema cachedSchema(String fingerprint) {
+        Schema cached = schemaCache.get(fingerprint);
+        if (cached != null) {
+            cacheHits.increment();
+        }
+        return cached;
+    }
+
+    private Schema inferAndCache(String fingerprint, JsonObject jsonObject) {
+        cacheMisses.increment();
+        Schema schema = inferSchemaFromTree(jsonObject);
+        schemaCache.put(fingerprint, schema);
+        schemaRegistry.register(fingerprint, schema);
+        return schema;
+    }
+
+    // Improved schema inference with better type detection
+    private Schema inferSchemaFromTree(JsonObject jsonObject) {
         Schema schema = new Schema();
         schema.setDataObjectName("DynamicObjects");
         schema.setPackage("com.scoreme.assignment_drools_json");
@@ -116,38 +194,49 @@ public class SchemaService {
 
     private String inferDataTypeAdvanced(JsonElement element) {
         if (element.isJsonPrimitive()) {
-            if (element.getAsJsonPrimitive().isBoolean()) {
-                return "Boolean";
-            } else if (element.getAsJsonPrimitive().isNumber()) {
-                // Check if it's an integer or decimal
-                String numStr = element.getAsString();
-                if (numStr.contains(".")) {
-                    return "Double";
-                } else {
-                    // Check range to determine if it's an Integer or Long
-                    try {
-                        Integer.parseInt(numStr);
-                        return "Integer";
-                    } catch (NumberFormatException e) {
-                        return "Long";
-                    }
-                }
+            return inferDataType(element.getAsJsonPrimitive().isBoolean(), element.getAsJsonPrimitive().isNumber(),
+                    element.getAsString());
+        }
+        return "Object";
+    }
+
+    /**
+     * Type of a primitive value from its kind and text; shared with {@link SchemaFingerprint} so the
+     * fingerprint captures exactly what inference distinguishes
+     */
+    static String inferDataType(boolean isBoolean, boolean isNumber, String text) {
+        if (isBoolean) {
+            return "Boolean";
+        } else if (isNumber) {
+            // Check if it's an integer or decimal
+            if (text.contains(".")) {
+                return "Double";
             } else {
-                // String type - but check if it might be a date
-                String strValue = element.getAsString();
-                if (isDateFormat(strValue)) {
-                    return "Date";
-                } else if (NUMERIC_PATTERN.matcher(strValue).matches()) {
-                    // It's a number stored as a string, should be converted to Number
-                    return "Number";
+                // Check range to determine if it's an Integer or Long
+                try {
+                    Integer.parseInt(text);
+                    return "Integer";
+                } catch (NumberFormatException e) {
+                    return "Long";
                 }
+            }
+        } else {
+            // String type - but check if it might be a date
+            if (text.isEmpty() || (!Character.isDigit(text.charAt(0)) && text.charAt(0) != '-')) {
+                // Dates and numbers start with a digit or sign; skip the patterns for everything else
                 return "String";
             }
+            if (isDateFormat(text)) {
+                return "Date";
+            } else if (NUMERIC_PATTERN.matcher(text).matches()) {
+                // It's a number stored as a string, should be converted to Number
+                return "Number";
+            }
+            return "String";
         }
-        return "Object";
     }
 
-    private boolean isDateFormat(String str) {
+    private static boolean isDateFormat(String str) {
         // Simple check for common date formats (could be expanded)
         return str.matches("\\d{4}-\\d{2}-\\d{2}.*") || // ISO date
                 str.matches("\\d{2}/\\d{2}/\\d{4}.*") || // MM/DD/YYYY
@@ -0,0 +1,289 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.google.gson.Gson;
+import com.scoreme.assignment_drools_json.model.CapturedRequest;
+import com.scoreme.assignment_drools_json.utility.BodyFormat;
+import com.scoreme.assignment_drools_json.utility.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in capture of the request bodies received by /process, for replaying production traffic offline.
+ * Request threads hand sampled requests to a ring buffer bounded both in requests and in body bytes, so a
+ * burst of large bodies cannot pile up in the heap; a background writer appends them as
+ * JSON lines ({@link CapturedRequest}) to gzip files in the capture directory, rolling over to a new file
+ * at capture.file.max-bytes and stopping for good once the directory holds capture.max-bytes.
+ * Files are sync-flushed whenever the buffer runs empty, so a file cut off by a crash still reads
+ * up to its last flush.
+ */
+@Service
+public class TrafficCaptureService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficCaptureService.class);
+
+    private static final Gson gson = new Gson();
+
+    public static final String FILE_PREFIX = "capture-";
+    public static final String FILE_SUFFIX = ".ndjson.gz";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${capture.enabled:false}")
+    private boolean enabled;
+
+    @Value("${capture.dir:traffic-capture}")
+    private String directory;
+
+    // Fraction of requests that are captured, 0.0 - 1.0
+    @Value("${capture.sampling-rate:0.01}")
+    private double samplingRate;
+
+    // Compressed size of all capture files in the directory, beyond which capture stops
+    @Value("${capture.max-bytes:1073741824}")
+    private long maxBytes;
+
+    // Compressed size at which the current file is closed and a new one started
+    @Value("${capture.file.max-bytes:67108864}")
+    private long fileMaxBytes;
+
+    @Value("${capture.buffer.capacity:1024}")
+    private int bufferCapacity;
+
+    // Body bytes held in the buffer, beyond which sampled requests are dropped
+    @Value("${capture.buffer.max-bytes:16777216}")
+    private long bufferMaxBytes;
+
+    private Path capturePath;
+    private BoundedRingBuffer<Sampled> buffer;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean full;
+
+    // Written by the writer thread only
+    private long closedFilesBytes;
+    private CountingOutputStream fileBytes;
+    private Writer fileWriter;
+
+    private Counter captured;
+    private Counter sampledOut;
+    private Counter dropped;
+    private Counter overCap;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        capturePath = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(capturePath);
+        // Earlier captures count against the cap, so restarts cannot fill the disk
+        try (Stream<Path> files = Files.list(capturePath)) {
+            closedFilesBytes = files.filter(TrafficCaptureService::isCaptureFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+        full = closedFilesBytes >= maxBytes;
+
+        buffer = new BoundedRingBuffer<>(bufferCapacity);
+        captured = Counter.builder("capture.requests").tag("outcome", "captured").register(meterRegistry);
+        sampledOut = Counter.builder("capture.requests").tag("outcome", "sampled-out").register(meterRegistry);
+        dropped = Counter.builder("capture.requests").tag("outcome", "dropped").register(meterRegistry);
+        overCap = Counter.builder("capture.requests").tag("outcome", "over-cap").register(meterRegistry);
+        Gauge.builder("capture.buffer.bytes", bufferedBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("capture.bytes", this, service -> service.closedFilesBytes
+                + (service.fileBytes != null ? service.fileBytes.count : 0)).register(meterRegistry);
+
+        log.info("Capturing {} of /process requests to {} ({} of {} bytes used)",
+                samplingRate, capturePath, closedFilesBytes, maxBytes);
+
+        running = true;
+        writer = new Thread(this::write, "traffic-capture-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record one request if it is sampled. Never blocks; the request is dropped when the buffer is full,
+     * by count or by bytes.
+     * @param apiType null for endpoints without an API type
+     * @param body the request body, kept as is; it is encoded for the capture file by the writer
+     * @param format the body's format, recorded with it
+     */
+    public void capture(String endpoint, String apiType, byte[] body, BodyFormat format) {
+        if (!enabled) {
+            return;
+        }
+        if (full) {
+            overCap.increment();
+            return;
+        }
+        if (samplingRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= samplingRate) {
+            sampledOut.increment();
+            return;
+        }
+        Sampled request = new Sampled(System.currentTimeMillis(), endpoint, apiType, format, body);
+        // Reserve the bytes first, so concurrent requests cannot overshoot the bound together
+        long size = body.length;
+        if (bufferedBytes.addAndGet(size) > bufferMaxBytes) {
+            bufferedBytes.addAndGet(-size);
+            dropped.increment();
+        } else if (!buffer.offer(request)) {
+            bufferedBytes.addAndGet(-size);
+            dropped.increment();
+        }
+    }
+
+    private void write() {
+        int idleSpins = 0;
+        try {
+            while (running || buffer.size() > 0) {
+                Sampled request = buffer.poll();
+                if (request == null) {
+                    if (idleSpins == 0 && fileWriter != null) {
+                        fileWriter.flush();
+                    }
+                    // Back off gradually while the buffer stays empty
+                    LockSupport.parkNanos(idleSpins < 100 ? 100_000 : 5_000_000);
+                    idleSpins++;
+                    continue;
+                }
+                idleSpins = 0;
+                bufferedBytes.addAndGet(-request.body.length);
+                append(new CapturedRequest(request.timestamp, request.endpoint, request.apiType, request.format,
+                        request.body));
+            }
+        } catch (IOException e) {
+            full = true;
+            log.warn("Traffic capture to {} failed, capture stopped", capturePath, e);
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void append(CapturedRequest request) throws IOException {
+        if (full) {
+            overCap.increment();
+            return;
+        }
+        if (fileWriter == null) {
+            openFile();
+        }
+        fileWriter.write(gson.toJson(request));
+        fileWriter.write('\n');
+        captured.increment();
+
+        // Compressed sizes only move when the deflater emits a block, so the caps are approximate
+        if (fileBytes.count >= fileMaxBytes) {
+            closeFile();
+        }
+        if (closedFilesBytes + (fileBytes != null ? fileBytes.count : 0) >= maxBytes) {
+            closeFile();
+            full = true;
+            log.info("Traffic capture reached {} bytes in {}, capture stopped", maxBytes, capturePath);
+        }
+    }
+
+    private void openFile() throws IOException {
+        String name = FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + FILE_SUFFIX;
+        fileBytes = new CountingOutputStream(Files.newOutputStream(capturePath.resolve(name)));
+        fileWriter = new OutputStreamWriter(new GZIPOutputStream(fileBytes, 64 * 1024, true), StandardCharsets.UTF_8);
+    }
+
+    private void closeFile() {
+        if (fileWriter == null) {
+            return;
+        }
+        try {
+            fileWriter.close();
+        } catch (IOException e) {
+            log.warn("Failed to close traffic capture file in {}", capturePath, e);
+        }
+        closedFilesBytes += fileBytes.count;
+        fileWriter = null;
+        fileBytes = null;
+    }
+
+    public static boolean isCaptureFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+    }
+
+    /**
+     * A sampled request waiting for the writer
+     */
+    private static final class Sampled {
+        private final long timestamp;
+        private final String endpoint;
+        private final String apiType;
+        private final BodyFormat format;
+        private final byte[] body;
+
+        Sampled(long timestamp, String endpoint, String apiType, BodyFormat format, byte[] body) {
+            this.timestamp = timestamp;
+            this.endpoint = endpoint;
+            this.apiType = apiType;
+            this.format = format;
+            this.body = body;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private volatile long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Encodings of request and response bodies: textual JSON and the binary CBOR and Smile encodings of the
+ * same data model. JSON is read with StreamingJsonFlattener's lenient parser and written by Gson, as before;
+ * the binary formats are read and written with Jackson.
+ */
+public enum BodyFormat {
+
+    JSON("application/json", null),
+    CBOR("application/cbor", new CBORFactory()),
+    SMILE("application/x-jackson-smile", new SmileFactory());
+
+    private final String mediaType;
+    private final JsonFactory factory;
+
+    BodyFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isBinary() {
+        return factory != null;
+    }
+
+    JsonParser createParser(byte[] body) throws IOException {
+        return factory != null ? factory.createParser(body) : StreamingJsonFlattener.createParser(body);
+    }
+
+    /**
+     * Generator for the binary formats; JSON is written through Gson
+     */
+    JsonGenerator createGenerator(OutputStream output) throws IOException {
+        if (factory == null) {
+            throw new IllegalStateException("JSON output is written by Gson");
+        }
+        return factory.createGenerator(output);
+    }
+
+    /**
+     * Format of a request body by its Content-Type; anything unrecognised (text/plain, none) is JSON
+     */
+    public static BodyFormat forContentType(String contentType) {
+        BodyFormat format = forMediaType(contentType);
+        return format != null ? format : JSON;
+    }
+
+    /**
+     * Response format for an Accept header: the first listed format supported, or the request's format
+     * when there is no Accept header or it lists a wildcard before any supported format
+     */
+    public static BodyFormat forAccept(String accept, BodyFormat requestFormat) {
+        if (accept == null || accept.isBlank()) {
+            return requestFormat;
+        }
+        for (String mediaRange : accept.split(",")) {
+            String mediaType = mediaRange.split(";", 2)[0].trim();
+            if (mediaType.endsWith("/*")) {
+                return requestFormat;
+            }
+            BodyFormat format = forMediaType(mediaType);
+            if (format != null) {
+                return format;
+            }
+        }
+        return requestFormat;
+    }
+
+    private static BodyFormat forMediaType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        for (BodyFormat format : values()) {
+            if (format.mediaType.equals(mediaType)) {
+                return format;
+            }
+        }
+        // application/problem+json and the like
+        return mediaType.endsWith("+json") ? JSON : null;
+    }
+}
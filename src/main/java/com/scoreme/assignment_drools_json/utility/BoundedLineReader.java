@@ -0,0 +1,114 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines of at most maxBytes bytes from a stream. A longer line is reported as oversize and
+ * skipped through its end without being buffered, so memory stays bounded however long a line is.
+ * Lines end at "\n"; a "\r" before it is dropped.
+ */
+public class BoundedLineReader {
+
+    private final InputStream input;
+    private final int maxBytes;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private boolean oversize;
+    private long length;
+
+    public BoundedLineReader(InputStream input, int maxBytes) {
+        this.input = input;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Advance to the next line
+     * @return false at the end of the stream
+     */
+    public boolean next() throws IOException {
+        line.reset();
+        oversize = false;
+        length = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = input.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    finish();
+                    return read;
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            append(start, position);
+            if (position < limit) {
+                position++; // the '\n'
+                finish();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The current line, or null when it is oversize
+     */
+    public String line() {
+        if (oversize) {
+            return null;
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the current line is longer than maxBytes
+     */
+    public boolean isOversize() {
+        return oversize;
+    }
+
+    /**
+     * Length of the current line in bytes, including an oversize one
+     */
+    public long length() {
+        return length;
+    }
+
+    // Drop the "\r" of a "\r\n" ending, then apply the limit to what is left
+    private void finish() {
+        if (oversize || line.size() == 0) {
+            return;
+        }
+        byte[] bytes = line.toByteArray();
+        int end = bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        line.reset();
+        if (end > maxBytes) {
+            oversize = true;
+            return;
+        }
+        line.write(bytes, 0, end);
+    }
+
+    private void append(int start, int end) {
+        length += end - start;
+        if (oversize) {
+            return;
+        }
+        // One more byte than the limit is allowed for a "\r" ending the line
+        if (length > maxBytes + 1L) {
+            oversize = true;
+            line.reset();
+            return;
+        }
+        line.write(buffer, start, end - start);
+    }
+}
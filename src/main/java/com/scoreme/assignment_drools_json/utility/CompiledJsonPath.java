@@ -0,0 +1,200 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flattened path ("customerDetails_0_contactInfo_email") split once into its segments, with numeric
+ * segments pre-parsed as array indices. Immutable and thread-safe; obtain shared instances from
+ * {@link JsonPathExtractor#compile(String)}.
+ *
+ * Segments are separated by "_", with no escaping, as flattening joins keys. A key that itself contains "_"
+ * spans several segments and is matched against the keys the document has: "customer_details_0_first_name"
+ * addresses customer_details[0].first_name. When an object has keys for more than one split, the one later
+ * in the object wins, as with {@link JsonFlattener#resolve}.
+ */
+public final class CompiledJsonPath {
+
+    private static final int NOT_AN_INDEX = -1;
+
+    private final String path;
+    private final String[] names;
+    private final int[] indices;
+    // keys[from][to]: segments from..to joined with "_", the candidate keys starting at a segment
+    private final String[][] keys;
+
+    private CompiledJsonPath(String path, String[] names, int[] indices, String[][] keys) {
+        this.path = path;
+        this.names = names;
+        this.indices = indices;
+        this.keys = keys;
+    }
+
+    static CompiledJsonPath parse(String path) {
+        String[] names = path.split("_", -1);
+        int[] indices = new int[names.length];
+        String[][] keys = new String[names.length][names.length];
+        for (int from = 0; from < names.length; from++) {
+            indices[from] = parseIndex(names[from]);
+            keys[from][from] = names[from];
+            for (int to = from + 1; to < names.length; to++) {
+                keys[from][to] = keys[from][to - 1] + "_" + names[to];
+            }
+        }
+        return new CompiledJsonPath(path, names, indices, keys);
+    }
+
+    /**
+     * The element at this path following object keys and array indices, or null if the document has none
+     */
+    public JsonElement select(JsonElement root) {
+        return select(root, 0, names.length);
+    }
+
+    /**
+     * Value at this path as extracted by {@link JsonPathExtractor#extractValue}. Besides indices, a key
+     * applied to an array is looked up in its objects: the first match is followed, and on the last
+     * segment the values of all matches are returned.
+     */
+    public Object extract(JsonObject json) {
+        return extract(json, 0);
+    }
+
+    /**
+     * Where a value at this path is written: the object or array holding its last key, and that key. A key
+     * the document already has is written in place even if it contains "_"; otherwise the last segment is
+     * set under the element at the rest of the path. Null if the document has neither.
+     */
+    public Map.Entry<JsonElement, String> locate(JsonElement root) {
+        int last = names.length - 1;
+        for (int from = last; from > 0; from--) {
+            JsonElement parent = select(root, 0, from);
+            if (parent != null && parent.isJsonObject() && parent.getAsJsonObject().has(keys[from][last])) {
+                return Map.entry(parent, keys[from][last]);
+            }
+        }
+        JsonElement parent = last == 0 ? root : select(root, 0, last);
+        return parent != null && (parent.isJsonObject() || parent.isJsonArray()) ? Map.entry(parent, names[last]) : null;
+    }
+
+    public int depth() {
+        return names.length;
+    }
+
+    /**
+     * A segment of the path: a key, a part of a key containing "_", or an array index
+     */
+    public String segment(int index) {
+        return names[index];
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    // The element at segments from..to-1 below current
+    private JsonElement select(JsonElement current, int from, int to) {
+        if (from == to) {
+            return current;
+        }
+        if (current.isJsonObject()) {
+            JsonObject json = current.getAsJsonObject();
+            String selectedKey = null;
+            JsonElement selected = null;
+            for (int end = from; end < to; end++) {
+                JsonElement child = json.get(keys[from][end]);
+                JsonElement found = child != null ? select(child, end + 1, to) : null;
+                if (found != null && (selectedKey == null || JsonFlattener.isAfter(json, keys[from][end], selectedKey))) {
+                    selectedKey = keys[from][end];
+                    selected = found;
+                }
+            }
+            return selected;
+        }
+        if (current.isJsonArray() && indices[from] != NOT_AN_INDEX) {
+            JsonArray array = current.getAsJsonArray();
+            return indices[from] < array.size() ? select(array.get(indices[from]), from + 1, to) : null;
+        }
+        return null;
+    }
+
+    private Object extract(JsonElement current, int from) {
+        if (from == names.length) {
+            return JsonPathExtractor.toValue(current);
+        }
+        int last = names.length - 1;
+        if (current.isJsonObject()) {
+            JsonObject json = current.getAsJsonObject();
+            String extractedKey = null;
+            Object extracted = null;
+            for (int end = from; end <= last; end++) {
+                JsonElement child = json.get(keys[from][end]);
+                Object value = child != null ? extract(child, end + 1) : null;
+                if (value != null && (extractedKey == null || JsonFlattener.isAfter(json, keys[from][end], extractedKey))) {
+                    extractedKey = keys[from][end];
+                    extracted = value;
+                }
+            }
+            return extracted;
+        }
+        if (!current.isJsonArray()) {
+            return null;
+        }
+        JsonArray array = current.getAsJsonArray();
+        if (indices[from] != NOT_AN_INDEX && indices[from] < array.size()) {
+            return extract(array.get(indices[from]), from + 1);
+        }
+        // A key applied to the array: looked up in its objects
+        for (int end = from; end <= last; end++) {
+            String key = keys[from][end];
+            if (end == last) {
+                List<Object> values = new ArrayList<>();
+                for (JsonElement element : array) {
+                    if (element.isJsonObject() && element.getAsJsonObject().has(key)) {
+                        values.add(JsonPathExtractor.toValue(element.getAsJsonObject().get(key)));
+                    }
+                }
+                if (!values.isEmpty()) {
+                    return values.size() == 1 ? values.get(0) : values;
+                }
+            } else {
+                JsonElement child = firstWithKey(array, key);
+                Object value = child != null ? extract(child, end + 1) : null;
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static JsonElement firstWithKey(JsonArray array, String key) {
+        for (JsonElement element : array) {
+            if (element.isJsonObject() && element.getAsJsonObject().has(key)) {
+                return element.getAsJsonObject().get(key);
+            }
+        }
+        return null;
+    }
+
+    private static int parseIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return NOT_AN_INDEX;
+        }
+        int index = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_AN_INDEX;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+}
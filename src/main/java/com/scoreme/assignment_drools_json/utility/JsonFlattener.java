@@ -0,0 +1,297 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps a JSON tree onto the flattened "parent_child" paths rules read from a DynamicObject.
+ * {@link #flatten} walks the whole tree; {@link #resolve} computes the value of a single path
+ * without touching the rest of the document. Both produce the same value for a given path.
+ *
+ * Paths:
+ * - nested object properties are joined with "_" (customerDetails_0_contactInfo_address_city)
+ * - objects inside arrays are addressed by index (customerDetails_0_...)
+ * - an array path holds the list of its primitives, or for arrays of objects a list of each object's primitive properties
+ * - for arrays ending in "alerts", "..._alerts_severity" holds all severity values
+ */
+public final class JsonFlattener {
+
+    /**
+     * Receives each flattened value. pathId is the id interned in {@link #dictionary}, or NOT_FOUND once the
+     * dictionary is full, in which case path carries the path string (otherwise it is null).
+     */
+    public interface Sink {
+        void accept(int pathId, String path, Object value);
+
+        /**
+         * The dictionary the path ids are interned in, taken once per document
+         */
+        default PathDictionary dictionary() {
+            return PathDictionary.current();
+        }
+
+        /**
+         * A member of the document at an interned path that is flattened or descended into: the object or array
+         * holding it, its key there (the index for array elements) and, for objects and arrays, the node itself
+         * (null for primitives). Consumers that write values back keep these, so a value is attached to its
+         * parent directly instead of walking the tree again.
+         */
+        default void member(int pathId, JsonElement parent, String key, JsonElement node) {
+        }
+    }
+
+    /**
+     * Restricts flattening to the paths someone can observe
+     */
+    public interface PathFilter {
+        /** the value at this path is needed */
+        boolean includes(String path);
+
+        /** some value strictly below this path is needed */
+        boolean includesBelow(String path);
+    }
+
+    private JsonFlattener() {
+    }
+
+    public static void flatten(JsonObject json, Sink sink) {
+        flattenJson(json, sink.dictionary(), PathDictionary.ROOT, "", null, sink);
+    }
+
+    /**
+     * Flatten only the paths the filter includes, skipping whole subtrees nothing below is needed from
+     */
+    public static void flatten(JsonObject json, PathFilter filter, Sink sink) {
+        flattenJson(json, sink.dictionary(), PathDictionary.ROOT, "", filter, sink);
+    }
+
+    /**
+     * Value of a single flattened path, or null if the document has no value there
+     */
+    public static Object resolve(JsonObject json, String path) {
+        return resolve(json, path, 0);
+    }
+
+    private static void flattenJson(JsonObject json, PathDictionary dictionary, int prefixId, String prefix,
+                                    PathFilter filter, Sink sink) {
+        for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+            String key = entry.getKey();
+            // Paths are resolved from the parent id, so known paths are never rebuilt by concatenation
+            int pathId = dictionary.child(prefixId, key);
+            String path = pathId != PathDictionary.NOT_FOUND ? null : (prefix.isEmpty() ? key : prefix + "_" + key);
+            JsonElement value = entry.getValue();
+
+            if (value.isJsonObject()) {
+                // Recurse into nested objects
+                if (filter == null || filter.includesBelow(pathString(dictionary, pathId, path))) {
+                    member(sink, pathId, json, key, value);
+                    flattenJson(value.getAsJsonObject(), dictionary, pathId, path, filter, sink);
+                }
+            } else if (value.isJsonArray()) {
+                // Handle arrays
+                handleJsonArray(value.getAsJsonArray(), json, key, dictionary, pathId, path, filter, sink);
+            } else if (value.isJsonPrimitive()
+                    && (filter == null || filter.includes(pathString(dictionary, pathId, path)))) {
+                // Extract primitive values
+                member(sink, pathId, json, key, null);
+                sink.accept(pathId, path, toValue(value.getAsJsonPrimitive()));
+            }
+        }
+    }
+
+    private static void handleJsonArray(JsonArray array, JsonObject parent, String key, PathDictionary dictionary,
+                                        int pathId, String path, PathFilter filter, Sink sink) {
+        String arrayPath = pathString(dictionary, pathId, path);
+        boolean emitBelow = filter == null || filter.includesBelow(arrayPath);
+        boolean emitArray = filter == null || filter.includes(arrayPath);
+        if (emitBelow || emitArray) {
+            member(sink, pathId, parent, key, array);
+        }
+        if (emitBelow) {
+            for (int i = 0; i < array.size(); i++) {
+                JsonElement element = array.get(i);
+                if (element.isJsonObject()) {
+                    // Create a separate index path for each object in the array
+                    int indexedPathId = dictionary.child(pathId, i);
+                    String indexedPath = indexedPathId != PathDictionary.NOT_FOUND ? null : arrayPath + "_" + i;
+                    if (filter == null || filter.includesBelow(pathString(dictionary, indexedPathId, indexedPath))) {
+                        member(sink, indexedPathId, array, PathDictionary.IndexStrings.of(i), element);
+                        flattenJson(element.getAsJsonObject(), dictionary, indexedPathId, indexedPath, filter, sink);
+                    }
+                }
+            }
+        }
+
+        // Store the entire array structure
+        if (emitArray) {
+            Object arrayValue = arrayValue(array);
+            if (arrayValue != null) {
+                sink.accept(pathId, path, arrayValue);
+            }
+        }
+
+        // For specific properties that Drools might need to check across all objects
+        if (arrayPath.endsWith("alerts") && (filter == null || filter.includes(arrayPath + "_severity"))) {
+            Object severities = severities(array);
+            if (severities != null) {
+                int severityId = dictionary.child(pathId, "severity");
+                sink.accept(severityId, severityId != PathDictionary.NOT_FOUND ? null : arrayPath + "_severity",
+                        severities);
+            }
+        }
+    }
+
+    /**
+     * Tries every way the remaining path can be split into a key at this level, since keys may contain "_".
+     * When several keys spell the path ("a_b" and a -> b), the value is the one flatten stores: it emits in
+     * document order and the last value wins, so the key that comes later in the object.
+     */
+    private static Object resolve(JsonElement element, String path, int from) {
+        if (element.isJsonObject()) {
+            JsonObject json = element.getAsJsonObject();
+            String resolvedKey = null;
+            Object resolved = null;
+            int end = from;
+            while (end <= path.length()) {
+                if (end == path.length() || path.charAt(end) == '_') {
+                    String key = path.substring(from, end);
+                    JsonElement child = json.get(key);
+                    if (child != null) {
+                        Object value = end == path.length() ? leafValue(child) : resolve(child, path, end + 1);
+                        if (value != null && (resolvedKey == null || isAfter(json, key, resolvedKey))) {
+                            resolvedKey = key;
+                            resolved = value;
+                        }
+                    }
+                }
+                end++;
+            }
+            return resolved;
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            int end = path.indexOf('_', from);
+            String segment = end < 0 ? path.substring(from) : path.substring(from, end);
+
+            if (end < 0 && "severity".equals(segment) && path.regionMatches(from - 7, "alerts_", 0, 7)) {
+                return severities(array);
+            }
+            // Only objects inside arrays are addressed by index
+            int index = parseIndex(segment);
+            if (end > 0 && index >= 0 && index < array.size() && array.get(index).isJsonObject()) {
+                return resolve(array.get(index), path, end + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether key comes after otherKey in the object; used to pick between splits of a path that both exist
+     */
+    static boolean isAfter(JsonObject json, String key, String otherKey) {
+        for (String member : json.keySet()) {
+            if (member.equals(otherKey)) {
+                return true;
+            }
+            if (member.equals(key)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static Object leafValue(JsonElement element) {
+        if (element.isJsonPrimitive()) {
+            return toValue(element.getAsJsonPrimitive());
+        } else if (element.isJsonArray()) {
+            return arrayValue(element.getAsJsonArray());
+        }
+        return null;
+    }
+
+    static Object arrayValue(JsonArray array) {
+        // For arrays of primitives
+        List<Object> values = new ArrayList<>();
+        // For arrays of objects (to maintain all nested properties)
+        List<Map<String, Object>> objectValues = new ArrayList<>();
+
+        boolean containsObjects = false;
+
+        for (JsonElement element : array) {
+            if (element.isJsonObject()) {
+                containsObjects = true;
+                // Store the complete object's properties to maintain the array structure
+                Map<String, Object> objectProps = new HashMap<>();
+                for (Map.Entry<String, JsonElement> prop : element.getAsJsonObject().entrySet()) {
+                    if (prop.getValue().isJsonPrimitive()) {
+                        objectProps.put(prop.getKey(), toValue(prop.getValue().getAsJsonPrimitive()));
+                    }
+                }
+                objectValues.add(objectProps);
+            } else if (element.isJsonPrimitive()) {
+                values.add(toValue(element.getAsJsonPrimitive()));
+            }
+        }
+
+        if (containsObjects) {
+            return objectValues;
+        }
+        return values.isEmpty() ? null : values;
+    }
+
+    // Extract all severity values from alerts so rules can easily check them
+    static Object severities(JsonArray array) {
+        List<Object> allSeverities = new ArrayList<>();
+        for (JsonElement element : array) {
+            if (element.isJsonObject()) {
+                JsonElement severity = element.getAsJsonObject().get("severity");
+                if (severity != null && severity.isJsonPrimitive()) {
+                    allSeverities.add(toValue(severity.getAsJsonPrimitive()));
+                }
+            }
+        }
+        return allSeverities.isEmpty() ? null : allSeverities;
+    }
+
+    private static int parseIndex(String segment) {
+        // Must match the index strings flatten produces, so no sign or leading zeros
+        if (segment.isEmpty() || segment.length() > 9 || (segment.length() > 1 && segment.charAt(0) == '0')) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    static void member(Sink sink, int pathId, JsonElement parent, String key, JsonElement node) {
+        if (pathId != PathDictionary.NOT_FOUND) {
+            sink.member(pathId, parent, key, node);
+        }
+    }
+
+    static String pathString(PathDictionary dictionary, int pathId, String path) {
+        return pathId != PathDictionary.NOT_FOUND ? dictionary.path(pathId) : path;
+    }
+
+    // Short strings repeat heavily across documents (codes, statuses), so share one instance
+    private static Object toValue(JsonPrimitive primitive) {
+        if (primitive.isNumber()) {
+            return primitive.getAsNumber();
+        } else if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        return ValueInterner.intern(primitive.getAsString());
+    }
+}
@@ -0,0 +1,232 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Serializes Gson trees straight to UTF-8 bytes, without building the document as a String first,
+ * or to one of the binary body formats
+ */
+public final class JsonOutput {
+
+    private static final Gson gson = new Gson();
+
+    private JsonOutput() {
+    }
+
+    /**
+     * Write the element to the stream and flush it; the stream is left open
+     */
+    public static void write(JsonElement element, OutputStream output) throws IOException {
+        // OutputStreamWriter buffers the encoded bytes itself, so no BufferedWriter in between
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        gson.toJson(element, writer);
+        writer.flush();
+    }
+
+    /**
+     * Write the element in the given format and flush it; the stream is left open
+     */
+    public static void write(JsonElement element, BodyFormat format, OutputStream output) throws IOException {
+        if (!format.isBinary()) {
+            write(element, output);
+            return;
+        }
+        try (JsonGenerator generator = format.createGenerator(output)) {
+            // Closing the generator flushes it; the stream is the caller's
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeElement(element, generator);
+        }
+    }
+
+    /**
+     * Write an object holding each document as a JSON string of its text, {"name": "{\"a\":1}", ...}, and
+     * flush it; the stream is left open. The text is escaped as it is serialized rather than built as a String.
+     */
+    public static void writeAsStrings(Map<String, ? extends JsonElement> documents, OutputStream output)
+            throws IOException {
+        Writer out = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        Writer escaped = new StringContentWriter(out);
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, ? extends JsonElement> document : documents.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('"');
+            escaped.write(document.getKey());
+            out.write("\":\"");
+            gson.toJson(document.getValue(), new JsonWriter(escaped));
+            out.write('"');
+        }
+        out.write('}');
+        out.flush();
+    }
+
+    public static byte[] toBytes(JsonElement element) {
+        return toBytes(element, BodyFormat.JSON);
+    }
+
+    public static byte[] toBytes(JsonElement element, BodyFormat format) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try {
+            write(element, format, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeElement(JsonElement element, JsonGenerator generator) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            generator.writeNull();
+        } else if (element.isJsonObject()) {
+            generator.writeStartObject();
+            for (var member : element.getAsJsonObject().entrySet()) {
+                generator.writeFieldName(member.getKey());
+                writeElement(member.getValue(), generator);
+            }
+            generator.writeEndObject();
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            generator.writeStartArray(array, array.size());
+            for (JsonElement item : array) {
+                writeElement(item, generator);
+            }
+            generator.writeEndArray();
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                generator.writeBoolean(primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                writeNumber(primitive.getAsNumber(), generator);
+            } else {
+                generator.writeString(primitive.getAsString());
+            }
+        }
+    }
+
+    /**
+     * Numbers in their smallest exact binary form: integers as integers, everything else as a double
+     * unless that would lose digits
+     */
+    private static void writeNumber(Number number, JsonGenerator generator) throws IOException {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            generator.writeNumber(number.longValue());
+            return;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            generator.writeNumber(number.doubleValue());
+            return;
+        }
+        // LazilyParsedNumber from the parsers, BigDecimal/BigInteger from rule actions
+        String text = number instanceof LazilyParsedNumber ? number.toString() : null;
+        if (text != null && isIntegral(text)) {
+            if (text.length() < 19) {
+                generator.writeNumber(Long.parseLong(text));
+            } else {
+                generator.writeNumber(new BigInteger(text));
+            }
+            return;
+        }
+        if (number instanceof BigInteger) {
+            generator.writeNumber((BigInteger) number);
+            return;
+        }
+        BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+        double value = decimal.doubleValue();
+        // A double reads back as the same text ("40.7128"); "1.50" or 30 significant digits need a decimal
+        boolean exact = Double.isFinite(value) && (text != null
+                ? Double.toString(value).equals(text)
+                : new BigDecimal(value).compareTo(decimal) == 0);
+        if (exact) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNumber(decimal);
+        }
+    }
+
+    /**
+     * Escapes what is written to it as the content of a JSON string, the way JsonWriter escapes string values
+     */
+    private static final class StringContentWriter extends Writer {
+        private final Writer out;
+
+        StringContentWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\t': out.write("\\t"); break;
+                case '\b': out.write("\\b"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\f': out.write("\\f"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.write(String.format("\\u%04x", c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Flushed with the enclosing document
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static boolean isIntegral(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        if (start == text.length()) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
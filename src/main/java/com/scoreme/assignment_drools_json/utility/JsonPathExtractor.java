@@ -2,14 +2,29 @@ package com.scoreme.assignment_drools_json.utility;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class JsonPathExtractor {
 
+    private static final int MAX_COMPILED = Integer.getInteger("jsonpath.compiled-cache.max-size", 1 << 14);
+
+    // Compiled paths, least recently used evicted first
+    private static final Map<String, CompiledJsonPath> COMPILED = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompiledJsonPath>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledJsonPath> eldest) {
+                    return size() > MAX_COMPILED;
+                }
+            });
+
     private static Object extractValueRecursive(JsonElement element, String[] pathParts, int index) {
         if (index >= pathParts.length) {
             return null;
@@ -89,58 +104,24 @@ public class JsonPathExtractor {
     }
 
     public static Object extractValue(JsonObject json, String path) {
-        String[] parts = path.split("_");
-        JsonElement currentElement = json;
-
-        for (int i = 0; i < parts.length; i++) {
-            String part = parts[i];
-
-            if (currentElement.isJsonObject()) {
-                JsonObject obj = currentElement.getAsJsonObject();
-                if (obj.has(part)) {
-                    currentElement = obj.get(part);
-                } else {
-                    return null; // Path doesn't exist
-                }
-            } else if (currentElement.isJsonArray()) {
-                // For simplicity, we'll just take the first element that matches
-                // A more complete solution would handle arrays properly
-                JsonArray array = currentElement.getAsJsonArray();
-
-                // If this is the last part of the path, we might need to extract values from all array elements
-                if (i == parts.length - 1) {
-                    List<Object> values = new ArrayList<>();
-                    for (JsonElement elem : array) {
-                        if (elem.isJsonObject() && elem.getAsJsonObject().has(part)) {
-                            values.add(getValueFromJsonElement(elem.getAsJsonObject().get(part)));
-                        }
-                    }
-                    return values.isEmpty() ? null : values.size() == 1 ? values.get(0) : values;
-                }
-
-                // Otherwise, we're navigating through the structure
-                boolean found = false;
-                for (JsonElement elem : array) {
-                    if (elem.isJsonObject() && elem.getAsJsonObject().has(part)) {
-                        currentElement = elem.getAsJsonObject().get(part);
-                        found = true;
-                        break;
-                    }
-                }
+        return compile(path).extract(json);
+    }
 
-                if (!found) {
-                    return null; // Path doesn't exist in any array element
-                }
-            } else {
-                // We've hit a primitive but still have path parts to process
-                return null;
-            }
+    /**
+     * Shared compiled form of a flattened path. The most recently used paths, up to
+     * -Djsonpath.compiled-cache.max-size, stay compiled; others are compiled again when next used.
+     */
+    public static CompiledJsonPath compile(String path) {
+        CompiledJsonPath compiled = COMPILED.get(path);
+        if (compiled != null) {
+            return compiled;
         }
-
-        return getValueFromJsonElement(currentElement);
+        compiled = CompiledJsonPath.parse(path);
+        CompiledJsonPath existing = COMPILED.putIfAbsent(path, compiled);
+        return existing != null ? existing : compiled;
     }
 
-    private static Object getValueFromJsonElement(JsonElement element) {
+    static Object toValue(JsonElement element) {
         if (element.isJsonPrimitive()) {
             JsonPrimitive primitive = element.getAsJsonPrimitive();
             if (primitive.isString()) return primitive.getAsString();
@@ -149,7 +130,7 @@ public class JsonPathExtractor {
         } else if (element.isJsonArray()) {
             List<Object> result = new ArrayList<>();
             for (JsonElement e : element.getAsJsonArray()) {
-                result.add(getValueFromJsonElement(e));
+                result.add(toValue(e));
             }
             return result;
         } else if (element.isJsonObject()) {
@@ -160,4 +141,41 @@ public class JsonPathExtractor {
 
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * JSON for a value rules set: the inverse of the flattened values, so lists and maps
+     * (e.g. a flattened array of objects) become arrays and objects again
+     */
+    public static JsonElement toJson(Object value) {
+        if (value == null) {
+            return JsonNull.INSTANCE;
+        } else if (value instanceof JsonElement) {
+            return (JsonElement) value;
+        } else if (value instanceof String) {
+            return new JsonPrimitive((String) value);
+        } else if (value instanceof Number) {
+            return new JsonPrimitive((Number) value);
+        } else if (value instanceof Boolean) {
+            return new JsonPrimitive((Boolean) value);
+        } else if (value instanceof Iterable) {
+            JsonArray array = new JsonArray();
+            for (Object element : (Iterable<?>) value) {
+                array.add(toJson(element));
+            }
+            return array;
+        } else if (value instanceof Object[]) {
+            JsonArray array = new JsonArray();
+            for (Object element : (Object[]) value) {
+                array.add(toJson(element));
+            }
+            return array;
+        } else if (value instanceof Map) {
+            JsonObject object = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                object.add(String.valueOf(entry.getKey()), toJson(entry.getValue()));
+            }
+            return object;
+        }
+        return new JsonPrimitive(value.toString());
+    }
+}
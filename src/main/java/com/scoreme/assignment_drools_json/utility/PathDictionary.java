@@ -0,0 +1,157 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary that interns flattened paths (e.g. "customerDetails_0_customerName")
+ * to small integer ids. Every path string is created once; afterwards flattening resolves a child path
+ * from its parent id and key without concatenating strings, and lookups hit a canonical string whose
+ * hash is already cached.
+ *
+ * The dictionary is bounded; once full, {@link #NOT_FOUND} is returned and each document keeps the paths that
+ * did not fit under their string keys, while the paths already interned keep their ids. A full dictionary is not
+ * replaced, since traffic with high-cardinality keys (e.g. record ids used as object keys) would then rebuild it
+ * on every request. New documents intern their paths in the {@link #current} dictionary, which is replaced by an
+ * empty one when the rule set changes ({@link #reset}), so paths of past traffic do not stay forever.
+ * A document keeps the dictionary it was flattened with; ids are only meaningful within one dictionary.
+ */
+public final class PathDictionary {
+
+    public static final int ROOT = 0;
+    public static final int NOT_FOUND = -1;
+
+    private static final int CURRENT_MAX_SIZE = Integer.getInteger("dynamicobject.path-dictionary.max-size", 1 << 16);
+
+    private static volatile PathDictionary current = new PathDictionary(CURRENT_MAX_SIZE);
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Node[] nodes = new Node[256];
+    private int size; // guarded by this
+
+    public PathDictionary(int maxSize) {
+        this.maxSize = maxSize;
+        nodes[ROOT] = new Node("");
+        ids.put("", ROOT);
+        size = 1;
+    }
+
+    /**
+     * The dictionary for new documents
+     */
+    public static PathDictionary current() {
+        return current;
+    }
+
+    /**
+     * Start an empty dictionary for new documents, e.g. when the rule set changes
+     */
+    public static void reset() {
+        current = new PathDictionary(CURRENT_MAX_SIZE);
+    }
+
+    /**
+     * @return the id of an already interned path, or NOT_FOUND
+     */
+    public int lookup(String path) {
+        Integer id = ids.get(path);
+        return id != null ? id : NOT_FOUND;
+    }
+
+    /**
+     * @return the id of the path, interning it if needed; NOT_FOUND if the dictionary is full
+     */
+    public int intern(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(path);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxSize) {
+                return NOT_FOUND;
+            }
+            int newId = size;
+            Node[] current = nodes;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[newId] = new Node(path);
+            nodes = current;
+            size = newId + 1;
+            ids.put(path, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Id of {@code parent + "_" + segment}. Repeated calls for known paths allocate nothing.
+     */
+    public int child(int parentId, String segment) {
+        if (parentId == NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        Node parent = nodes[parentId];
+        Integer id = parent.children.get(segment);
+        if (id != null) {
+            return id;
+        }
+        int childId = intern(parentId == ROOT ? segment : parent.path + "_" + segment);
+        if (childId != NOT_FOUND) {
+            parent.children.putIfAbsent(segment, childId);
+        }
+        return childId;
+    }
+
+    /**
+     * Id of the element path for an array index, e.g. "customerDetails_0"
+     */
+    public int child(int parentId, int index) {
+        return child(parentId, IndexStrings.of(index));
+    }
+
+    /**
+     * The canonical path string of an id
+     */
+    public String path(int id) {
+        return nodes[id].path;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private static final class Node {
+        private final String path;
+        // Child segment to child id; values point at canonical ids, so "a_b" and a -> b resolve the same way
+        private final ConcurrentHashMap<String, Integer> children = new ConcurrentHashMap<>(4);
+
+        Node(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Cached decimal strings for array indices
+     */
+    public static final class IndexStrings {
+        private static final String[] CACHE = new String[1024];
+
+        static {
+            for (int i = 0; i < CACHE.length; i++) {
+                CACHE[i] = Integer.toString(i);
+            }
+        }
+
+        private IndexStrings() {
+        }
+
+        public static String of(int index) {
+            return index >= 0 && index < CACHE.length ? CACHE[index] : Integer.toString(index);
+        }
+    }
+}
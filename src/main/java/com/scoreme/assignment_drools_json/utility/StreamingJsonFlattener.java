@@ -0,0 +1,314 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single-pass alternative to Gson parsing followed by {@link JsonFlattener#flatten}: reads the document with
+ * Jackson's streaming parser and emits the flattened paths as the tokens arrive. The Gson tree is still
+ * built in the same pass, because the DynamicObject keeps it for write-back, but it is never walked again.
+ *
+ * The emitted paths and values are the same as JsonFlattener's, including array values and the alerts
+ * severity list: numbers are LazilyParsedNumber like Gson's, strings go through the ValueInterner.
+ */
+public final class StreamingJsonFlattener {
+
+    // Comments, single quotes and unquoted field names, which Gson's lenient fromJson also accepts. Gson goes
+    // further (unquoted string values, NaN, "=" and ";" separators, empty array elements); such bodies are
+    // rejected here, and DynamicJsonService reads them again with Gson
+    private static final JsonFactory jsonFactory = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_YAML_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .build();
+
+    private StreamingJsonFlattener() {
+    }
+
+    /**
+     * A streaming parser with the same leniency, for other single-pass readers
+     */
+    public static JsonParser createParser(String json) throws IOException {
+        return jsonFactory.createParser(json);
+    }
+
+    /**
+     * A streaming parser over UTF-8 bytes, with the same leniency
+     */
+    public static JsonParser createParser(byte[] json) throws IOException {
+        return jsonFactory.createParser(json);
+    }
+
+    /**
+     * Parse the document without flattening it
+     */
+    public static JsonObject parse(String json) {
+        return parse(json, null, null);
+    }
+
+    /**
+     * Parse the document, handing every flattened value to the sink
+     */
+    public static JsonObject parse(String json, JsonFlattener.Sink sink) {
+        return parse(json, null, sink);
+    }
+
+    /**
+     * Parse the document, handing the flattened values the filter includes to the sink
+     * @param filter null to emit every path
+     * @param sink null to only build the tree
+     */
+    public static JsonObject parse(String json, JsonFlattener.PathFilter filter, JsonFlattener.Sink sink) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return parse(parser, filter, sink);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a UTF-8 document, as {@link #parse(String, JsonFlattener.PathFilter, JsonFlattener.Sink)},
+     * without decoding it into a String first
+     */
+    public static JsonObject parse(byte[] json, JsonFlattener.PathFilter filter, JsonFlattener.Sink sink) {
+        return parse(json, BodyFormat.JSON, filter, sink);
+    }
+
+    /**
+     * Parse a document in any of the body formats; CBOR and Smile give the same tree and flattened values
+     * as the same data sent as JSON
+     */
+    public static JsonObject parse(byte[] body, BodyFormat format, JsonFlattener.PathFilter filter,
+                                   JsonFlattener.Sink sink) {
+        try (JsonParser parser = format.createParser(body)) {
+            return parse(parser, filter, sink);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid " + format + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The raw UTF-8 bytes of each member of a top-level object, by name, in document order,
+     * e.g. the API responses of a /process/process-multiple request
+     */
+    public static Map<String, byte[]> splitObject(byte[] json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            Map<String, byte[]> members = new LinkedHashMap<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                // Offsets into a byte[] always fit an int
+                int start = Math.toIntExact(parser.currentTokenLocation().getByteOffset());
+                parser.skipChildren();
+                // A string is only read up to its closing quote when asked for
+                parser.finishToken();
+                int end = Math.toIntExact(parser.currentLocation().getByteOffset());
+                members.put(name, Arrays.copyOfRange(json, start, end));
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+            return members;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonObject parse(JsonParser parser, JsonFlattener.PathFilter filter, JsonFlattener.Sink sink)
+            throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        JsonObject root = readObject(parser, PathDictionary.ROOT, "", sink != null, new Context(filter, sink));
+        if (parser.nextToken() != null) {
+            throw new IllegalArgumentException("Unexpected content after the JSON object");
+        }
+        return root;
+    }
+
+    /**
+     * Reads the object whose START_OBJECT was just consumed
+     * @param emit whether paths below this object are flattened; when false, prefixId/prefix are not used
+     */
+    private static JsonObject readObject(JsonParser parser, int prefixId, String prefix, boolean emit,
+                                         Context context) throws IOException {
+        JsonObject json = new JsonObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (!emit) {
+                json.add(key, readValue(parser, token, context));
+                continue;
+            }
+
+            // Paths are resolved from the parent id, so known paths are never rebuilt by concatenation
+            int pathId = context.dictionary.child(prefixId, key);
+            String path = pathId != PathDictionary.NOT_FOUND ? null : (prefix.isEmpty() ? key : prefix + "_" + key);
+
+            if (token == JsonToken.START_OBJECT) {
+                boolean emitBelow = context.includesBelow(pathId, path);
+                JsonObject child = readObject(parser, pathId, path, emitBelow, context);
+                json.add(key, child);
+                if (emitBelow) {
+                    JsonFlattener.member(context.sink, pathId, json, key, child);
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                readArray(parser, json, key, pathId, path, context);
+            } else {
+                JsonElement value = readScalar(parser, token);
+                json.add(key, value);
+                if (value.isJsonPrimitive() && context.includes(pathId, path)) {
+                    JsonFlattener.member(context.sink, pathId, json, key, null);
+                    context.sink.accept(pathId, path, scalarValue(value.getAsJsonPrimitive()));
+                }
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Reads an array that is flattened into parent: objects inside it by index, then the array value and severities
+     */
+    private static void readArray(JsonParser parser, JsonObject parent, String key, int pathId, String path,
+                                  Context context) throws IOException {
+        String arrayPath = JsonFlattener.pathString(context.dictionary, pathId, path);
+        boolean emitBelow = context.filter == null || context.filter.includesBelow(arrayPath);
+        boolean emitArray = context.filter == null || context.filter.includes(arrayPath);
+
+        JsonArray array = new JsonArray();
+        parent.add(key, array);
+        if (emitBelow || emitArray) {
+            JsonFlattener.member(context.sink, pathId, parent, key, array);
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT && emitBelow) {
+                // Create a separate index path for each object in the array
+                int indexedPathId = context.dictionary.child(pathId, array.size());
+                String indexedPath = indexedPathId != PathDictionary.NOT_FOUND ? null : arrayPath + "_" + array.size();
+                boolean emitElement = context.includesBelow(indexedPathId, indexedPath);
+                JsonObject element = readObject(parser, indexedPathId, indexedPath, emitElement, context);
+                if (emitElement) {
+                    JsonFlattener.member(context.sink, indexedPathId, array, PathDictionary.IndexStrings.of(array.size()),
+                            element);
+                }
+                array.add(element);
+            } else {
+                array.add(readValue(parser, token, context));
+            }
+        }
+
+        // Store the entire array structure
+        if (emitArray) {
+            Object arrayValue = JsonFlattener.arrayValue(array);
+            if (arrayValue != null) {
+                context.sink.accept(pathId, path, arrayValue);
+            }
+        }
+
+        // For specific properties that Drools might need to check across all objects
+        if (arrayPath.endsWith("alerts")
+                && (context.filter == null || context.filter.includes(arrayPath + "_severity"))) {
+            Object severities = JsonFlattener.severities(array);
+            if (severities != null) {
+                int severityId = context.dictionary.child(pathId, "severity");
+                context.sink.accept(severityId, severityId != PathDictionary.NOT_FOUND ? null : arrayPath + "_severity",
+                        severities);
+            }
+        }
+    }
+
+    // A value in a subtree that is not flattened
+    private static JsonElement readValue(JsonParser parser, JsonToken token, Context context) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser, PathDictionary.NOT_FOUND, null, false, context);
+        } else if (token == JsonToken.START_ARRAY) {
+            JsonArray array = new JsonArray();
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                array.add(readValue(parser, element, context));
+            }
+            return array;
+        }
+        return readScalar(parser, token);
+    }
+
+    private static JsonElement readScalar(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return new JsonPrimitive(ValueInterner.intern(parser.getText()));
+            case VALUE_NUMBER_FLOAT:
+                // CBOR and Smile floats can be NaN or infinite, which JSON cannot carry
+                if (parser.isNaN()) {
+                    throw new IllegalArgumentException("Unsupported number " + parser.getText());
+                }
+                // fall through
+            case VALUE_NUMBER_INT:
+                // Keep the literal text, as Gson does, so values and output are unchanged
+                return new JsonPrimitive(new LazilyParsedNumber(parser.getText()));
+            case VALUE_TRUE:
+                return new JsonPrimitive(Boolean.TRUE);
+            case VALUE_FALSE:
+                return new JsonPrimitive(Boolean.FALSE);
+            case VALUE_NULL:
+                return JsonNull.INSTANCE;
+            case VALUE_EMBEDDED_OBJECT:
+                // Byte strings of CBOR and Smile, as the base64 text JSON would carry them in
+                return new JsonPrimitive(Base64.getEncoder().encodeToString(parser.getBinaryValue()));
+            default:
+                throw new IllegalArgumentException("Unexpected token " + token);
+        }
+    }
+
+    // The flattened value of a primitive: the same instances the primitive holds
+    private static Object scalarValue(JsonPrimitive primitive) {
+        if (primitive.isNumber()) {
+            return primitive.getAsNumber();
+        } else if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        return primitive.getAsString();
+    }
+
+    /**
+     * Per-parse settings shared by the recursion
+     */
+    private static final class Context {
+        private final JsonFlattener.PathFilter filter;
+        private final JsonFlattener.Sink sink;
+        private final PathDictionary dictionary;
+
+        Context(JsonFlattener.PathFilter filter, JsonFlattener.Sink sink) {
+            this.filter = filter;
+            this.sink = sink;
+            this.dictionary = sink != null ? sink.dictionary() : null;
+        }
+
+        boolean includes(int pathId, String path) {
+            return filter == null || filter.includes(JsonFlattener.pathString(dictionary, pathId, path));
+        }
+
+        boolean includesBelow(int pathId, String path) {
+            return filter == null || filter.includesBelow(JsonFlattener.pathString(dictionary, pathId, path));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplicates short, frequently repeated string values (e.g. "High", "Medium", "NOAA") so that
+ * flattened objects share one instance instead of holding a copy per document.
+ * Bounded: once full, the table is dropped and starts over, so values of past traffic do not stay forever.
+ * Also started over with the path dictionary when the rule set changes ({@link #reset}).
+ */
+public final class ValueInterner {
+
+    private static final int MAX_LENGTH = 32;
+    private static final int MAX_ENTRIES = Integer.getInteger("dynamicobject.value-interner.max-size", 1 << 16);
+
+    private static volatile ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    private ValueInterner() {
+    }
+
+    public static String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        ConcurrentHashMap<String, String> table = values;
+        String existing = table.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (table.size() >= MAX_ENTRIES) {
+            // Racing threads may each start a table; the losers' values are simply not shared
+            table = new ConcurrentHashMap<>();
+            values = table;
+        }
+        existing = table.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public static void reset() {
+        values = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,88 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costs and findings of the analyzer, on a small rule set with known costs and on the classpath rules
+ */
+class RulePerformanceAnalyzerTest {
+
+    private static final String DRL = "package rules\n"
+            + "import com.scoreme.assignment_drools_json.model.DynamicObject;\n"
+            + "function boolean risky(Object o) { return o != null; }\n"
+            + "rule \"indexed\" when\n"
+            + "    DynamicObject(apiType == \"a\")\n"
+            + "then end\n"
+            + "rule \"eval with function\" when\n"
+            + "    $o: DynamicObject(apiType == \"a\")\n"
+            + "    eval(risky($o))\n"
+            + "then end\n"
+            + "rule \"join\" when\n"
+            + "    DynamicObject()\n"
+            + "    DynamicObject(get(\"x\") != null)\n"
+            + "then end\n";
+
+    @Test
+    void costsFollowTheWeights() {
+        RuleAnalysisReport report = RulePerformanceAnalyzer.analyze("test", List.of(DRL), 15);
+        assertTrue(report.getParseErrors().isEmpty(), String.valueOf(report.getParseErrors()));
+        Map<String, RuleAnalysisReport.RuleAnalysis> rules = byName(report);
+
+        // pattern 1 + indexable constraint 1
+        assertEquals(2, rules.get("indexed").getEstimatedCost());
+        // pattern 1 + indexable constraint 1 + eval 10 + LHS function call 8
+        RuleAnalysisReport.RuleAnalysis eval = rules.get("eval with function");
+        assertEquals(20, eval.getEstimatedCost());
+        assertEquals(1, eval.getEvals());
+        assertEquals(List.of("risky"), eval.getLhsFunctionCalls());
+        assertEquals(1, eval.getSharedConditions());
+        // pattern 1 + joined pattern 3 + unindexable constraint 4
+        RuleAnalysisReport.RuleAnalysis join = rules.get("join");
+        assertEquals(8, join.getEstimatedCost());
+        assertEquals(1, join.getUnindexableConstraints());
+
+        assertEquals(List.of("eval with function"), report.getRulesOverLimit());
+        assertTrue(report.isLimitExceeded());
+    }
+
+    @Test
+    void classpathRulesStayUnderTheBuildLimit() throws IOException {
+        String drl;
+        try (InputStream in = getClass().getResourceAsStream("/rules/rules.drl")) {
+            assertNotNull(in);
+            drl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // The limit the rule-analysis build profile applies
+        RuleAnalysisReport report = RulePerformanceAnalyzer.analyze("rules.drl", List.of(drl), 40);
+
+        assertTrue(report.getParseErrors().isEmpty(), String.valueOf(report.getParseErrors()));
+        assertFalse(report.isLimitExceeded(), String.valueOf(report.getRulesOverLimit()));
+        Map<String, RuleAnalysisReport.RuleAnalysis> rules = byName(report);
+        assertEquals(5, rules.size());
+        // The eval-based rules are the ones flagged for it; Rule 5 is plain constraints
+        assertEquals(1, rules.get("Extract Customer Name for Severe Alert").getEvals());
+        assertEquals(1, rules.get("Extract Customer Address for Financial Data").getEvals());
+        assertEquals(0, rules.get("Flag Customer With High Financial Risk").getEvals());
+        assertTrue(rules.get("Flag Customer With High Financial Risk").getFindings().stream()
+                .noneMatch(finding -> finding.startsWith("EVAL") || finding.startsWith("LHS_FUNCTION")));
+        assertEquals(0, rules.get("Tag Weather Alerts by Type").getEvals());
+        assertEquals(0, rules.get("Process Multiple API Data").getEvals());
+    }
+
+    private static Map<String, RuleAnalysisReport.RuleAnalysis> byName(RuleAnalysisReport report) {
+        return report.getRules().stream()
+                .collect(Collectors.toMap(RuleAnalysisReport.RuleAnalysis::getName, rule -> rule));
+    }
+}
@@ -0,0 +1,179 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.KieBase;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hot reload of a rules directory: edited and deleted files must change which rules fire, and every
+ * accepted change must activate a new version
+ */
+class RuleSetManagerTest {
+
+    private static final String HEADER = "package rules\n"
+            + "import com.scoreme.assignment_drools_json.model.DynamicObject;\n";
+
+    @TempDir
+    Path rulesDir;
+
+    private RuleSetManager manager;
+    private final List<RuleSetChangedEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        writeRule("a.drl", "A", "\"first\"");
+        writeRule("b.drl", "B", "\"b\"");
+
+        KieBase classpathKieBase = new KieHelper().addContent(HEADER, ResourceType.DRL).build();
+        manager = new RuleSetManager();
+        ReflectionTestUtils.setField(manager, "classpathKieBase", classpathKieBase);
+        ReflectionTestUtils.setField(manager, "startupReport", new RuleStartupReport());
+        ReflectionTestUtils.setField(manager, "classpathProjection", RuleProjection.FULL);
+        ReflectionTestUtils.setField(manager, "classpathAnalysis", new RuleAnalysisReport("classpath", 0));
+        ApplicationEventPublisher publisher = event -> events.add((RuleSetChangedEvent) event);
+        ReflectionTestUtils.setField(manager, "eventPublisher", publisher);
+        ReflectionTestUtils.setField(manager, "rulesDir", rulesDir.toString());
+        // Reloads are triggered by the test, not the watcher
+        ReflectionTestUtils.setField(manager, "pollIntervalMillis", 3_600_000L);
+        ReflectionTestUtils.setField(manager, "incremental", true);
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void initialBuildActivatesDirectoryRules() {
+        RuleSetVersion version = manager.current();
+        assertTrue(version.getSource().startsWith("dir:"));
+        assertEquals(Set.of("A", "B"), fire(version).fired);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void editedRuleTakesEffectInANewVersion() throws IOException {
+        RuleSetVersion before = manager.current();
+
+        writeRule("a.drl", "A", "\"second, edited\"");
+        assertTrue(manager.reload());
+
+        RuleSetVersion after = manager.current();
+        assertTrue(after.getNumber() > before.getNumber());
+        assertNotEquals(before.getId(), after.getId());
+        Fired fired = fire(after);
+        assertEquals(Set.of("A", "B"), fired.fired);
+        assertEquals("second, edited", fired.object.get("A"));
+
+        // The previous version is untouched, so requests still running on it see the old rule
+        assertEquals("first", fire(before).object.get("A"));
+    }
+
+    @Test
+    void deletedRuleNoLongerFires() throws IOException {
+        RuleSetVersion before = manager.current();
+
+        Files.delete(rulesDir.resolve("b.drl"));
+        assertTrue(manager.reload());
+
+        RuleSetVersion after = manager.current();
+        assertTrue(after.getNumber() > before.getNumber());
+        assertEquals(Set.of("A"), fire(after).fired);
+        assertEquals(before, events.get(events.size() - 1).getPreviousVersion());
+        assertEquals(after, events.get(events.size() - 1).getNewVersion());
+    }
+
+    @Test
+    void addedRuleFires() throws IOException {
+        writeRule("c.drl", "C", "\"c\"");
+        assertTrue(manager.reload());
+        assertEquals(Set.of("A", "B", "C"), fire(manager.current()).fired);
+    }
+
+    @Test
+    void brokenRuleKeepsTheActiveVersion() throws IOException {
+        RuleSetVersion before = manager.current();
+
+        Files.writeString(rulesDir.resolve("a.drl"), HEADER + "rule \"A\" when then this does not compile end\n");
+        assertFalse(manager.reload());
+        assertEquals(before, manager.current());
+
+        // Fixing the file recovers with a full rebuild
+        writeRule("a.drl", "A", "\"fixed\"");
+        assertTrue(manager.reload());
+        assertEquals("fixed", fire(manager.current()).object.get("A"));
+    }
+
+    @Test
+    void unchangedDirectoryIsNotReloaded() {
+        RuleSetVersion before = manager.current();
+        assertFalse(manager.reload());
+        assertEquals(before, manager.current());
+    }
+
+    // Each rule records its own name as a property, so fired rules and their values can both be checked
+    private void writeRule(String file, String rule, String value) throws IOException {
+        Path path = rulesDir.resolve(file);
+        boolean existed = Files.exists(path);
+        Files.writeString(path, HEADER
+                + "rule \"" + rule + "\"\n"
+                + "when\n"
+                + "    $object: DynamicObject()\n"
+                + "then\n"
+                + "    $object.set(\"" + rule + "\", " + value + ");\n"
+                + "end\n");
+        if (existed) {
+            // Changes are detected by size and timestamp first; make sure the timestamp moves
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        }
+    }
+
+    private static Fired fire(RuleSetVersion version) {
+        Fired fired = new Fired();
+        KieSession session = version.getKieBase().newKieSession();
+        try {
+            session.addEventListener(new DefaultAgendaEventListener() {
+                @Override
+                public void afterMatchFired(AfterMatchFiredEvent event) {
+                    fired.fired.add(event.getMatch().getRule().getName());
+                }
+            });
+            session.insert(fired.object);
+            session.fireAllRules();
+        } finally {
+            session.dispose();
+        }
+        return fired;
+    }
+
+    private static final class Fired {
+        private final DynamicObject object = new DynamicObject(new JsonObject());
+        private final Set<String> fired = new TreeSet<>();
+    }
+}
@@ -0,0 +1,42 @@
+package com.scoreme.assignment_drools_json.rules;
+
+import com.google.gson.internal.LazilyParsedNumber;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Response values are only bound to a typed fact property that holds them exactly
+ */
+class TypedFactsTest {
+
+    @Test
+    void fractionalValuesLeaveIntegerPropertiesUnset() {
+        assertNull(TypedFacts.coerce(3.7, Integer.class));
+        assertNull(TypedFacts.coerce(3.7, Long.class));
+        assertNull(TypedFacts.coerce(new LazilyParsedNumber("3.7"), Integer.class));
+        assertEquals(3, TypedFacts.coerce(3.0, Integer.class));
+        assertEquals(3.7, TypedFacts.coerce(3.7, Double.class));
+        assertEquals(3.7, TypedFacts.coerce(new LazilyParsedNumber("3.7"), Double.class));
+    }
+
+    @Test
+    void outOfRangeValuesAreNotWrapped() {
+        assertNull(TypedFacts.coerce(3_000_000_000L, Integer.class));
+        assertEquals(3_000_000_000L, TypedFacts.coerce(3_000_000_000L, Long.class));
+        assertNull(TypedFacts.coerce(new LazilyParsedNumber("9223372036854775808"), Long.class));
+        // 2^53 + 1 has no exact double
+        assertNull(TypedFacts.coerce(9_007_199_254_740_993L, Double.class));
+        assertEquals(42, TypedFacts.coerce(42L, Integer.class));
+    }
+
+    @Test
+    void otherValuesKeepTheirConversions() {
+        assertEquals("5", TypedFacts.coerce(5L, String.class));
+        assertEquals(5L, TypedFacts.coerce(5L, Object.class));
+        assertEquals(true, TypedFacts.coerce(true, Boolean.class));
+        assertNull(TypedFacts.coerce("five", Integer.class));
+        assertNull(TypedFacts.coerce(null, Integer.class));
+    }
+}
@@ -0,0 +1,146 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.scoreme.assignment_drools_json.model.AuditLogEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovery of the on-disk audit log: records, their index and time bounds must survive a restart
+ */
+class AuditLogStoreTest {
+
+    // Small segments so a few hundred records span several of them
+    private static final int SEGMENT_SIZE = 8192;
+
+    @TempDir
+    Path logDir;
+
+    private final List<AuditLogStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (AuditLogStore store : stores) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void recordsAreQueryableAfterRestart() throws IOException {
+        long now = System.currentTimeMillis();
+        AuditLogStore store = open();
+        for (int i = 0; i < 300; i++) {
+            store.append(entry(now + i, "object-" + (i % 10), "Rule " + (i % 3)));
+        }
+        store.shutdown();
+        stores.remove(store);
+        assertTrue(segmentFiles().size() > 1, "records should span several segments");
+
+        AuditLogStore recovered = open();
+        List<AuditLogEntry> byObject = recovered.query("object-4", null, null, null, 1000);
+        assertEquals(30, byObject.size());
+        // Newest first
+        assertEquals(now + 294, byObject.get(0).getTimestamp());
+        assertEquals("object-4", byObject.get(0).getObjectId());
+        assertEquals("total", byObject.get(0).getChanges().get(0).getProperty());
+        assertEquals(Long.toString((now + 294) % 1000), byObject.get(0).getChanges().get(0).getAfter());
+
+        assertEquals(100, recovered.query(null, "Rule 1", null, null, 1000).size());
+        assertEquals(10, recovered.query("object-4", "Rule 1", null, null, 1000).size());
+        assertEquals(10, recovered.query(null, null, now + 100, now + 109, 1000).size());
+        assertEquals(5, recovered.query(null, null, null, null, 5).size());
+        assertEquals(0, recovered.query("no-such-object", null, null, null, 1000).size());
+
+        // Appends continue after the recovered records
+        recovered.append(entry(now + 1000, "object-4", "Rule 0"));
+        assertEquals(31, recovered.query("object-4", null, null, null, 1000).size());
+    }
+
+    @Test
+    void compactionDropsExpiredAndEmptySegments() throws IOException {
+        long now = System.currentTimeMillis();
+        long expired = now - TimeUnit.HOURS.toMillis(400);
+        AuditLogStore store = open();
+        for (int i = 0; i < 200; i++) {
+            store.append(entry(expired + i, "old-" + i, "Rule"));
+        }
+        for (int i = 0; i < 10; i++) {
+            store.append(entry(now + i, "new-" + i, "Rule"));
+        }
+        store.shutdown();
+        stores.remove(store);
+
+        // An empty segment in the version 1 layout: appends move on to a new segment and it is sealed
+        Path empty = logDir.resolve(String.format("audit-%012d.seg", segmentFiles().size() + 1));
+        Files.write(empty, ByteBuffer.allocate(SEGMENT_SIZE).putInt(0x41554431).putInt(1).array());
+
+        AuditLogStore recovered = open();
+        int before = segmentFiles().size();
+        recovered.compact();
+
+        assertTrue(segmentFiles().size() < before);
+        assertTrue(Files.notExists(empty));
+        assertEquals(0, recovered.query("old-5", null, null, null, 10).size());
+        assertEquals(10, recovered.query(null, "Rule", null, null, 1000).size());
+        assertEquals(1, recovered.query("new-3", null, null, null, 10).size());
+    }
+
+    @Test
+    void strayFilesAreSkippedOnStartup() throws IOException {
+        long now = System.currentTimeMillis();
+        AuditLogStore store = open();
+        store.append(entry(now, "object-1", "Rule"));
+        store.shutdown();
+        stores.remove(store);
+
+        Files.write(logDir.resolve("notes.seg"), new byte[]{1, 2, 3});
+        Files.write(logDir.resolve("audit-copy.seg"), new byte[SEGMENT_SIZE]);
+        Files.write(logDir.resolve("audit-000000000007.seg"), new byte[SEGMENT_SIZE]);
+        Files.write(logDir.resolve("audit-000000000008.seg"),
+                ByteBuffer.allocate(SEGMENT_SIZE).putInt(0x41554431).putInt(99).array());
+
+        AuditLogStore recovered = open();
+        assertEquals(1, recovered.query("object-1", null, null, null, 10).size());
+        // Appends go to a new segment numbered past the skipped ones
+        recovered.append(entry(now + 1, "object-1", "Rule"));
+        assertEquals(2, recovered.query("object-1", null, null, null, 10).size());
+        assertTrue(Files.exists(logDir.resolve("audit-000000000009.seg")));
+    }
+
+    private AuditLogStore open() throws IOException {
+        AuditLogStore store = new AuditLogStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", logDir.toString());
+        ReflectionTestUtils.setField(store, "segmentSize", SEGMENT_SIZE);
+        ReflectionTestUtils.setField(store, "retentionHours", 336L);
+        ReflectionTestUtils.setField(store, "forceIntervalMillis", 3_600_000L);
+        ReflectionTestUtils.setField(store, "compactionIntervalMillis", 3_600_000L);
+        store.init();
+        stores.add(store);
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static AuditLogEntry entry(long timestamp, String objectId, String ruleName) {
+        return new AuditLogEntry(timestamp, objectId, ruleName, List.of(
+                new AuditLogEntry.PropertyChange("total", null, Long.toString(timestamp % 1000))));
+    }
+}
@@ -0,0 +1,55 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The default streaming parser accepts the same request bodies as Gson's lenient parse, with the same result
+ */
+class DynamicJsonServiceTest {
+
+    private static final List<String> LENIENT_BODIES = List.of(
+            "{\"name\": Ann, \"city\": New_York}",
+            "{\"score\": NaN, \"limit\": Infinity, \"floor\": -Infinity}",
+            "{\"a\" = 1; \"b\" => [1, 2]}",
+            "{'a': 'x', b: 2, /* note */ \"c\": [true] # trailing\n}");
+
+    @Test
+    void bodiesGsonAcceptsAreAcceptedByDefault() {
+        DynamicJsonService streaming = service("streaming");
+        DynamicJsonService gson = service("gson");
+        for (String body : LENIENT_BODIES) {
+            DynamicObject expected = gson.convertJsonToDynamicObject(body);
+            assertSameResult(expected, streaming.convertJsonToDynamicObject(body), body);
+            assertSameResult(expected, streaming.convertJsonToDynamicObject(body.getBytes(StandardCharsets.UTF_8)), body);
+        }
+    }
+
+    @Test
+    void malformedBodiesAreStillRejected() {
+        DynamicJsonService streaming = service("streaming");
+        for (String body : List.of("{\"a\": ", "{\"a\": 1} {\"b\": 2}", "[1, 2]")) {
+            assertThrows(RuntimeException.class, () -> streaming.convertJsonToDynamicObject(body), body);
+        }
+    }
+
+    private static void assertSameResult(DynamicObject expected, DynamicObject actual, String body) {
+        assertEquals(expected.getOriginalJson(), actual.getOriginalJson(), body);
+        assertEquals(expected.getPropertyKeys(), actual.getPropertyKeys(), body);
+    }
+
+    private static DynamicJsonService service(String parser) {
+        DynamicJsonService service = new DynamicJsonService();
+        ReflectionTestUtils.setField(service, "parser", parser);
+        ReflectionTestUtils.setField(service, "flattenMode", "eager");
+        ReflectionTestUtils.setField(service, "projectionEnabled", false);
+        return service;
+    }
+}
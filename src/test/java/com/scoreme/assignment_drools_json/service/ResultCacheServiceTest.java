@@ -0,0 +1,57 @@
+package com.scoreme.assignment_drools_json.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Payloads share a cache key exactly when the request parser reads them as the same document
+ */
+class ResultCacheServiceTest {
+
+    @Test
+    void formattingDoesNotChangeTheKey() {
+        assertSameKey("{\"a\": 1, \"b\": [true, null]}", "{\"a\":1,\"b\":[true,null]}");
+        assertSameKey("{\"a\": 1}", "{\n\t\"a\" : 1\r\n}");
+        assertSameKey("{\"a\": 1}", "{\"a\": 1 /* note */} // trailing");
+        assertSameKey("{\"a\": \"x y\"}", "{'a': 'x y'}");
+        assertSameKey("{\"a\": 1}", "{a: 1}");
+    }
+
+    @Test
+    void differentDocumentsHaveDifferentKeys() {
+        // Whitespace inside single-quoted strings is data
+        assertDifferentKeys("{'a': 'x y'}", "{'a': 'xy'}");
+        assertDifferentKeys("{\"a\": \"x y\"}", "{\"a\": \"xy\"}");
+        assertDifferentKeys("{\"a\": \"it's\"}", "{\"a\": \"its\"}");
+        assertDifferentKeys("{\"a\": 1}", "{\"a\": \"1\"}");
+        assertDifferentKeys("{\"a\": 1}", "{\"a\": 1.0}");
+        assertDifferentKeys("{\"a\": 1, \"b\": 2}", "{\"b\": 2, \"a\": 1}");
+        assertDifferentKeys("{\"ab\": \"c\"}", "{\"a\": \"bc\"}");
+        assertDifferentKeys("{\"a\": [1, 2]}", "{\"a\": [12]}");
+    }
+
+    @Test
+    void unparseablePayloadsAreDigestedAsIs() {
+        byte[] malformed = bytes("{\"a\": ");
+        assertArrayEquals(ResultCacheService.rawDigest(malformed), ResultCacheService.digest(malformed));
+        assertDifferentKeys("{\"a\": ", "{\"a\":");
+    }
+
+    private static void assertSameKey(String a, String b) {
+        assertArrayEquals(ResultCacheService.digest(bytes(a)), ResultCacheService.digest(bytes(b)), a + " / " + b);
+    }
+
+    private static void assertDifferentKeys(String a, String b) {
+        assertFalse(Arrays.equals(ResultCacheService.digest(bytes(a)), ResultCacheService.digest(bytes(b))),
+                a + " / " + b);
+    }
+
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+}
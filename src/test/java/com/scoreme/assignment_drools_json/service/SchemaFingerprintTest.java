@@ -0,0 +1,68 @@
+package com.scoreme.assignment_drools_json.service;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The schema cache is keyed by the fingerprint, so documents that infer different schemas must never share one
+ */
+class SchemaFingerprintTest {
+
+    @Test
+    void keysWithEqualStringHashesDiffer() {
+        // "Aa" and "BB" have the same String.hashCode()
+        assertNotEquals(SchemaFingerprint.of("{\"Aa\": 1}"), SchemaFingerprint.of("{\"BB\": 1}"));
+        assertNotEquals(SchemaFingerprint.of("{\"AaAa\": {\"BBBB\": 1}}"),
+                SchemaFingerprint.of("{\"BBBB\": {\"AaAa\": 1}}"));
+    }
+
+    @Test
+    void keyBoundariesAreEncoded() {
+        assertNotEquals(SchemaFingerprint.of("{\"ab\": {\"c\": 1}}"), SchemaFingerprint.of("{\"a\": {\"bc\": 1}}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": {}, \"b\": 1}"), SchemaFingerprint.of("{\"a\": {\"b\": 1}}"));
+    }
+
+    @Test
+    void leafTypesAndKeyOrderCount() {
+        assertNotEquals(SchemaFingerprint.of("{\"a\": 1}"), SchemaFingerprint.of("{\"a\": \"x\"}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": 1}"), SchemaFingerprint.of("{\"a\": 1.5}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": 1}"), SchemaFingerprint.of("{\"a\": null}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": 1, \"b\": 2}"), SchemaFingerprint.of("{\"b\": 2, \"a\": 1}"));
+        assertEquals(SchemaFingerprint.of("{\"a\": 1, \"b\": \"x\"}"), SchemaFingerprint.of("{\"a\": 7, \"b\": \"y\"}"));
+    }
+
+    @Test
+    void arraysAreFingerprintedByElementShape() {
+        assertEquals(SchemaFingerprint.of("{\"a\": [{\"x\": 1}]}"),
+                SchemaFingerprint.of("{\"a\": [{\"x\": 1}, {\"x\": 2}, {\"x\": 3}]}"));
+        assertEquals(SchemaFingerprint.of("{\"a\": [1, \"s\"]}"), SchemaFingerprint.of("{\"a\": [1, \"s\", 2, \"t\"]}"));
+
+        assertNotEquals(SchemaFingerprint.of("{\"a\": [{\"x\": 1}]}"),
+                SchemaFingerprint.of("{\"a\": [{\"x\": 1}, {\"y\": 1}]}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": [{\"x\": 1}]}"), SchemaFingerprint.of("{\"a\": [{\"x\": \"s\"}]}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": [1, \"s\"]}"), SchemaFingerprint.of("{\"a\": [\"s\", 1]}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": []}"), SchemaFingerprint.of("{\"a\": [1]}"));
+        assertNotEquals(SchemaFingerprint.of("{\"a\": [[1]]}"), SchemaFingerprint.of("{\"a\": [1]}"));
+    }
+
+    @Test
+    void textAndTreeFingerprintsAgree() {
+        String[] documents = {
+                "{}",
+                "{\"a\": 1, \"b\": 2.5, \"c\": \"2024-01-31\", \"d\": true, \"e\": null, \"f\": \"text\"}",
+                "{\"a\": [{\"x\": 1}, {\"x\": 2, \"y\": [\"s\", \"t\"]}], \"b\": {\"c\": {\"d\": 12345678901}}}",
+                "{\"a\": [[1, 2], [3], []], \"b\": [null, {}]}"
+        };
+        for (String document : documents) {
+            JsonObject tree = JsonParser.parseString(document).getAsJsonObject();
+            String fingerprint = SchemaFingerprint.of(document);
+            assertEquals(fingerprint, SchemaFingerprint.of(tree), document);
+            assertTrue(SchemaFingerprint.isCurrent(fingerprint));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A document sent as CBOR or Smile evaluates like the same document sent as JSON: the flattened properties
+ * and the tree written back out are the same
+ */
+class BodyFormatTest {
+
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"customerDetails\": [{\"customerId\": \"CUST12345\", \"age\": 42, \"contactInfo\": {\"address\":"
+                    + " {\"city\": \"New York\", \"latitude\": 40.7128, \"longitude\": -74.0060}}}]}",
+            "{\"big\": 12345678901234567890, \"long\": 9007199254740993, \"int\": -7, \"dec\": 0.10, \"half\": 0.5}",
+            "{\"text\": \"café \\\"quoted\\\"\", \"empty\": \"\", \"flag\": true, \"off\": false, \"none\": null}",
+            "{\"matrix\": [[1, 2], [3]], \"mixed\": [1, \"a\", {\"x\": 1}, null], \"emptyArray\": [], \"emptyObject\": {}}",
+            "{\"a_b\": 1, \"a\": {\"b\": 2}, \"weather\": {\"alerts\": [{\"severity\": \"High\"}, {\"severity\": \"Low\"}]}}");
+
+    @Test
+    void binaryBodiesEvaluateLikeJson() {
+        for (String document : DOCUMENTS) {
+            JsonObject json = StreamingJsonFlattener.parse(document);
+            Map<String, Object> expected = properties(json);
+            for (BodyFormat format : List.of(BodyFormat.CBOR, BodyFormat.SMILE)) {
+                byte[] body = JsonOutput.toBytes(json, format);
+                JsonObject decoded = StreamingJsonFlattener.parse(body, format, null, null);
+                String context = format + " " + document;
+
+                Map<String, Object> actual = properties(decoded);
+                assertEquals(expected.keySet(), actual.keySet(), context);
+                for (Map.Entry<String, Object> entry : expected.entrySet()) {
+                    assertSameValue(entry.getValue(), actual.get(entry.getKey()), context + " at " + entry.getKey());
+                }
+                // The response written as JSON is the same
+                assertEquals(new String(JsonOutput.toBytes(json), StandardCharsets.UTF_8),
+                        new String(JsonOutput.toBytes(decoded), StandardCharsets.UTF_8), context);
+            }
+        }
+    }
+
+    @Test
+    void nonFiniteNumbersAreRejected() throws IOException {
+        for (BodyFormat format : List.of(BodyFormat.CBOR, BodyFormat.SMILE)) {
+            for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try (JsonGenerator generator = format.createGenerator(body)) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("value", value);
+                    generator.writeEndObject();
+                }
+                assertThrows(IllegalArgumentException.class,
+                        () -> StreamingJsonFlattener.parse(body.toByteArray(), format, null, null), format + " " + value);
+            }
+        }
+    }
+
+    // Properties of the document as the rules see them
+    private static Map<String, Object> properties(JsonObject json) {
+        DynamicObject object = new DynamicObject(json);
+        JsonFlattener.flatten(json, object.loader());
+        return object.getProperties();
+    }
+
+    // Numbers may come back in another exact form, e.g. 0.5 as a double
+    private static void assertSameValue(Object expected, Object actual, String context) {
+        if (expected instanceof Number && actual instanceof Number) {
+            assertEquals(0, new BigDecimal(expected.toString()).compareTo(new BigDecimal(actual.toString())), context);
+        } else if (expected instanceof List && actual instanceof List) {
+            List<?> expectedList = (List<?>) expected;
+            List<?> actualList = (List<?>) actual;
+            assertEquals(expectedList.size(), actualList.size(), context);
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertSameValue(expectedList.get(i), actualList.get(i), context + "[" + i + "]");
+            }
+        } else if (expected instanceof Map && actual instanceof Map) {
+            Map<?, ?> expectedMap = (Map<?, ?>) expected;
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            assertEquals(expectedMap.keySet(), actualMap.keySet(), context);
+            for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+                assertSameValue(entry.getValue(), actualMap.get(entry.getKey()), context + "." + entry.getKey());
+            }
+        } else {
+            assertEquals(expected, actual, context);
+        }
+    }
+}
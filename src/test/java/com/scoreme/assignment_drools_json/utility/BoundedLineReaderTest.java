@@ -0,0 +1,69 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedLineReaderTest {
+
+    @Test
+    void readsLinesWithEitherEnding() throws IOException {
+        BoundedLineReader reader = reader("{\"a\": 1}\r\n\n{\"b\": \"é\"}", 64);
+
+        assertTrue(reader.next());
+        assertEquals("{\"a\": 1}", reader.line());
+        assertTrue(reader.next());
+        assertEquals("", reader.line());
+        assertTrue(reader.next());
+        assertEquals("{\"b\": \"é\"}", reader.line());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void emptyStreamHasNoLines() throws IOException {
+        assertFalse(reader("", 64).next());
+    }
+
+    @Test
+    void oversizeLinesAreSkippedAndCounted() throws IOException {
+        String longLine = "x".repeat(100_000);
+        BoundedLineReader reader = reader("{}\n" + longLine + "\r\n{\"c\": 3}\n", 16);
+
+        assertTrue(reader.next());
+        assertEquals("{}", reader.line());
+        assertTrue(reader.next());
+        assertTrue(reader.isOversize());
+        assertNull(reader.line());
+        assertEquals(100_001, reader.length());
+        assertTrue(reader.next());
+        assertFalse(reader.isOversize());
+        assertEquals("{\"c\": 3}", reader.line());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void limitAppliesToTheLineWithoutItsEnding() throws IOException {
+        BoundedLineReader reader = reader("abcd\r\nabcd\nabcde\nabcd\r", 4);
+
+        assertTrue(reader.next());
+        assertEquals("abcd", reader.line());
+        assertTrue(reader.next());
+        assertEquals("abcd", reader.line());
+        assertTrue(reader.next());
+        assertTrue(reader.isOversize());
+        assertTrue(reader.next());
+        assertEquals("abcd", reader.line());
+        assertFalse(reader.next());
+    }
+
+    private static BoundedLineReader reader(String input, int maxBytes) {
+        return new BoundedLineReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), maxBytes);
+    }
+}
@@ -0,0 +1,104 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Compiled paths address what flattening names them, including keys with "_" or "\" in them
+ */
+class CompiledJsonPathTest {
+
+    @Test
+    void keysWithBackslashesAreLiteral() {
+        JsonObject json = parse("{\"dir\\\\\": {\"name\": \"x\"}, \"a\\\\b\": 1}");
+        assertEquals("x", extract(json, "dir\\_name"));
+        assertEquals(1, ((Number) extract(json, "a\\b")).intValue());
+        assertEquals(Set.of("dir\\_name", "a\\b"), flatten(json).keySet());
+    }
+
+    @Test
+    void keysWithUnderscoresAreMatchedAgainstTheDocument() {
+        JsonObject json = parse("{\"customer_details\": [{\"first_name\": \"Ann\", \"age\": 30}]}");
+        assertEquals("Ann", extract(json, "customer_details_0_first_name"));
+        assertEquals("Ann", JsonPathExtractor.compile("customer_details_0_first_name").select(json).getAsString());
+        assertEquals(30, ((Number) extract(json, "customer_details_age")).intValue());
+        assertNull(extract(json, "customer_details_0_first"));
+    }
+
+    @Test
+    void laterKeyWinsLikeFlattening() {
+        String[] documents = {
+                "{\"a_b\": 1, \"a\": {\"b\": 2}}",
+                "{\"a\": {\"b\": 2}, \"a_b\": 1}",
+                "{\"a\": {\"b_c\": 1, \"b\": {\"c\": 2}}, \"a_b\": {\"c\": 3}}",
+                "{\"a_b\": null, \"a\": {\"b\": 2}}",
+                "{\"items\": [{\"x\": 2}, {\"x\": 3}], \"items_0_x\": 1}"
+        };
+        for (String document : documents) {
+            JsonObject json = parse(document);
+            for (Map.Entry<String, Object> flattened : flatten(json).entrySet()) {
+                if (!(flattened.getValue() instanceof Number)) {
+                    continue;
+                }
+                JsonElement selected = JsonPathExtractor.compile(flattened.getKey()).select(json);
+                assertEquals(((Number) flattened.getValue()).longValue(), selected.getAsLong(),
+                        document + " at " + flattened.getKey());
+            }
+        }
+    }
+
+    @Test
+    void locatesExistingKeysInPlace() {
+        JsonObject json = parse("{\"customer\": {\"first_name\": \"Ann\"}, \"items\": [{\"x\": 1}]}");
+        Map.Entry<JsonElement, String> existing = JsonPathExtractor.compile("customer_first_name").locate(json);
+        assertSame(json.get("customer"), existing.getKey());
+        assertEquals("first_name", existing.getValue());
+
+        Map.Entry<JsonElement, String> added = JsonPathExtractor.compile("customer_city").locate(json);
+        assertSame(json.get("customer"), added.getKey());
+        assertEquals("city", added.getValue());
+
+        Map.Entry<JsonElement, String> element = JsonPathExtractor.compile("items_0").locate(json);
+        assertSame(json.get("items"), element.getKey());
+        assertEquals("0", element.getValue());
+
+        Map.Entry<JsonElement, String> top = JsonPathExtractor.compile("flag").locate(json);
+        assertSame(json, top.getKey());
+        assertNull(JsonPathExtractor.compile("missing_key").locate(json));
+    }
+
+    @Test
+    void extractSearchesArraysOfObjects() {
+        JsonObject json = parse("{\"alerts\": [{\"level\": \"High\"}, {\"other\": 1}, {\"level\": \"Low\"}]}");
+        assertEquals(List.of("High", "Low"), extract(json, "alerts_level"));
+        assertEquals("Low", extract(json, "alerts_2_level"));
+        assertNull(extract(json, "alerts_5_level"));
+    }
+
+    private static Object extract(JsonObject json, String path) {
+        return JsonPathExtractor.extractValue(json, path);
+    }
+
+    private static JsonObject parse(String json) {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+
+    private static Map<String, Object> flatten(JsonObject json) {
+        Map<String, Object> values = new HashMap<>();
+        PathDictionary dictionary = PathDictionary.current();
+        JsonFlattener.flatten(json, (pathId, path, value) ->
+                values.put(pathId != PathDictionary.NOT_FOUND ? dictionary.path(pathId) : path, value));
+        return values;
+    }
+}
@@ -0,0 +1,89 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lazy resolution of a path gives the value eager flattening stores for it, including when keys with "_"
+ * spell the same path as nested keys
+ */
+class JsonFlattenerTest {
+
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"a_b\": 1, \"a\": {\"b\": 2}}",
+            "{\"a\": {\"b\": 2}, \"a_b\": 1}",
+            "{\"a\": {\"b_c\": 1, \"b\": {\"c\": 2}}, \"a_b\": {\"c\": 3}}",
+            "{\"a_b\": null, \"a\": {\"b\": 2}}",
+            "{\"a\": {\"b\": 2}, \"a_b\": {\"c\": 1}}",
+            "{\"items_0_x\": 1, \"items\": [{\"x\": 2}, {\"x\": 3}]}",
+            "{\"items\": [{\"x\": 2}, {\"x\": 3}], \"items_0_x\": 1, \"items_1\": {\"x\": 4}}",
+            "{\"tags\": [\"a\", \"b\"], \"tags_0\": \"c\", \"empty\": [], \"empty_x\": 1}",
+            "{\"weather\": {\"alerts\": [{\"severity\": \"High\"}, {\"severity\": \"Low\", \"tags\": [1]}]},"
+                    + " \"weather_alerts_severity\": \"Medium\"}",
+            "{\"weather_alerts_severity\": \"Medium\", \"weather\": {\"alerts\": [{\"severity\": \"High\"}]}}",
+            "{\"customerDetails\": [{\"name\": \"Ann\", \"contact\": {\"city\": \"Pune\"}}],"
+                    + " \"customerDetails_0_contact_city\": \"Delhi\", \"customerDetails_0\": {\"name\": \"Bob\"}}");
+
+    @Test
+    void resolveMatchesFlatten() {
+        for (String document : DOCUMENTS) {
+            JsonObject json = StreamingJsonFlattener.parse(document);
+            Map<String, Object> flattened = flatten(json);
+            for (Map.Entry<String, Object> entry : flattened.entrySet()) {
+                assertEquals(entry.getValue(), JsonFlattener.resolve(json, entry.getKey()),
+                        document + " at " + entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    void streamingMatchesTreeFlatten() {
+        for (String document : DOCUMENTS) {
+            Map<String, Object> streamed = new HashMap<>();
+            JsonObject json = StreamingJsonFlattener.parse(document, collector(streamed));
+            assertEquals(flatten(json), streamed, document);
+        }
+    }
+
+    @Test
+    void lazyObjectReadsWhatEagerObjectStores() {
+        for (String document : DOCUMENTS) {
+            JsonObject json = StreamingJsonFlattener.parse(document);
+            DynamicObject eager = new DynamicObject(json);
+            JsonFlattener.flatten(json, eager.loader());
+            for (String path : eager.getPropertyKeys()) {
+                DynamicObject lazy = new DynamicObject(json, true);
+                assertEquals(eager.get(path), lazy.get(path), document + " at " + path);
+            }
+            assertEquals(eager.getProperties(), new DynamicObject(json, true).getProperties(), document);
+        }
+    }
+
+    private static Map<String, Object> flatten(JsonObject json) {
+        Map<String, Object> values = new HashMap<>();
+        JsonFlattener.flatten(json, collector(values));
+        return values;
+    }
+
+    private static JsonFlattener.Sink collector(Map<String, Object> values) {
+        PathDictionary dictionary = PathDictionary.current();
+        return new JsonFlattener.Sink() {
+            @Override
+            public void accept(int pathId, String path, Object value) {
+                values.put(pathId != PathDictionary.NOT_FOUND ? dictionary.path(pathId) : path, value);
+            }
+
+            @Override
+            public PathDictionary dictionary() {
+                return dictionary;
+            }
+        };
+    }
+}
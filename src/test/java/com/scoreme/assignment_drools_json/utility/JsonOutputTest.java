@@ -0,0 +1,51 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Streamed process-multiple output is byte for byte what building each document as a String produced
+ */
+class JsonOutputTest {
+
+    private static final Gson gson = new Gson();
+
+    @Test
+    void documentsAsStringsMatchGson() throws IOException {
+        Map<String, JsonObject> documents = new LinkedHashMap<>();
+        documents.put("plain", StreamingJsonFlattener.parse("{\"a\": 1, \"b\": [true, null, 2.5]}"));
+        documents.put("quo\"te\\d", StreamingJsonFlattener.parse(
+                "{\"text\": \"say \\\"hi\\\"\\\\ <b>&amp;</b> = 'x'\", \"lines\": \"a\\nb\\tc\\r\\u0001\\u2028\"}"));
+        documents.put("unicode é€", StreamingJsonFlattener.parse("{\"name\": \"José 😀\"}"));
+        documents.put("empty", new JsonObject());
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        JsonOutput.writeAsStrings(documents, streamed);
+
+        StringWriter expected = new StringWriter();
+        JsonWriter writer = new JsonWriter(expected);
+        writer.beginObject();
+        for (Map.Entry<String, JsonObject> document : documents.entrySet()) {
+            writer.name(document.getKey()).value(gson.toJson(document.getValue()));
+        }
+        writer.endObject();
+        writer.flush();
+        assertEquals(expected.toString(), streamed.toString(StandardCharsets.UTF_8));
+
+        JsonObject parsed = gson.fromJson(streamed.toString(StandardCharsets.UTF_8), JsonObject.class);
+        for (Map.Entry<String, JsonObject> document : documents.entrySet()) {
+            assertEquals(document.getValue(), gson.fromJson(parsed.get(document.getKey()).getAsString(), JsonObject.class));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The path dictionary and value interner start over on reset and once full, without breaking documents
+ * that were flattened before
+ */
+class PathDictionaryTest {
+
+    @Test
+    void documentKeepsItsDictionaryAcrossReset() {
+        JsonObject json = StreamingJsonFlattener.parse("{\"customer\": {\"name\": \"Ann\", \"scores\": [1, 2]}}");
+        DynamicObject object = new DynamicObject(null, false);
+        object.setOriginalJson(json);
+        JsonFlattener.flatten(json, object.loader());
+        PathDictionary before = PathDictionary.current();
+
+        PathDictionary.reset();
+
+        assertNotSame(before, PathDictionary.current());
+        assertEquals(PathDictionary.NOT_FOUND, PathDictionary.current().lookup("customer_name"));
+        assertEquals("Ann", object.get("customer_name"));
+        object.set("customer_grade", "A");
+        object.applyChangesToOriginal();
+        assertEquals("A", json.getAsJsonObject("customer").get("grade").getAsString());
+    }
+
+    @Test
+    void fullDictionaryFallsBackToStringKeys() {
+        PathDictionary.reset();
+        PathDictionary full = PathDictionary.current();
+        full.intern("customer_name");
+        int id = 0;
+        while (full.intern("record_" + id) != PathDictionary.NOT_FOUND) {
+            id++;
+        }
+
+        // Documents with new paths keep using it, without rotating it
+        for (int i = 0; i < 3; i++) {
+            JsonObject json = StreamingJsonFlattener.parse(
+                    "{\"customer\": {\"name\": \"Ann\"}, \"records\": {\"id" + i + "\": {\"score\": " + i + "}}}");
+            DynamicObject object = new DynamicObject(json);
+            JsonFlattener.flatten(json, object.loader());
+            assertSame(full, PathDictionary.current());
+
+            assertEquals("Ann", object.get("customer_name"));
+            assertEquals(i, ((Number) object.get("records_id" + i + "_score")).intValue());
+            assertEquals(PathDictionary.NOT_FOUND, full.lookup("records_id" + i + "_score"));
+
+            object.set("records_id" + i + "_score", 10);
+            object.set("records_id" + i + "_grade", "A");
+            object.set("customer_name", "Bo");
+            object.applyChangesToOriginal();
+            assertEquals(StreamingJsonFlattener.parse("{\"customer\": {\"name\": \"Bo\"}, \"records\": {\"id" + i
+                    + "\": {\"score\": 10, \"grade\": \"A\"}}}"), json);
+            assertEquals(10, object.getProperties().get("records_id" + i + "_score"));
+        }
+        assertEquals(id + 2, full.size());
+
+        PathDictionary.reset();
+        assertNotSame(full, PathDictionary.current());
+    }
+
+    @Test
+    void valuesAreSharedUntilReset() {
+        String high = ValueInterner.intern(new String("High"));
+        assertSame(high, ValueInterner.intern(new String("High")));
+
+        ValueInterner.reset();
+
+        assertNotSame(high, ValueInterner.intern(new String("High")));
+    }
+}
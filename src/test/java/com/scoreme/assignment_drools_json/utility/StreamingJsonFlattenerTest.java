@@ -0,0 +1,116 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The streaming parser gives the same tree, JSON output and flattened properties as Gson's fromJson
+ * followed by a tree flatten, for the bodies both accept
+ */
+class StreamingJsonFlattenerTest {
+
+    private static final Gson gson = new Gson();
+
+    private static final List<String> ACCEPTED = List.of(
+            "{\"customerDetails\": [{\"customerId\": \"CUST12345\", \"contactInfo\": {\"address\": {\"city\": \"New York\","
+                    + " \"locationDetails\": {\"latitude\": 40.7128, \"longitude\": -74.0060, \"weather\": {\"alerts\": ["
+                    + "{\"alertType\": \"Storm Warning\", \"severity\": \"High\"}, {\"severity\": \"Medium\"}]}}}}}]}",
+            "{\"big\": 12345678901234567890, \"exp\": 1.5e10, \"negZero\": -0.0, \"int\": 7, \"dec\": 0.10}",
+            "{\"text\": \"caf\\u00e9 \\\"quoted\\\" \\\\ back\\nslash\", \"empty\": \"\", \"flag\": true, \"none\": null}",
+            "{\"matrix\": [[1, 2], [3]], \"mixed\": [1, \"a\", {\"x\": 1}, null, false], \"emptyArray\": [], \"emptyObject\": {}}",
+            "{\"a_b\": 1, \"a\": {\"b\": 2}, \"list\": [{\"a\": 1}, {\"a\": 2, \"nested\": [{\"deep\": true}]}]}",
+            // Lenient forms both accept
+            "{/* block */ \"a\": 1, // line\n \"b\": 2}",
+            "{'single': 'quoted', \"mixed\": 'value'}",
+            "{unquoted: 1, nested: {key_name: \"v\"}}");
+
+    // Accepted by Gson's lenient fromJson only
+    private static final List<String> GSON_ONLY = List.of(
+            "{\"a\": unquoted}",
+            "{\"a\": NaN}",
+            "{\"a\" = 1}",
+            "{\"a\": 1; \"b\": 2}",
+            "{\"a\": [1,]}");
+
+    // Rejected by both
+    private static final List<String> REJECTED = List.of(
+            "{\"a\": 1} trailing",
+            "{\"a\": 1}{}",
+            "[1, 2]",
+            "{\"a\": 1");
+
+    @Test
+    void acceptedBodiesMatchGson() {
+        for (String body : ACCEPTED) {
+            JsonObject expected = gson.fromJson(body, JsonObject.class);
+            DynamicObject expectedObject = new DynamicObject(expected);
+            JsonFlattener.flatten(expected, expectedObject.loader());
+
+            DynamicObject actualObject = new DynamicObject(null);
+            JsonObject actual = StreamingJsonFlattener.parse(body, actualObject.loader());
+            actualObject.setOriginalJson(actual);
+
+            assertEquals(expected, actual, body);
+            assertEquals(gson.toJson(expected), gson.toJson(actual), body);
+            assertEquals(expectedObject.getProperties(), actualObject.getProperties(), body);
+        }
+    }
+
+    @Test
+    void utf8BytesMatchString() {
+        for (String body : ACCEPTED) {
+            assertEquals(StreamingJsonFlattener.parse(body),
+                    StreamingJsonFlattener.parse(body.getBytes(StandardCharsets.UTF_8), null, null),
+                    body);
+        }
+    }
+
+    @Test
+    void gsonOnlyFormsAreRejected() {
+        for (String body : GSON_ONLY) {
+            gson.fromJson(body, JsonObject.class);
+            assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.parse(body), body);
+        }
+    }
+
+    @Test
+    void malformedBodiesAreRejected() {
+        for (String body : REJECTED) {
+            assertThrows(RuntimeException.class, () -> gson.fromJson(body, JsonObject.class), body);
+            assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.parse(body), body);
+        }
+    }
+
+    @Test
+    void splitObjectKeepsEachMember() {
+        Map<String, byte[]> members = StreamingJsonFlattener.splitObject(bytes(
+                "{\"a\": {\"x\": [1, 2]}, \"b\": \"téxt\", 'c': 3}"));
+        assertEquals(3, members.size());
+        assertArrayEquals(bytes("{\"x\": [1, 2]}"), members.get("a"));
+        assertArrayEquals(bytes("\"téxt\""), members.get("b"));
+        assertArrayEquals(bytes("3"), members.get("c"));
+    }
+
+    @Test
+    void splitObjectRejectsTrailingContent() {
+        assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.splitObject(bytes("{\"a\": 1} {\"b\": 2}")));
+        assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.splitObject(bytes("{\"a\": 1} x")));
+        assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.splitObject(bytes("{\"a\": 1")));
+        assertThrows(IllegalArgumentException.class, () -> StreamingJsonFlattener.splitObject(bytes("[1]")));
+        assertEquals(1, StreamingJsonFlattener.splitObject(bytes(" {\"a\": 1}\n // done\n")).size());
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,163 @@
+package com.scoreme.assignment_drools_json.utility;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.scoreme.assignment_drools_json.model.DynamicObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Values set by rules are written back where each document holds their path, whatever shape it has
+ */
+class WriteBackTest {
+
+    @Test
+    void listsAndMapsAreWrittenAtTheirPath() {
+        JsonObject json = parse("{\"customer\": {\"name\": \"Ann\"}}");
+        DynamicObject object = flattened(json);
+        object.set("customer_tags", List.of("a", "b"));
+        object.set("customer_profile", Map.of("tier", "gold"));
+        object.set("customer_profile_score", 5);
+        object.applyChangesToOriginal();
+
+        assertEquals(parse("{\"customer\": {\"name\": \"Ann\", \"tags\": [\"a\", \"b\"],"
+                + " \"profile\": {\"tier\": \"gold\", \"score\": 5}}}"), json);
+    }
+
+    @Test
+    void arrayElementsAreReplacedByIndex() {
+        JsonObject json = parse("{\"items\": [{\"x\": 1}, {\"x\": 2}]}");
+        DynamicObject object = flattened(json);
+        object.set("items_0", Map.of("x", 9));
+        object.set("items_1_x", 3);
+        object.set("items_5", 1);
+        object.applyChangesToOriginal();
+
+        assertEquals(parse("{\"items\": [{\"x\": 9}, {\"x\": 3}]}"), json);
+    }
+
+    @Test
+    void keysUnderArraysAreSetOnEachObject() {
+        JsonObject json = parse("{\"customerDetails\": [{\"id\": 1}, {\"id\": 2}, 3]}");
+        DynamicObject object = flattened(json);
+        object.set("customerDetails_weatherAlertsTags", List.of("Storm", "Flood"));
+        object.set("customerDetails_extractedParentData", "Ann");
+        object.set("customerDetails_flaggedForReview", "true");
+        object.applyChangesToOriginal();
+
+        String fields = "\"weatherAlertsTags\": [\"Storm\", \"Flood\"], \"extractedParentData\": \"Ann\","
+                + " \"flaggedForReview\": \"true\"";
+        assertEquals(parse("{\"customerDetails\": [{\"id\": 1, " + fields + "}, {\"id\": 2, " + fields + "}, 3]}"),
+                json);
+        // Each object gets its own copy
+        JsonArray customers = json.getAsJsonArray("customerDetails");
+        customers.get(0).getAsJsonObject().getAsJsonArray("weatherAlertsTags").add("Heat");
+        assertEquals(2, customers.get(1).getAsJsonObject().getAsJsonArray("weatherAlertsTags").size());
+    }
+
+    @Test
+    void projectedDocumentsWriteBackTheSameWay() {
+        String document = "{\"customerDetails\": [{\"customerName\": \"Ann\", \"age\": 30}]}";
+        JsonObject json = StreamingJsonFlattener.parse(document);
+        DynamicObject object = new DynamicObject(json);
+        JsonFlattener.flatten(json, new JsonFlattener.PathFilter() {
+            @Override
+            public boolean includes(String path) {
+                return path.equals("customerDetails_0_customerName");
+            }
+
+            @Override
+            public boolean includesBelow(String path) {
+                return "customerDetails_0_customerName".startsWith(path + "_");
+            }
+        }, object.loader());
+        object.set("customerDetails_0_customerName", "Bo");
+        object.set("customerDetails_0_age", 31);
+        object.set("customerDetails_weatherAlertsTags", List.of("Storm"));
+        object.applyChangesToOriginal();
+
+        assertEquals(parse("{\"customerDetails\": [{\"customerName\": \"Bo\", \"age\": 31,"
+                + " \"weatherAlertsTags\": [\"Storm\"]}]}"), json);
+    }
+
+    @Test
+    void streamingFlattenRecordsTheSameNodes() {
+        String document = "{\"a_b\": {\"c\": 1}, \"a\": {\"b\": {\"c\": 2}},"
+                + " \"customerDetails\": [{\"id\": 1, \"tags\": [\"x\"]}], \"items\": [{\"x\": 1}]}";
+        JsonObject tree = parse(document);
+        DynamicObject treeObject = flattened(tree);
+        DynamicObject streamedObject = new DynamicObject(null);
+        streamedObject.setOriginalJson(StreamingJsonFlattener.parse(document, streamedObject.loader()));
+        for (DynamicObject object : List.of(treeObject, streamedObject)) {
+            object.set("a_b_c", 3);
+            object.set("customerDetails_0_tags", List.of("y"));
+            object.set("customerDetails_flag", true);
+            object.set("items_0", Map.of("x", 2));
+            object.applyChangesToOriginal();
+        }
+
+        JsonObject expected = parse("{\"a_b\": {\"c\": 1}, \"a\": {\"b\": {\"c\": 3}},"
+                + " \"customerDetails\": [{\"id\": 1, \"tags\": [\"y\"], \"flag\": true}], \"items\": [{\"x\": 2}]}");
+        assertEquals(expected, tree);
+        assertEquals(expected, streamedObject.getOriginalJson());
+    }
+
+    @Test
+    void keysWithUnderscoresAreWrittenInPlace() {
+        JsonObject json = parse("{\"customer\": {\"first_name\": \"Ann\", \"age\": 30}}");
+        DynamicObject object = flattened(json);
+        object.set("customer_first_name", "Bo");
+        object.set("customer_age", null);
+        object.applyChangesToOriginal();
+
+        assertEquals(parse("{\"customer\": {\"first_name\": \"Bo\", \"age\": 30}}"), json);
+    }
+
+    @Test
+    void samePathResolvesByEachDocumentsShape() {
+        JsonObject joined = parse("{\"a_b\": {\"c\": 1}}");
+        JsonObject nested = parse("{\"a\": {\"b\": {\"c\": 1}}}");
+        // Flattened one after the other, so both documents intern the path in the same dictionary
+        DynamicObject first = flattened(joined);
+        DynamicObject second = flattened(nested);
+        first.set("a_b_c", 2);
+        first.set("a_b_d", 3);
+        second.set("a_b_c", 2);
+        second.set("a_b_d", 3);
+        first.applyChangesToOriginal();
+        second.applyChangesToOriginal();
+
+        assertEquals(parse("{\"a_b\": {\"c\": 2, \"d\": 3}}"), joined);
+        assertEquals(parse("{\"a\": {\"b\": {\"c\": 2, \"d\": 3}}}"), nested);
+    }
+
+    @Test
+    void lazyObjectsWalkTheDocument() {
+        JsonObject json = parse("{\"customer\": {\"first_name\": \"Ann\"}, \"items\": [{\"x\": 1}]}");
+        DynamicObject object = new DynamicObject(json, true);
+        object.set("customer_first_name", "Bo");
+        object.set("customer_city", "Pune");
+        object.set("items_0_x", 2);
+        object.set("missing_key", 1);
+        object.applyChangesToOriginal();
+
+        assertEquals(parse("{\"customer\": {\"first_name\": \"Bo\", \"city\": \"Pune\"}, \"items\": [{\"x\": 2}]}"), json);
+        assertFalse(json.has("missing"));
+    }
+
+    private static DynamicObject flattened(JsonObject json) {
+        DynamicObject object = new DynamicObject(json);
+        JsonFlattener.flatten(json, object.loader());
+        return object;
+    }
+
+    private static JsonObject parse(String json) {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+}